@@ -0,0 +1,259 @@
+package com.example.apigateway.cache;
+
+import com.example.apigateway.tracing.ServerTimingFilter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * バックエンドの GET の応答を Cache-Control に従ってメモリに保持し、期限内は API Gateway から直接返す。
+ *
+ * <p>保存するのは 200 で max-age / s-maxage による鮮度があり、no-store・no-cache・Set-Cookie・Vary: * の無い応答だけ。
+ * public か s-maxage があれば利用者をまたいで共有し、それ以外（private を含む）は Authorization ごとに分けて保持する。
+ * バックエンドへ送るヘッダーは Authorization と If-None-Match だけのため、Vary で考慮するのは Authorization のみ。
+ *
+ * <p>最初の応答はストリーミングしたまま写しを取り、最後まで届いたら保存する。
+ * 容量はボディのバイト数で制限し、鮮度の残りが切れたものと使われていないものから捨てる。
+ * ヒット・ミス・追い出しは /actuator/metrics の cache.*（cache=gatewayResponses）で確認できる。
+ */
+@Component
+public class ResponseCache {
+
+    private final boolean enabled;
+    private final int maxEntrySize;
+    private final Ticker ticker;
+    private final Cache<String, CachedResponse> cache;
+
+    @Autowired
+    public ResponseCache(@Value("${backend.response-cache.enabled}") boolean enabled,
+                         @Value("${backend.response-cache.max-size}") DataSize maxSize,
+                         @Value("${backend.response-cache.max-entry-size}") DataSize maxEntrySize,
+                         MeterRegistry meterRegistry) {
+        this(enabled, maxSize, maxEntrySize, meterRegistry, Ticker.systemTicker(), ForkJoinPool.commonPool());
+    }
+
+    // ticker は期限と Age の計算に、executor は追い出し等の後処理に使う（テストでは進め方を指定する）
+    ResponseCache(boolean enabled, DataSize maxSize, DataSize maxEntrySize, MeterRegistry meterRegistry,
+                  Ticker ticker, Executor executor) {
+        this.enabled = enabled;
+        this.maxEntrySize = (int) maxEntrySize.toBytes();
+        this.ticker = ticker;
+        this.cache = Caffeine.newBuilder()
+            .ticker(ticker)
+            .executor(executor)
+            .maximumWeight(maxSize.toBytes())
+            .weigher((String key, CachedResponse response) -> key.length() + response.body.length)
+            .expireAfter(new Expiry<String, CachedResponse>() {
+                @Override
+                public long expireAfterCreate(String key, CachedResponse response, long currentTime) {
+                    return response.ttlNanos;
+                }
+
+                @Override
+                public long expireAfterUpdate(String key, CachedResponse response, long currentTime, long currentDuration) {
+                    return response.ttlNanos;
+                }
+
+                @Override
+                public long expireAfterRead(String key, CachedResponse response, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "gatewayResponses");
+    }
+
+    /**
+     * 期限内の応答があれば返し（If-None-Match が ETag と一致すれば 304）、無ければ call を呼んで保存できる応答なら保存する。
+     *
+     * @param resource 経路の中でリソースを表すキー（パス・クエリ）
+     */
+    public Mono<ResponseEntity<Flux<DataBuffer>>> serve(String route, String resource, String authorization, String ifNoneMatch,
+                                                        Mono<ResponseEntity<Flux<DataBuffer>>> call) {
+        if (!enabled) {
+            return call;
+        }
+        return Mono.defer(() -> {
+            String sharedKey = route + '\n' + resource;
+            String privateKey = sharedKey + '\n' + authorization;
+            // ヒット・ミスの統計が1リクエスト1回になるよう、共有のものがあるかは統計に数えずに確かめる
+            CachedResponse hit = cache.getIfPresent(cache.asMap().containsKey(sharedKey) ? sharedKey : privateKey);
+            if (hit != null) {
+                return Mono.just(hit.toEntity(ifNoneMatch, ticker.read()));
+            }
+            return call.map(response -> store(response, sharedKey, privateKey));
+        });
+    }
+
+    // 保存できる応答なら、クライアントへ流すボディの写しを取り、最後まで届いたら保存する
+    private ResponseEntity<Flux<DataBuffer>> store(ResponseEntity<Flux<DataBuffer>> response, String sharedKey, String privateKey) {
+        HttpHeaders headers = response.getHeaders();
+        Freshness freshness = Freshness.of(response.getStatusCode(), headers);
+        if (freshness == null || response.getBody() == null || headers.getContentLength() > maxEntrySize) {
+            return response;
+        }
+        String key = freshness.shared ? sharedKey : privateKey;
+        ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        Flux<DataBuffer> body = response.getBody()
+            .doOnNext(buffer -> {
+                if (copy.size() <= maxEntrySize) {
+                    int length = buffer.readableByteCount();
+                    byte[] chunk = new byte[length];
+                    buffer.toByteBuffer(buffer.readPosition(), ByteBuffer.wrap(chunk), 0, length);
+                    copy.write(chunk, 0, length);
+                }
+            })
+            .doOnComplete(() -> {
+                if (copy.size() <= maxEntrySize) {
+                    cache.put(key, new CachedResponse(response.getStatusCode(), headers, copy.toByteArray(), freshness, ticker.read()));
+                }
+            });
+        return ResponseEntity.status(response.getStatusCode()).headers(headers).body(body);
+    }
+
+    // Cache-Control 等から、保存できるか・期限・共有できるかを決める
+    private static final class Freshness {
+
+        private final long lifetimeSeconds;
+        private final long initialAgeSeconds;
+        private final boolean shared;
+
+        private Freshness(long lifetimeSeconds, long initialAgeSeconds, boolean shared) {
+            this.lifetimeSeconds = lifetimeSeconds;
+            this.initialAgeSeconds = initialAgeSeconds;
+            this.shared = shared;
+        }
+
+        // 保存できなければ null
+        static Freshness of(HttpStatusCode status, HttpHeaders headers) {
+            if (status.value() != HttpStatus.OK.value() || headers.getContentType() == null
+                    || headers.containsKey(HttpHeaders.SET_COOKIE)) {
+                return null;
+            }
+            Map<String, String> directives = directives(headers.getCacheControl());
+            if (directives.containsKey("no-store") || directives.containsKey("no-cache")) {
+                return null;
+            }
+            long lifetime = seconds(directives.getOrDefault("s-maxage", directives.get("max-age")));
+            long age = Math.max(0, seconds(headers.getFirst(HttpHeaders.AGE)));
+            List<String> vary = headers.getVary();
+            if (lifetime <= age || vary.contains("*")) {
+                return null;
+            }
+            // Authorization 付きのリクエストへの応答は、public か s-maxage が無ければ共有しない
+            boolean shared = !directives.containsKey("private")
+                && (directives.containsKey("public") || directives.containsKey("s-maxage"))
+                && vary.stream().noneMatch(HttpHeaders.AUTHORIZATION::equalsIgnoreCase);
+            return new Freshness(lifetime, age, shared);
+        }
+
+        private static Map<String, String> directives(String cacheControl) {
+            Map<String, String> directives = new HashMap<>();
+            if (cacheControl == null) {
+                return directives;
+            }
+            for (String directive : cacheControl.split(",")) {
+                String[] pair = directive.trim().split("=", 2);
+                String value = pair.length > 1 ? pair[1].trim().replace("\"", "") : "";
+                directives.put(pair[0].trim().toLowerCase(Locale.ROOT), value);
+            }
+            return directives;
+        }
+
+        // 数値でなければ -1
+        private static long seconds(String value) {
+            if (value == null) {
+                return -1;
+            }
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+    }
+
+    private static final class CachedResponse {
+
+        private final HttpStatusCode status;
+        private final HttpHeaders headers;
+        private final byte[] body;
+        private final String etag;
+        private final long initialAgeSeconds;
+        private final long ttlNanos;
+        private final long storedAt;
+
+        private CachedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body, Freshness freshness, long storedAt) {
+            this.status = status;
+            this.storedAt = storedAt;
+            this.body = body;
+            this.etag = headers.getETag();
+            this.initialAgeSeconds = freshness.initialAgeSeconds;
+            this.ttlNanos = TimeUnit.SECONDS.toNanos(freshness.lifetimeSeconds - freshness.initialAgeSeconds);
+            // バックエンドの Server-Timing は保存した時のものなので、返す時には付けない
+            this.headers = new HttpHeaders();
+            this.headers.putAll(headers);
+            this.headers.remove(ServerTimingFilter.SERVER_TIMING);
+            this.headers.setContentLength(body.length);
+        }
+
+        private ResponseEntity<Flux<DataBuffer>> toEntity(String ifNoneMatch, long now) {
+            HttpHeaders headers = new HttpHeaders();
+            long age = initialAgeSeconds + TimeUnit.NANOSECONDS.toSeconds(now - storedAt);
+            headers.set(HttpHeaders.AGE, Long.toString(age));
+            headers.set(ServerTimingFilter.SERVER_TIMING, "cache;desc=\"hit\"");
+            if (etag != null && matches(ifNoneMatch, etag)) {
+                for (String name : List.of(HttpHeaders.ETAG, HttpHeaders.CACHE_CONTROL, HttpHeaders.VARY)) {
+                    if (this.headers.containsKey(name)) {
+                        headers.put(name, this.headers.get(name));
+                    }
+                }
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+            }
+            headers.putAll(this.headers);
+            return ResponseEntity.status(status).headers(headers)
+                .body(Flux.defer(() -> Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(body))));
+        }
+
+        // If-None-Match は弱い比較（W/ を除いて比べる）
+        private static boolean matches(String ifNoneMatch, String etag) {
+            if (ifNoneMatch == null) {
+                return false;
+            }
+            String target = etag.startsWith("W/") ? etag.substring(2) : etag;
+            for (String candidate : ifNoneMatch.split(",")) {
+                String value = candidate.trim();
+                if (value.equals("*") || (value.startsWith("W/") ? value.substring(2) : value).equals(target)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.apigateway.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClientRequest;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * バックエンド呼び出しに経路（route）ごとの応答タイムアウト・リトライ・ヘッジを付ける。
+ * 経路ごとの設定は backend.client.routes.&lt;route&gt;.response-timeout / hedge で上書きできる。
+ *
+ * <p>リトライはボディの無い冪等なメソッド（GET・DELETE）で、応答を受け取る前に失敗した場合（接続失敗・タイムアウト等）に限る。
+ * ヘッジは GET で、経路の直近の p95 を過ぎても応答ヘッダーが届かなければ同じリクエストをもう1つ送り、先に届いた方を使う。
+ */
+@Component
+public class BackendCallPolicy {
+
+    private static final String ROUTES = "backend.client.routes.";
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${backend.client.response-timeout}")
+    private Duration responseTimeout;
+
+    @Value("${backend.client.retry.max-retries}")
+    private int maxRetries;
+
+    @Value("${backend.client.retry.min-backoff}")
+    private Duration minBackoff;
+
+    @Value("${backend.client.retry.max-backoff}")
+    private Duration maxBackoff;
+
+    @Value("${backend.client.retry.jitter}")
+    private double jitter;
+
+    @Value("${backend.client.hedge.enabled}")
+    private boolean hedgeEnabled;
+
+    @Value("${backend.client.hedge.min-delay}")
+    private Duration minHedgeDelay;
+
+    @Value("${backend.client.hedge.window}")
+    private int hedgeWindow;
+
+    @Value("${backend.client.hedge.min-samples}")
+    private int hedgeMinSamples;
+
+    private final Map<String, Route> routes = new ConcurrentHashMap<>();
+
+    // 応答ヘッダーが届くまで（ストリーミングでは読み込みの間隔）を経路ごとのタイムアウトで打ち切る
+    public Consumer<ClientHttpRequest> responseTimeout(String route) {
+        Duration timeout = route(route).responseTimeout;
+        return request -> request.<HttpClientRequest>getNativeRequest().responseTimeout(timeout);
+    }
+
+    public <T> Mono<T> apply(String name, HttpMethod method, Mono<T> call) {
+        Route route = route(name);
+        Mono<T> timed = Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call.doOnNext(response -> route.latency.record(System.nanoTime() - start));
+        });
+        Mono<T> hedged = method == HttpMethod.GET && route.hedge ? hedge(route, timed) : timed;
+        // PUT・PATCH・POST は受信したボディをそのまま流しており、送り直せないためリトライしない
+        if (maxRetries <= 0 || !(method == HttpMethod.GET || method == HttpMethod.DELETE)) {
+            return hedged;
+        }
+        return hedged.retryWhen(Retry.backoff(maxRetries, minBackoff)
+            .maxBackoff(maxBackoff)
+            .jitter(jitter)
+            .filter(e -> e instanceof WebClientRequestException)
+            .doBeforeRetry(signal -> route.retries.increment())
+            .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+    }
+
+    // p95 が求まるまで（起動直後など）はヘッジしない
+    private <T> Mono<T> hedge(Route route, Mono<T> call) {
+        return Mono.defer(() -> {
+            long p95 = route.latency.p95Nanos();
+            if (p95 < 0) {
+                return call;
+            }
+            Duration delay = Duration.ofNanos(Math.max(p95, minHedgeDelay.toNanos()));
+            Mono<T> second = Mono.delay(delay).then(Mono.defer(() -> {
+                route.hedges.increment();
+                return call;
+            }));
+            return Mono.firstWithSignal(call, second);
+        });
+    }
+
+    private Route route(String name) {
+        return routes.computeIfAbsent(name, key -> new Route(
+            environment.getProperty(ROUTES + key + ".response-timeout", Duration.class, responseTimeout),
+            hedgeEnabled && environment.getProperty(ROUTES + key + ".hedge", Boolean.class, true),
+            new LatencyWindow(hedgeWindow, hedgeMinSamples),
+            Counter.builder("backend.client.retries").tag("route", key).register(meterRegistry),
+            Counter.builder("backend.client.hedges").tag("route", key).register(meterRegistry)));
+    }
+
+    private static final class Route {
+
+        private final Duration responseTimeout;
+        private final boolean hedge;
+        private final LatencyWindow latency;
+        private final Counter retries;
+        private final Counter hedges;
+
+        private Route(Duration responseTimeout, boolean hedge, LatencyWindow latency, Counter retries, Counter hedges) {
+            this.responseTimeout = responseTimeout;
+            this.hedge = hedge;
+            this.latency = latency;
+            this.retries = retries;
+            this.hedges = hedges;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.apigateway.client;
+
+import java.util.Arrays;
+
+/**
+ * 直近の指定件数の応答時間を保持し、p95 を求める。
+ * 記録のたびに並べ替えないよう、p95 は一定件数ごとにまとめて計算し直す。
+ */
+final class LatencyWindow {
+
+    private final long[] samples;
+    private final int minSamples;
+    private final int recomputeEvery;
+
+    private int next;
+    private int count;
+    private int sinceRecompute;
+    private volatile long p95Nanos = -1;
+
+    LatencyWindow(int size, int minSamples) {
+        this.samples = new long[size];
+        this.minSamples = Math.min(minSamples, size);
+        this.recomputeEvery = Math.max(1, size / 10);
+    }
+
+    synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+        if (++sinceRecompute >= recomputeEvery && count >= minSamples) {
+            sinceRecompute = 0;
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            p95Nanos = sorted[(int) Math.ceil(count * 0.95) - 1];
+        }
+    }
+
+    // 件数が足りないうちは -1
+    long p95Nanos() {
+        return p95Nanos;
+    }
+}
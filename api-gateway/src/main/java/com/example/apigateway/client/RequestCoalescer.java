@@ -0,0 +1,179 @@
+package com.example.apigateway.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.publisher.Sinks;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 同じキー（経路・パス・クエリ・利用者・If-None-Match）の GET が同時に来たとき、バックエンドへの呼び出しを1つにまとめ、
+ * 応答を待っている全員に同じ内容を返す（single-flight）。
+ *
+ * <p>応答のヘッダーが届いた時点で待っているリクエストが無ければ、ボディは読み込まずにそのままストリーミングで中継する。
+ * 待っているリクエストがあり、Content-Length が max-body-size 以下の場合だけボディをメモリに読み込んで全員に返す。
+ * それ以外（長さが不明・上限超え）は最初のリクエストにそのまま中継し、待っていたリクエストはそれぞれ個別に呼び出す。
+ * キーは呼び出し側が作る。ProxyController は検証した JWT の発行者と sub を含め、同じ利用者の間でしか応答を共有しない
+ * （backend.coalescing.shared-routes の経路は利用者を含めず、全員で共有する）。
+ */
+@Component
+public class RequestCoalescer {
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final long maxBodySize;
+
+    private final Map<String, Flight> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Counter> coalesced = new ConcurrentHashMap<>();
+
+    public RequestCoalescer(@Value("${backend.coalescing.enabled}") boolean enabled,
+                            @Value("${backend.coalescing.max-body-size}") DataSize maxBodySize,
+                            MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.maxBodySize = maxBodySize.toBytes();
+    }
+
+    public Mono<ResponseEntity<Flux<DataBuffer>>> coalesce(String route, String key,
+                                                           Mono<ResponseEntity<Flux<DataBuffer>>> call) {
+        if (!enabled) {
+            return call;
+        }
+        return Mono.defer(() -> {
+            String flightKey = route + '\n' + key;
+            Flight flight = new Flight();
+            while (true) {
+                Flight existing = inFlight.putIfAbsent(flightKey, flight);
+                if (existing == null) {
+                    return lead(flightKey, flight, call);
+                }
+                if (existing.join()) {
+                    coalesced.computeIfAbsent(route, name -> Counter.builder("backend.client.coalesced")
+                        .tag("route", name)
+                        .register(meterRegistry)).increment();
+                    return follow(existing, call);
+                }
+                // 応答のヘッダーが届いて締め切られた呼び出しには加わらず、新しく始める
+                inFlight.remove(flightKey, existing);
+            }
+        });
+    }
+
+    // 応答のヘッダーが届いたら締め切り、待っているリクエストの数と Content-Length で共有するかどうかを決める
+    private Mono<ResponseEntity<Flux<DataBuffer>>> lead(String flightKey, Flight flight,
+                                                       Mono<ResponseEntity<Flux<DataBuffer>>> call) {
+        return call
+            .flatMap(response -> {
+                int followers = flight.close();
+                inFlight.remove(flightKey, flight);
+                if (followers == 0) {
+                    flight.result.tryEmitEmpty();
+                    return Mono.just(response);
+                }
+                if (response.getBody() == null) {
+                    BufferedResponse shared = new BufferedResponse(response.getStatusCode(), response.getHeaders(), null);
+                    flight.result.tryEmitValue(shared);
+                    return Mono.just(shared.toEntity());
+                }
+                long contentLength = response.getHeaders().getContentLength();
+                if (contentLength < 0 || contentLength > maxBodySize) {
+                    flight.result.tryEmitEmpty();
+                    return Mono.just(response);
+                }
+                return buffer(response).map(shared -> {
+                    flight.result.tryEmitValue(shared);
+                    return shared.toEntity();
+                });
+            })
+            .doOnError(flight.result::tryEmitError)
+            .doFinally(signal -> {
+                flight.close();
+                inFlight.remove(flightKey, flight);
+                // 応答を受け取る前に取り消された場合、待っていたリクエストは個別に呼び出す
+                if (signal != SignalType.ON_ERROR) {
+                    flight.result.tryEmitEmpty();
+                }
+            });
+    }
+
+    private Mono<ResponseEntity<Flux<DataBuffer>>> follow(Flight flight, Mono<ResponseEntity<Flux<DataBuffer>>> call) {
+        return flight.result.asMono()
+            .map(BufferedResponse::toEntity)
+            .switchIfEmpty(call)
+            .doOnCancel(flight::leave);
+    }
+
+    private Mono<BufferedResponse> buffer(ResponseEntity<Flux<DataBuffer>> response) {
+        return DataBufferUtils.join(response.getBody(), (int) maxBodySize)
+            .map(joined -> {
+                byte[] bytes = new byte[joined.readableByteCount()];
+                joined.read(bytes);
+                DataBufferUtils.release(joined);
+                return new BufferedResponse(response.getStatusCode(), response.getHeaders(), bytes);
+            })
+            .defaultIfEmpty(new BufferedResponse(response.getStatusCode(), response.getHeaders(), new byte[0]));
+    }
+
+    // 1つの呼び出しと、その応答を待っているリクエストの数。ヘッダーが届いた後（closed）は加われない
+    private static final class Flight {
+
+        private final Sinks.One<BufferedResponse> result = Sinks.one();
+        private int followers;
+        private boolean closed;
+
+        synchronized boolean join() {
+            if (closed) {
+                return false;
+            }
+            followers++;
+            return true;
+        }
+
+        synchronized void leave() {
+            if (!closed) {
+                followers--;
+            }
+        }
+
+        synchronized int close() {
+            closed = true;
+            return followers;
+        }
+    }
+
+    // 待っている全員で共有する応答。ボディは各クライアントへの書き出しごとに同じ配列を包んで渡す
+    private static final class BufferedResponse {
+
+        private final HttpStatusCode status;
+        private final HttpHeaders headers;
+        private final byte[] body;
+
+        private BufferedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body) {
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        private ResponseEntity<Flux<DataBuffer>> toEntity() {
+            ResponseEntity.BodyBuilder builder = ResponseEntity.status(status).headers(headers);
+            if (body == null) {
+                return builder.build();
+            }
+            return builder.contentLength(body.length)
+                .body(Flux.defer(() -> Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(body))));
+        }
+    }
+}
@@ -1,112 +1,319 @@
 package com.example.apigateway.controller;
 
+import com.example.apigateway.cache.ResponseCache;
+import com.example.apigateway.client.BackendCallPolicy;
+import com.example.apigateway.client.RequestCoalescer;
+import com.example.apigateway.ratelimit.RateLimiter;
+import com.example.apigateway.security.JwtSubjectResolver;
+import com.example.apigateway.tracing.ServerTimingFilter;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.DefaultUriBuilderFactory;
+import org.springframework.web.util.UriBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.net.URI;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// ハンドラーはバックエンドの応答を待たずに Mono / Flux を返し、少数のイベントループスレッドで多数の呼び出しを並行して中継する
+// リクエスト・レスポンスのボディは JSON として解釈せず、受け取った DataBuffer をそのまま流す（件数の多い一覧でもメモリ使用量は一定）
 @RestController
 @RequestMapping("/api")
 public class ProxyController {
 
+    // バックエンドへそのまま渡すリクエストヘッダー（ボディの形式・長さ・符号化）
+    private static final List<String> FORWARDED_REQUEST_HEADERS = List.of(
+        HttpHeaders.CONTENT_TYPE, HttpHeaders.CONTENT_LENGTH, HttpHeaders.CONTENT_ENCODING);
+
+    // クライアントへそのまま返すレスポンスヘッダー。Server-Timing には ServerTimingFilter が gateway の時間を追記する
+    private static final List<String> FORWARDED_RESPONSE_HEADERS = List.of(
+        HttpHeaders.CONTENT_TYPE, HttpHeaders.CONTENT_LENGTH, HttpHeaders.CONTENT_ENCODING, HttpHeaders.CONTENT_DISPOSITION,
+        HttpHeaders.ETAG, HttpHeaders.CACHE_CONTROL, HttpHeaders.VARY, HttpHeaders.LOCATION, HttpHeaders.WWW_AUTHENTICATE,
+        ServerTimingFilter.SERVER_TIMING);
+
+    // WebClient と同じ方式（テンプレートと値を別々にエンコード）で、キャッシュのキーにするパスとクエリを作る
+    private static final DefaultUriBuilderFactory RESOURCE_URIS = new DefaultUriBuilderFactory();
+
     @Value("${backend.url}")
     private String backendUrl;
 
+    // 利用者によらず同じ応答を返す経路。同時に来た GET は認証情報が違ってもまとめる
+    @Value("${backend.coalescing.shared-routes}")
+    private Set<String> sharedRoutes;
+
     private final WebClient webClient;
+    private final BackendCallPolicy callPolicy;
+    private final RequestCoalescer coalescer;
+    private final ResponseCache responseCache;
+    private final RateLimiter rateLimiter;
+    private final JwtSubjectResolver subjectResolver;
 
-    public ProxyController() {
-        this.webClient = WebClient.builder().build();
+    public ProxyController(WebClient backendWebClient, BackendCallPolicy callPolicy, RequestCoalescer coalescer,
+                           ResponseCache responseCache, RateLimiter rateLimiter, JwtSubjectResolver subjectResolver) {
+        this.webClient = backendWebClient;
+        this.callPolicy = callPolicy;
+        this.coalescer = coalescer;
+        this.responseCache = responseCache;
+        this.rateLimiter = rateLimiter;
+        this.subjectResolver = subjectResolver;
     }
 
     @GetMapping("/trainings")
-    public ResponseEntity<?> getTrainingPlans(@RequestHeader(value = "Authorization", required = true) String authorization,
-                                             @RequestParam(required = false) String type,
-                                             @RequestParam(required = false) String difficulty,
-                                             @RequestParam(required = false) String search,
-                                             @RequestParam(required = false) Integer minDuration,
-                                             @RequestParam(required = false) Integer maxDuration) {
-        // Query parameters construction
-        StringBuilder queryParams = new StringBuilder();
-        if (type != null) queryParams.append("&type=").append(type);
-        if (difficulty != null) queryParams.append("&difficulty=").append(difficulty);
-        if (search != null) queryParams.append("&search=").append(search);
-        if (minDuration != null) queryParams.append("&minDuration=").append(minDuration);
-        if (maxDuration != null) queryParams.append("&maxDuration=").append(maxDuration);
-        
-        String query = queryParams.length() > 0 ? "?" + queryParams.substring(1) : "";
-        
-        return webClient.get()
-            .uri(backendUrl + "/api/trainings" + query)
-            .header("Authorization", authorization)
-            .retrieve()
-            .toEntity(Object.class)
-            .block();
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getTrainingPlans(@RequestHeader(value = "Authorization", required = true) String authorization,
+                                                                   @RequestParam(required = false) String type,
+                                                                   @RequestParam(required = false) String difficulty,
+                                                                   @RequestParam(required = false) String search,
+                                                                   @RequestParam(required = false) Integer minDuration,
+                                                                   @RequestParam(required = false) Integer maxDuration,
+                                                                   @RequestParam(required = false) String from,
+                                                                   @RequestParam(required = false) String to,
+                                                                   @RequestParam(required = false) String cursor,
+                                                                   @RequestParam(required = false) Integer limit,
+                                                                   @RequestParam(required = false) String fields,
+                                                                   @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Map<String, Object> query = new LinkedHashMap<>();
+        query.put("type", type);
+        query.put("difficulty", difficulty);
+        query.put("search", search);
+        query.put("minDuration", minDuration);
+        query.put("maxDuration", maxDuration);
+        query.put("from", from);
+        query.put("to", to);
+        query.put("cursor", cursor);
+        query.put("limit", limit);
+        query.put("fields", fields);
+
+        return conditionalGet("list", "/api/trainings", Map.of(), query, authorization, ifNoneMatch);
     }
 
     @PostMapping("/trainings")
-    public ResponseEntity<?> createTrainingPlan(@RequestHeader(value = "Authorization", required = true) String authorization,
-                                               @RequestBody Object trainingPlan) {
-        return webClient.post()
+    public Mono<ResponseEntity<Flux<DataBuffer>>> createTrainingPlan(@RequestHeader(value = "Authorization", required = true) String authorization,
+                                                                     ServerHttpRequest request) {
+        return limited("create", HttpMethod.POST, authorization, withBody(webClient.post()
             .uri(backendUrl + "/api/trainings")
+            .header("Authorization", authorization), request));
+    }
+
+    // NDJSONエクスポートはボディをバッファせず、届いた分から順にクライアントへ書き出す
+    @GetMapping("/trainings/export")
+    public Mono<ResponseEntity<Flux<DataBuffer>>> exportTrainings(@RequestHeader(value = "Authorization", required = true) String authorization) {
+        return limited("export", HttpMethod.GET, authorization, webClient.get()
+            .uri(backendUrl + "/api/trainings/export")
+            .header("Authorization", authorization));
+    }
+
+    @GetMapping("/trainings/stats")
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getTrainingStats(@RequestHeader(value = "Authorization", required = true) String authorization,
+                                                                   @RequestParam(required = false) String from,
+                                                                   @RequestParam(required = false) String to,
+                                                                   @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Map<String, Object> query = new LinkedHashMap<>();
+        query.put("from", from);
+        query.put("to", to);
+
+        return conditionalGet("stats", "/api/trainings/stats", Map.of(), query, authorization, ifNoneMatch);
+    }
+
+    // SSE の変更通知。イベントが届くたびにフラッシュし、バッファせずに中継する
+    // 401/403/503 等はイベントストリームにせず、ステータス・ヘッダー・ボディをそのまま返す
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Mono<ResponseEntity<Flux<DataBuffer>>> streamChanges(@RequestHeader(value = "Authorization", required = true) String authorization,
+                                                                @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return rateLimiter.apply("changes", HttpMethod.GET, authorization, webClient.get()
+            .uri(backendUrl + "/api/changes")
             .header("Authorization", authorization)
-            .bodyValue(trainingPlan)
+            .headers(headers -> {
+                if (lastEventId != null) {
+                    headers.set("Last-Event-ID", lastEventId);
+                }
+            })
+            .accept(MediaType.TEXT_EVENT_STREAM)
+            .httpRequest(callPolicy.responseTimeout("changes"))
             .retrieve()
-            .toEntity(Object.class)
-            .block();
+            .onStatus(HttpStatusCode::isError, response -> Mono.empty())
+            .toEntityFlux(DataBuffer.class)
+            .flatMap(response -> {
+                if (!response.getStatusCode().is2xxSuccessful()) {
+                    return relay(response);
+                }
+                return Mono.just(ResponseEntity.status(response.getStatusCode())
+                    .contentType(MediaType.TEXT_EVENT_STREAM)
+                    .cacheControl(CacheControl.noCache())
+                    .header("X-Accel-Buffering", "no")
+                    .body(response.getBody()));
+            }));
     }
 
     @GetMapping("/trainings/{id}")
-    public ResponseEntity<?> getTrainingPlan(@RequestHeader(value = "Authorization", required = true) String authorization,
-                                            @PathVariable String id) {
-        return webClient.get()
-            .uri(backendUrl + "/api/trainings/" + id)
-            .header("Authorization", authorization)
-            .retrieve()
-            .toEntity(Object.class)
-            .block();
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getTrainingPlan(@RequestHeader(value = "Authorization", required = true) String authorization,
+                                                                  @PathVariable String id,
+                                                                  @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return conditionalGet("get", "/api/trainings/{id}", Map.of("id", id), Map.of(), authorization, ifNoneMatch);
     }
 
     @PutMapping("/trainings/{id}")
-    public ResponseEntity<?> updateTrainingPlan(@RequestHeader(value = "Authorization", required = true) String authorization,
-                                               @PathVariable String id,
-                                               @RequestBody Object trainingPlan) {
-        return webClient.put()
-            .uri(backendUrl + "/api/trainings/" + id)
-            .header("Authorization", authorization)
-            .bodyValue(trainingPlan)
-            .retrieve()
-            .toEntity(Object.class)
-            .block();
+    public Mono<ResponseEntity<Flux<DataBuffer>>> updateTrainingPlan(@RequestHeader(value = "Authorization", required = true) String authorization,
+                                                                     @PathVariable String id,
+                                                                     ServerHttpRequest request) {
+        return limited("update", HttpMethod.PUT, authorization, withBody(webClient.put()
+            .uri(backendUrl + "/api/trainings/{id}", id)
+            .header("Authorization", authorization), request));
+    }
+
+    // 409（競合時の現在の状態）もそのままクライアントへ返す
+    @PatchMapping("/trainings/{id}")
+    public Mono<ResponseEntity<Flux<DataBuffer>>> patchTraining(@RequestHeader(value = "Authorization", required = true) String authorization,
+                                                                @PathVariable String id,
+                                                                ServerHttpRequest request) {
+        return limited("patch", HttpMethod.PATCH, authorization, withBody(webClient.patch()
+            .uri(backendUrl + "/api/trainings/{id}", id)
+            .header("Authorization", authorization), request));
     }
 
     @DeleteMapping("/trainings/{id}")
-    public ResponseEntity<?> deleteTrainingPlan(@RequestHeader(value = "Authorization", required = true) String authorization,
-                                               @PathVariable String id) {
-        return webClient.delete()
-            .uri(backendUrl + "/api/trainings/" + id)
-            .header("Authorization", authorization)
-            .retrieve()
-            .toEntity(Object.class)
-            .block();
+    public Mono<ResponseEntity<Flux<DataBuffer>>> deleteTrainingPlan(@RequestHeader(value = "Authorization", required = true) String authorization,
+                                                                     @PathVariable String id) {
+        return limited("delete", HttpMethod.DELETE, authorization, webClient.delete()
+            .uri(backendUrl + "/api/trainings/{id}", id)
+            .header("Authorization", authorization));
+    }
+
+    @PostMapping("/trainings/bulk")
+    public Mono<ResponseEntity<Flux<DataBuffer>>> createTrainingPlans(@RequestHeader(value = "Authorization", required = true) String authorization,
+                                                                      ServerHttpRequest request) {
+        return limited("bulk-create", HttpMethod.POST, authorization, withBody(webClient.post()
+            .uri(backendUrl + "/api/trainings/bulk")
+            .header("Authorization", authorization), request));
+    }
+
+    @PutMapping("/trainings/bulk")
+    public Mono<ResponseEntity<Flux<DataBuffer>>> updateTrainingPlans(@RequestHeader(value = "Authorization", required = true) String authorization,
+                                                                      ServerHttpRequest request) {
+        return limited("bulk-update", HttpMethod.PUT, authorization, withBody(webClient.put()
+            .uri(backendUrl + "/api/trainings/bulk")
+            .header("Authorization", authorization), request));
+    }
+
+    @DeleteMapping("/trainings/bulk")
+    public Mono<ResponseEntity<Flux<DataBuffer>>> deleteTrainingPlans(@RequestHeader(value = "Authorization", required = true) String authorization,
+                                                                      @RequestParam List<Long> ids) {
+        String query = ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+        return limited("bulk-delete", HttpMethod.DELETE, authorization, webClient.delete()
+            .uri(backendUrl + "/api/trainings/bulk?ids={ids}", query)
+            .header("Authorization", authorization));
     }
 
     @GetMapping("/trainings/types")
-    public ResponseEntity<?> getTrainingTypes(@RequestHeader(value = "Authorization", required = true) String authorization) {
-        return webClient.get()
-            .uri(backendUrl + "/api/trainings/types")
-            .header("Authorization", authorization)
-            .retrieve()
-            .toEntity(Object.class)
-            .block();
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getTrainingTypes(@RequestHeader(value = "Authorization", required = true) String authorization,
+                                                                   @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return conditionalGet("types", "/api/trainings/types", Map.of(), Map.of(), authorization, ifNoneMatch);
     }
 
     @GetMapping("/trainings/difficulties")
-    public ResponseEntity<?> getTrainingDifficulties(@RequestHeader(value = "Authorization", required = true) String authorization) {
-        return webClient.get()
-            .uri(backendUrl + "/api/trainings/difficulties")
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getTrainingDifficulties(@RequestHeader(value = "Authorization", required = true) String authorization,
+                                                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return conditionalGet("difficulties", "/api/trainings/difficulties", Map.of(), Map.of(), authorization, ifNoneMatch);
+    }
+
+    // If-None-Match を転送し、ETag・Cache-Control と 304 をそのまま返す
+    // メトリクスの uri タグが ID やクエリ毎に分かれないよう、パスはテンプレートで渡しクエリは後から付ける
+    // Cache-Control で期限が示された応答はキャッシュから返し、同じ利用者（共有の経路は全員）の同じ GET が同時に来た場合はバックエンドへの呼び出しを1つにまとめる
+    private Mono<ResponseEntity<Flux<DataBuffer>>> conditionalGet(String route, String path, Map<String, ?> uriVariables,
+                                                                  Map<String, ?> query, String authorization, String ifNoneMatch) {
+        Function<UriBuilder, URI> uri = uriBuilder -> withQuery(uriBuilder, uriVariables, query);
+        Mono<ResponseEntity<Flux<DataBuffer>>> call = passthrough(route, HttpMethod.GET, webClient.get()
+            .uri(backendUrl + path, uri)
             .header("Authorization", authorization)
-            .retrieve()
-            .toEntity(Object.class)
-            .block();
+            .headers(headers -> {
+                if (ifNoneMatch != null) {
+                    headers.set(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+                }
+            }));
+        // キャッシュ・まとめるキーはエンコード済みのパスとクエリ（値に区切り文字が含まれても他のリクエストと重ならない）
+        String resource = uri.apply(RESOURCE_URIS.uriString(path)).toString();
+        Mono<ResponseEntity<Flux<DataBuffer>>> coalesced = Mono.defer(() -> {
+            // 検証できないトークンのリクエストは、他のリクエストの応答を受け取らないよう個別に呼び出す
+            String subject = subjectResolver.resolve(authorization);
+            if (subject == null) {
+                return call;
+            }
+            String key = sharedRoutes.contains(route) ? "" : subject;
+            return coalescer.coalesce(route, resource + '\n' + key + '\n' + ifNoneMatch, call);
+        });
+        return rateLimiter.apply(route, HttpMethod.GET, authorization,
+            responseCache.serve(route, resource, authorization, ifNoneMatch, coalesced));
+    }
+
+    // 値の無いパラメーターは付けない。値はテンプレートとして解釈されないよう変数で渡し、& # + = { } 等も含めてエンコードさせる
+    private static URI withQuery(UriBuilder uriBuilder, Map<String, ?> uriVariables, Map<String, ?> query) {
+        Map<String, Object> variables = new HashMap<>(uriVariables);
+        query.forEach((name, value) -> {
+            uriBuilder.queryParamIfPresent(name, Optional.ofNullable(value).map(present -> "{" + name + "}"));
+            if (value != null) {
+                variables.put(name, value);
+            }
+        });
+        return uriBuilder.build(variables);
+    }
+
+    // 利用者・全体の上限を超えたリクエストは、バックエンドを呼ばずに 429 を返す
+    private Mono<ResponseEntity<Flux<DataBuffer>>> limited(String route, HttpMethod method, String authorization,
+                                                           WebClient.RequestHeadersSpec<?> spec) {
+        return rateLimiter.apply(route, method, authorization, passthrough(route, method, spec));
+    }
+
+    // 受信したボディをデシリアライズせず、Content-Type・Content-Length・Content-Encoding とともにそのまま送る
+    private WebClient.RequestHeadersSpec<?> withBody(WebClient.RequestBodySpec spec, ServerHttpRequest request) {
+        return spec
+            .headers(headers -> copyHeaders(request.getHeaders(), headers, FORWARDED_REQUEST_HEADERS))
+            .body(BodyInserters.fromDataBuffers(request.getBody()));
+    }
+
+    // レスポンスのボディは届いた DataBuffer をそのまま書き出す
+    // 4xx/5xx（PATCH の 409・存在しない ID の 404 等）も例外にせず、ステータスとボディをそのまま返す
+    // 応答タイムアウト・リトライ・ヘッジは経路ごとに BackendCallPolicy が付ける
+    private Mono<ResponseEntity<Flux<DataBuffer>>> passthrough(String route, HttpMethod method, WebClient.RequestHeadersSpec<?> spec) {
+        return callPolicy.apply(route, method, spec.httpRequest(callPolicy.responseTimeout(route)).retrieve()
+            .onStatus(HttpStatusCode::isError, response -> Mono.empty())
+            .toEntityFlux(DataBuffer.class)
+            .flatMap(ProxyController::relay));
+    }
+
+    private static Mono<ResponseEntity<Flux<DataBuffer>>> relay(ResponseEntity<Flux<DataBuffer>> response) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(response.getStatusCode())
+            .headers(headers -> copyHeaders(response.getHeaders(), headers, FORWARDED_RESPONSE_HEADERS));
+        // Content-Type の無い応答（304・ボディ無しの 404 等）は、コンテントネゴシエーションで形式が付かないようボディ無しで返す
+        if (response.getHeaders().getContentType() == null) {
+            return response.getBody().doOnNext(DataBufferUtils::release).then(Mono.fromSupplier(builder::build));
+        }
+        return Mono.just(builder.body(response.getBody()));
+    }
+
+    private static void copyHeaders(HttpHeaders from, HttpHeaders to, List<String> names) {
+        for (String name : names) {
+            List<String> values = from.get(name);
+            if (values != null) {
+                to.put(name, values);
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,188 @@
+package com.example.apigateway.ratelimit;
+
+import com.example.apigateway.security.JwtSubjectResolver;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * 利用者ごとと API Gateway 全体のトークンバケットで受け付けるリクエストを制限し、
+ * 超えた分はバックエンドを呼ばずに 429 と Retry-After（秒）を返す。
+ *
+ * <p>利用者ごとの上限は rate-limit.subject を既定とし、rate-limit.methods.&lt;method&gt;、rate-limit.routes.&lt;route&gt; の順に
+ * 個別の値で上書きできる。上書きした経路・メソッドは既定とは別のバケットで数える。
+ * 利用者は JWT を検証した上で発行者と sub で区別する（トークンを作り直しても新しいバケットにはならない）。
+ * 検証できないトークンはどのバケットも使わずに 401 を返す。
+ * 断った件数は rate.limit.rejected（経路・メソッド・scope=subject|global 別）で確認できる。
+ */
+@Component
+public class RateLimiter {
+
+    private static final String ROUTES = "rate-limit.routes.";
+    private static final String METHODS = "rate-limit.methods.";
+
+    private static final byte[] REJECTED_BODY = "{\"error\":\"Too many requests\"}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] UNAUTHORIZED_BODY = "{\"error\":\"Invalid token\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final double subjectRate;
+    private final long subjectBurst;
+    private final TokenBucket global;
+    // 使われなくなった利用者のバケットは idle-timeout で捨てる（満杯に戻った後なら、捨てても結果は変わらない）
+    private final Cache<String, TokenBucket> subjects;
+    private final Map<String, Limit> limits = new ConcurrentHashMap<>();
+    private final LongSupplier clock;
+    private final Function<String, String> subjectOf;
+
+    @Autowired
+    public RateLimiter(@Value("${rate-limit.enabled}") boolean enabled,
+                       @Value("${rate-limit.subject.rate}") double subjectRate,
+                       @Value("${rate-limit.subject.burst}") long subjectBurst,
+                       @Value("${rate-limit.global.rate}") double globalRate,
+                       @Value("${rate-limit.global.burst}") long globalBurst,
+                       @Value("${rate-limit.global.stripes}") int globalStripes,
+                       @Value("${rate-limit.max-subjects}") long maxSubjects,
+                       @Value("${rate-limit.idle-timeout}") Duration idleTimeout,
+                       JwtSubjectResolver subjectResolver, Environment environment, MeterRegistry meterRegistry) {
+        this(enabled, subjectRate, subjectBurst, globalRate, globalBurst, globalStripes, maxSubjects, idleTimeout,
+            subjectResolver::resolve, environment, meterRegistry, System::nanoTime);
+    }
+
+    // subjectOf は Authorization から利用者のキー（検証できなければ null）を、clock はバケットの時刻（ナノ秒）を返す
+    RateLimiter(boolean enabled, double subjectRate, long subjectBurst, double globalRate, long globalBurst,
+                int globalStripes, long maxSubjects, Duration idleTimeout, Function<String, String> subjectOf,
+                Environment environment, MeterRegistry meterRegistry, LongSupplier clock) {
+        this.environment = environment;
+        this.subjectOf = subjectOf;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.subjectRate = subjectRate;
+        this.subjectBurst = subjectBurst;
+        this.clock = clock;
+        this.global = new TokenBucket(globalRate, globalBurst, globalStripes, clock);
+        this.subjects = Caffeine.newBuilder()
+            .maximumSize(maxSubjects)
+            .expireAfterAccess(idleTimeout)
+            .build();
+    }
+
+    /**
+     * 利用者と全体の上限の範囲内なら call を返し、超えていれば call を呼ばずに 429 を返す。
+     */
+    public Mono<ResponseEntity<Flux<DataBuffer>>> apply(String route, HttpMethod method, String authorization,
+                                                        Mono<ResponseEntity<Flux<DataBuffer>>> call) {
+        if (!enabled) {
+            return call;
+        }
+        return Mono.defer(() -> {
+            String subjectKey = subjectOf.apply(authorization);
+            if (subjectKey == null) {
+                return Mono.just(unauthorized());
+            }
+            Limit limit = limit(route, method);
+            TokenBucket subject = subjects.get(limit.bucket + '\n' + subjectKey,
+                key -> new TokenBucket(limit.rate, limit.burst, 1, clock));
+            long wait = subject.tryAcquire();
+            if (wait > 0) {
+                limit.subjectRejections.increment();
+                return Mono.just(rejected(wait));
+            }
+            // 全体の上限で断った場合は、利用者の分を使わなかったことにする
+            wait = global.tryAcquire();
+            if (wait > 0) {
+                subject.refund();
+                limit.globalRejections.increment();
+                return Mono.just(rejected(wait));
+            }
+            return call;
+        });
+    }
+
+    private static ResponseEntity<Flux<DataBuffer>> rejected(long waitNanos) {
+        long seconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+            .header(HttpHeaders.RETRY_AFTER, Long.toString(seconds))
+            .contentType(MediaType.APPLICATION_JSON)
+            .contentLength(REJECTED_BODY.length)
+            .body(Flux.defer(() -> Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(REJECTED_BODY))));
+    }
+
+    private static ResponseEntity<Flux<DataBuffer>> unauthorized() {
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+            .header(HttpHeaders.WWW_AUTHENTICATE, "Bearer error=\"invalid_token\"")
+            .contentType(MediaType.APPLICATION_JSON)
+            .contentLength(UNAUTHORIZED_BODY.length)
+            .body(Flux.defer(() -> Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(UNAUTHORIZED_BODY))));
+    }
+
+    private Limit limit(String route, HttpMethod method) {
+        return limits.computeIfAbsent(route + ' ' + method.name(), key -> {
+            String methodName = method.name().toLowerCase(Locale.ROOT);
+            String bucket = "default";
+            double rate = subjectRate;
+            long burst = subjectBurst;
+            if (environment.containsProperty(METHODS + methodName + ".rate")) {
+                bucket = method.name();
+                rate = environment.getProperty(METHODS + methodName + ".rate", Double.class);
+                burst = environment.getProperty(METHODS + methodName + ".burst", Long.class, (long) Math.ceil(rate));
+            }
+            if (environment.containsProperty(ROUTES + route + ".rate")) {
+                bucket = route;
+                rate = environment.getProperty(ROUTES + route + ".rate", Double.class);
+                burst = environment.getProperty(ROUTES + route + ".burst", Long.class, (long) Math.ceil(rate));
+            }
+            return new Limit(bucket, rate, burst,
+                rejections(route, method, "subject"), rejections(route, method, "global"));
+        });
+    }
+
+    private Counter rejections(String route, HttpMethod method, String scope) {
+        return Counter.builder("rate.limit.rejected")
+            .tag("route", route)
+            .tag("method", method.name())
+            .tag("scope", scope)
+            .register(meterRegistry);
+    }
+
+    private static final class Limit {
+
+        private final String bucket;
+        private final double rate;
+        private final long burst;
+        private final Counter subjectRejections;
+        private final Counter globalRejections;
+
+        private Limit(String bucket, double rate, long burst, Counter subjectRejections, Counter globalRejections) {
+            this.bucket = bucket;
+            this.rate = rate;
+            this.burst = burst;
+            this.subjectRejections = subjectRejections;
+            this.globalRejections = globalRejections;
+        }
+    }
+}
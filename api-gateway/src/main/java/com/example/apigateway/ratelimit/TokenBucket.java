@@ -0,0 +1,69 @@
+package com.example.apigateway.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * ロックを使わないトークンバケット。残量の代わりに「バケットが満杯に戻る時刻」を AtomicLong 1つで持ち、CAS で更新する（GCRA）。
+ *
+ * <p>多数のスレッドから使う全体の上限は、レートとバースト量を stripes 個に分け、スレッドごとに違うカウンターから取る。
+ * 自分のカウンターが空のときだけ他のカウンターを順に試すため、上限に近づくまでは競合しない。
+ */
+final class TokenBucket {
+
+    // 1トークンが貯まる時間と、満杯のバケットが空になるまでの時間（バースト量ぶん）
+    private final long intervalNanos;
+    private final long capacityNanos;
+    private final AtomicLong[] stripes;
+    // 現在時刻（ナノ秒、System.nanoTime と同じく差だけに意味がある）
+    private final LongSupplier clock;
+
+    TokenBucket(double ratePerSecond, long burst, int stripes, LongSupplier clock) {
+        int count = (int) Math.max(1, Math.min(stripes, burst));
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L * count / ratePerSecond));
+        this.capacityNanos = intervalNanos * Math.max(1, burst / count);
+        this.stripes = new AtomicLong[count];
+        this.clock = clock;
+        long now = clock.getAsLong();
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new AtomicLong(now);
+        }
+    }
+
+    /**
+     * 1トークン取る。取れれば 0、取れなければ次に取れるまでの時間（ナノ秒）を返す。
+     */
+    long tryAcquire() {
+        long now = clock.getAsLong();
+        int start = stripes.length == 1 ? 0 : (int) (Thread.currentThread().getId() % stripes.length);
+        long wait = Long.MAX_VALUE;
+        for (int i = 0; i < stripes.length; i++) {
+            long stripeWait = tryAcquire(stripes[(start + i) % stripes.length], now);
+            if (stripeWait == 0) {
+                return 0;
+            }
+            wait = Math.min(wait, stripeWait);
+        }
+        return wait;
+    }
+
+    // 他の上限で断ったリクエストの分を戻す（戻した分が満杯を超えることはない）
+    void refund() {
+        int index = stripes.length == 1 ? 0 : (int) (Thread.currentThread().getId() % stripes.length);
+        stripes[index].addAndGet(-intervalNanos);
+    }
+
+    private long tryAcquire(AtomicLong fullAt, long now) {
+        while (true) {
+            long current = fullAt.get();
+            long next = (current - now < 0 ? now : current) + intervalNanos;
+            long over = next - now - capacityNanos;
+            if (over > 0) {
+                return over;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.apigateway.security;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * Authorization ヘッダーの Bearer トークンを JWKS の鍵で検証し、利用者を表すキー（発行者と sub）を返す。
+ * トークンを更新しても同じ利用者は同じキーになり、偽造・期限切れ・形式の不正なトークンはキーを持たない。
+ * 検証済みのトークンは有効期限までキャッシュし、同じトークンの再検証（RSA 検証）を省く。
+ */
+@Component
+public class JwtSubjectResolver {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final JWTVerifier verifier;
+    private final Cache<String, VerifiedToken> verifiedTokens;
+
+    public JwtSubjectResolver(@Value("${security.jwt.issuer}") String issuer,
+                              @Value("${security.jwt.leeway-seconds}") long leewaySeconds,
+                              @Value("${security.jwt.cache-max-size}") long cacheMaxSize,
+                              JwksKeyProvider keyProvider) {
+        this.verifier = JWT.require(Algorithm.RSA256(keyProvider))
+            .withIssuer(issuer)
+            .acceptLeeway(leewaySeconds)
+            .build();
+        this.verifiedTokens = Caffeine.newBuilder()
+            .maximumSize(cacheMaxSize)
+            .expireAfter(new Expiry<String, VerifiedToken>() {
+                @Override
+                public long expireAfterCreate(String token, VerifiedToken verified, long currentTime) {
+                    long remainingMillis = verified.expiresAt.toEpochMilli() - System.currentTimeMillis();
+                    return Math.max(0, remainingMillis) * 1_000_000;
+                }
+
+                @Override
+                public long expireAfterUpdate(String token, VerifiedToken verified, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+
+                @Override
+                public long expireAfterRead(String token, VerifiedToken verified, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .build();
+    }
+
+    /**
+     * 検証できれば「発行者 + 改行 + sub」、Bearer トークンが無い・検証できなければ null を返す。
+     */
+    public String resolve(String authorization) {
+        if (authorization == null || !authorization.startsWith(BEARER_PREFIX)) {
+            return null;
+        }
+        String token = authorization.substring(BEARER_PREFIX.length());
+        VerifiedToken cached = verifiedTokens.getIfPresent(token);
+        if (cached != null) {
+            return cached.subject;
+        }
+        DecodedJWT decoded;
+        try {
+            decoded = verifier.verify(token);
+        } catch (JWTVerificationException e) {
+            return null;
+        }
+        if (decoded.getSubject() == null || decoded.getExpiresAtAsInstant() == null) {
+            return null;
+        }
+        VerifiedToken verified = new VerifiedToken(decoded.getIssuer() + '\n' + decoded.getSubject(), decoded.getExpiresAtAsInstant());
+        verifiedTokens.put(token, verified);
+        return verified.subject;
+    }
+
+    private static final class VerifiedToken {
+
+        private final String subject;
+        private final Instant expiresAt;
+
+        private VerifiedToken(String subject, Instant expiresAt) {
+            this.subject = subject;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
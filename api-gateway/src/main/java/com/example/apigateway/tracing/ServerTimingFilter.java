@@ -0,0 +1,38 @@
+package com.example.apigateway.tracing;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * レスポンスに Server-Timing ヘッダーを付ける（gateway: バックエンド呼び出しを含むこのサービスでの処理時間）。
+ * バックエンドの Server-Timing は ProxyController がそのまま転送するため、ブラウザには各段の内訳が届く。
+ * ヘッダーはレスポンスのコミット直前（ボディの書き込み開始時）に付けるため、ストリーミングでは最初のバイトまでの時間になる。
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+public class ServerTimingFilter implements WebFilter {
+
+    public static final String SERVER_TIMING = "Server-Timing";
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        long start = System.nanoTime();
+        exchange.getResponse().beforeCommit(() -> {
+            exchange.getResponse().getHeaders().add(SERVER_TIMING, entry("gateway", System.nanoTime() - start));
+            return Mono.empty();
+        });
+        return chain.filter(exchange);
+    }
+
+    private static String entry(String name, long nanos) {
+        return String.format(Locale.ROOT, "%s;dur=%.1f", name, nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
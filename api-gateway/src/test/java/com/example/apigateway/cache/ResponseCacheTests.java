@@ -0,0 +1,149 @@
+package com.example.apigateway.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCacheTests {
+
+    private static final String USER_A = "Bearer a";
+    private static final String USER_B = "Bearer b";
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ResponseCache cache = new ResponseCache(true, DataSize.ofKilobytes(1), DataSize.ofBytes(600),
+        meterRegistry, nanos::get, Runnable::run);
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    void doesNotStoreNoStoreResponses() {
+        Mono<ResponseEntity<Flux<DataBuffer>>> call = backend("no-store, max-age=60", "types");
+
+        assertThat(body(cache.serve("types", "/types", USER_A, null, call))).isEqualTo("types");
+        assertThat(body(cache.serve("types", "/types", USER_A, null, call))).isEqualTo("types");
+
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void sharesPublicResponsesAcrossUsers() {
+        Mono<ResponseEntity<Flux<DataBuffer>>> call = backend("public, max-age=60", "types");
+
+        body(cache.serve("types", "/types", USER_A, null, call));
+        ResponseEntity<Flux<DataBuffer>> hit = cache.serve("types", "/types", USER_B, null, call).block();
+
+        assertThat(calls).hasValue(1);
+        assertThat(hit.getHeaders().getFirst(HttpHeaders.AGE)).isEqualTo("0");
+        assertThat(body(Mono.just(hit))).isEqualTo("types");
+    }
+
+    @Test
+    void keepsPrivateResponsesPerUser() {
+        Mono<ResponseEntity<Flux<DataBuffer>>> call = backend("private, max-age=60", "mine");
+
+        body(cache.serve("get", "/trainings/1", USER_A, null, call));
+        body(cache.serve("get", "/trainings/1", USER_A, null, call));
+        assertThat(calls).hasValue(1);
+
+        body(cache.serve("get", "/trainings/1", USER_B, null, call));
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void doesNotShareResponsesWithoutPublicOrSharedMaxAge() {
+        Mono<ResponseEntity<Flux<DataBuffer>>> call = backend("max-age=60", "mine");
+
+        body(cache.serve("get", "/trainings/1", USER_A, null, call));
+        body(cache.serve("get", "/trainings/1", USER_B, null, call));
+
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void expiresAfterMaxAge() {
+        Mono<ResponseEntity<Flux<DataBuffer>>> call = backend("public, max-age=10", "types");
+
+        body(cache.serve("types", "/types", USER_A, null, call));
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(9));
+        ResponseEntity<Flux<DataBuffer>> hit = cache.serve("types", "/types", USER_A, null, call).block();
+        assertThat(calls).hasValue(1);
+        assertThat(hit.getHeaders().getFirst(HttpHeaders.AGE)).isEqualTo("9");
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        body(cache.serve("types", "/types", USER_A, null, call));
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void returnsNotModifiedForMatchingEtag() {
+        Mono<ResponseEntity<Flux<DataBuffer>>> call = backend("public, max-age=60", "types");
+
+        body(cache.serve("types", "/types", USER_A, null, call));
+        ResponseEntity<Flux<DataBuffer>> hit = cache.serve("types", "/types", USER_A, "W/\"1\"", call).block();
+
+        assertThat(hit.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(hit.getHeaders().getETag()).isEqualTo("\"1\"");
+    }
+
+    @Test
+    void evictsByBodyBytes() {
+        // 400 バイトのボディ3件は 1KB に収まらない
+        String large = "x".repeat(400);
+        for (int i = 0; i < 3; i++) {
+            body(cache.serve("get", "/trainings/" + i, USER_A, null, backend("max-age=60", large)));
+        }
+
+        assertThat(meterRegistry.get("cache.size").tag("cache", "gatewayResponses").gauge().value()).isEqualTo(2);
+        assertThat(meterRegistry.get("cache.evictions").tag("cache", "gatewayResponses").functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void doesNotStoreBodiesLargerThanMaxEntrySize() {
+        Mono<ResponseEntity<Flux<DataBuffer>>> call = backend("public, max-age=60", "x".repeat(700));
+
+        body(cache.serve("types", "/types", USER_A, null, call));
+        body(cache.serve("types", "/types", USER_A, null, call));
+
+        assertThat(calls).hasValue(2);
+    }
+
+    // 呼び出し回数を数え、指定した Cache-Control と ETag "1" を付けて応答するバックエンド
+    private Mono<ResponseEntity<Flux<DataBuffer>>> backend(String cacheControl, String body) {
+        return Mono.fromSupplier(() -> {
+            calls.incrementAndGet();
+            return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.CACHE_CONTROL, cacheControl)
+                .eTag("\"1\"")
+                .body(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(body.getBytes(StandardCharsets.UTF_8))));
+        });
+    }
+
+    // ボディを最後まで読む（キャッシュへの保存は読み終えた時に行われる）
+    private static String body(Mono<ResponseEntity<Flux<DataBuffer>>> response) {
+        return response.flatMap(entity -> DataBufferUtils.join(entity.getBody()))
+            .map(joined -> {
+                String value = joined.toString(StandardCharsets.UTF_8);
+                DataBufferUtils.release(joined);
+                return value;
+            })
+            .block();
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.apigateway.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClientRequest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BackendCallPolicyTests {
+
+    private static final int HEDGE_WINDOW = 10;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final MockEnvironment environment = environment();
+
+    private final BackendCallPolicy policy = policy();
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    void retriesIdempotentCallsThatFailBeforeAResponse() {
+        Mono<String> call = failingTimes(2, "ok");
+
+        assertThat(policy.apply("list", HttpMethod.GET, call).block()).isEqualTo("ok");
+        assertThat(calls).hasValue(3);
+        assertThat(meterRegistry.get("backend.client.retries").tag("route", "list").counter().count()).isEqualTo(2);
+
+        calls.set(0);
+        assertThat(policy.apply("delete", HttpMethod.DELETE, failingTimes(1, "deleted")).block()).isEqualTo("deleted");
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void givesUpWithTheOriginalFailureAfterMaxRetries() {
+        assertThatThrownBy(() -> policy.apply("list", HttpMethod.GET, failingTimes(10, "ok")).block())
+            .isInstanceOf(WebClientRequestException.class);
+        assertThat(calls).hasValue(3);
+    }
+
+    @Test
+    void doesNotRetryCallsWhoseBodyCannotBeResent() {
+        for (HttpMethod method : new HttpMethod[] {HttpMethod.POST, HttpMethod.PUT, HttpMethod.PATCH}) {
+            calls.set(0);
+            assertThatThrownBy(() -> policy.apply("create", method, failingTimes(1, "ok")).block())
+                .isInstanceOf(WebClientRequestException.class);
+            assertThat(calls).hasValue(1);
+        }
+    }
+
+    @Test
+    void doesNotRetryOtherFailures() {
+        Mono<String> call = Mono.defer(() -> {
+            calls.incrementAndGet();
+            return Mono.error(new IllegalStateException("bad response"));
+        });
+
+        assertThatThrownBy(() -> policy.apply("list", HttpMethod.GET, call).block()).isInstanceOf(IllegalStateException.class);
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void hedgesGetsSlowerThanTheRoutesP95() {
+        warmUp("get");
+
+        // 1回目は応答が来ず、p95（min-delay 20ms）を過ぎて送った2回目の応答を使う
+        Mono<String> call = Mono.defer(() -> calls.incrementAndGet() == 1
+            ? Mono.delay(Duration.ofSeconds(5)).thenReturn("first")
+            : Mono.just("second"));
+
+        assertThat(policy.apply("get", HttpMethod.GET, call).block(Duration.ofSeconds(2))).isEqualTo("second");
+        assertThat(calls).hasValue(2);
+        assertThat(meterRegistry.get("backend.client.hedges").tag("route", "get").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void doesNotHedgeBeforeEnoughSamplesOrOnDisabledRoutes() {
+        Mono<String> slow = Mono.defer(() -> {
+            calls.incrementAndGet();
+            return Mono.delay(Duration.ofMillis(100)).thenReturn("slow");
+        });
+
+        assertThat(policy.apply("get", HttpMethod.GET, slow).block()).isEqualTo("slow");
+        assertThat(calls).hasValue(1);
+
+        warmUp("export");
+        calls.set(0);
+        assertThat(policy.apply("export", HttpMethod.GET, slow).block()).isEqualTo("slow");
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void appliesPerRouteResponseTimeouts() {
+        assertThat(appliedTimeout("export")).isEqualTo(Duration.ofSeconds(60));
+        assertThat(appliedTimeout("list")).isEqualTo(Duration.ofSeconds(10));
+    }
+
+    private Duration appliedTimeout(String route) {
+        HttpClientRequest nativeRequest = mock(HttpClientRequest.class);
+        ClientHttpRequest request = mock(ClientHttpRequest.class);
+        when(request.getNativeRequest()).thenReturn(nativeRequest);
+        policy.responseTimeout(route).accept(request);
+        ArgumentCaptor<Duration> timeout = ArgumentCaptor.forClass(Duration.class);
+        verify(nativeRequest).responseTimeout(timeout.capture());
+        return timeout.getValue();
+    }
+
+    private void warmUp(String route) {
+        for (int i = 0; i < HEDGE_WINDOW; i++) {
+            policy.apply(route, HttpMethod.GET, Mono.just("fast")).block();
+        }
+    }
+
+    private Mono<String> failingTimes(int failures, String result) {
+        return Mono.defer(() -> calls.incrementAndGet() <= failures
+            ? Mono.error(new WebClientRequestException(new IOException("connection refused"), HttpMethod.GET,
+                URI.create("http://backend/api/trainings"), new HttpHeaders()))
+            : Mono.just(result));
+    }
+
+    // アプリケーションと同じく 60s 等の文字列を Duration に変換できるようにする
+    private static MockEnvironment environment() {
+        MockEnvironment environment = new MockEnvironment()
+            .withProperty("backend.client.routes.export.response-timeout", "60s")
+            .withProperty("backend.client.routes.export.hedge", "false");
+        environment.setConversionService(new ApplicationConversionService());
+        return environment;
+    }
+
+    private BackendCallPolicy policy() {
+        BackendCallPolicy policy = new BackendCallPolicy();
+        ReflectionTestUtils.setField(policy, "environment", environment);
+        ReflectionTestUtils.setField(policy, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(policy, "responseTimeout", Duration.ofSeconds(10));
+        ReflectionTestUtils.setField(policy, "maxRetries", 2);
+        ReflectionTestUtils.setField(policy, "minBackoff", Duration.ofMillis(1));
+        ReflectionTestUtils.setField(policy, "maxBackoff", Duration.ofMillis(5));
+        ReflectionTestUtils.setField(policy, "jitter", 0.5);
+        ReflectionTestUtils.setField(policy, "hedgeEnabled", true);
+        ReflectionTestUtils.setField(policy, "minHedgeDelay", Duration.ofMillis(20));
+        ReflectionTestUtils.setField(policy, "hedgeWindow", HEDGE_WINDOW);
+        ReflectionTestUtils.setField(policy, "hedgeMinSamples", HEDGE_WINDOW);
+        return policy;
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.apigateway.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestCoalescerTests {
+
+    private static final DataSize MAX_BODY_SIZE = DataSize.ofBytes(64);
+
+    private final RequestCoalescer coalescer = new RequestCoalescer(true, MAX_BODY_SIZE, new SimpleMeterRegistry());
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    void concurrentIdenticalGetsShareOneBackendCall() {
+        Mono<ResponseEntity<Flux<DataBuffer>>> call = backend("{\"items\":[]}", true);
+
+        List<String> bodies = Flux.merge(requests(call, 8)).flatMap(RequestCoalescerTests::bodyOf).collectList().block();
+
+        assertThat(calls).hasValue(1);
+        assertThat(bodies).hasSize(8).containsOnly("{\"items\":[]}");
+    }
+
+    @Test
+    void singleRequestIsStreamedWithoutBuffering() {
+        Flux<DataBuffer> body = Flux.just(buffer("{\"items\":[]}"));
+        Mono<ResponseEntity<Flux<DataBuffer>>> call = Mono.fromSupplier(() -> {
+            calls.incrementAndGet();
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+        });
+
+        ResponseEntity<Flux<DataBuffer>> response = coalescer.coalesce("list", "key", call).block();
+
+        assertThat(calls).hasValue(1);
+        assertThat(response.getBody()).isSameAs(body);
+    }
+
+    @Test
+    void overLimitBodyIsNotFetchedAgain() {
+        String large = "x".repeat((int) MAX_BODY_SIZE.toBytes() * 2);
+
+        String body = coalescer.coalesce("list", "key", backend(large, true)).flatMap(RequestCoalescerTests::bodyOf).block();
+
+        assertThat(calls).hasValue(1);
+        assertThat(body).isEqualTo(large);
+    }
+
+    @Test
+    void leaderStreamsBodyOfUnknownLengthWhileFollowersWait() {
+        Mono<ResponseEntity<Flux<DataBuffer>>> call = backend("{\"items\":[]}", false);
+
+        List<String> bodies = Flux.merge(requests(call, 3)).flatMap(RequestCoalescerTests::bodyOf).collectList().block();
+
+        // 長さの分からない応答は読み込まず、待っていたリクエストはそれぞれ呼び出す（最初のリクエストは呼び出し直さない）
+        assertThat(calls).hasValue(3);
+        assertThat(bodies).containsOnly("{\"items\":[]}");
+    }
+
+    @Test
+    void laterRequestsStartANewCall() {
+        Mono<ResponseEntity<Flux<DataBuffer>>> call = backend("{}", true);
+
+        coalescer.coalesce("list", "key", call).flatMap(RequestCoalescerTests::bodyOf).block();
+        coalescer.coalesce("list", "key", call).flatMap(RequestCoalescerTests::bodyOf).block();
+
+        assertThat(calls).hasValue(2);
+    }
+
+    private List<Mono<ResponseEntity<Flux<DataBuffer>>>> requests(Mono<ResponseEntity<Flux<DataBuffer>>> call, int count) {
+        List<Mono<ResponseEntity<Flux<DataBuffer>>>> requests = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            requests.add(coalescer.coalesce("list", "key", call));
+        }
+        return requests;
+    }
+
+    // 呼び出し回数を数え、少し遅れて応答するバックエンド
+    private Mono<ResponseEntity<Flux<DataBuffer>>> backend(String body, boolean withContentLength) {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        return Mono.defer(() -> {
+            calls.incrementAndGet();
+            ResponseEntity.BodyBuilder builder = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+            if (withContentLength) {
+                builder.contentLength(bytes.length);
+            }
+            return Mono.delay(Duration.ofMillis(100))
+                .thenReturn(builder.body(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(bytes))));
+        });
+    }
+
+    private static DataBuffer buffer(String value) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Mono<String> bodyOf(ResponseEntity<Flux<DataBuffer>> response) {
+        return DataBufferUtils.join(response.getBody())
+            .map(joined -> {
+                String value = joined.toString(StandardCharsets.UTF_8);
+                DataBufferUtils.release(joined);
+                return value;
+            });
+    }
+}
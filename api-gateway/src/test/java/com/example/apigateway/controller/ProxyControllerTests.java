@@ -0,0 +1,362 @@
+package com.example.apigateway.controller;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.reactivestreams.Publisher;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureObservability
+class ProxyControllerTests {
+
+    private static final String BODY = "{\"items\":[]}";
+
+    // 受け取ったリクエストの URI（パスとエンコード済みのクエリ）を記録するバックエンド
+    // 同時に来たリクエストがまとめられるよう、少し待ってから Content-Length 付きで応答する
+    // /api/changes はテストごとに決めたステータスで応答する
+    private static final List<String> received = new CopyOnWriteArrayList<>();
+    private static final AtomicReference<HttpResponseStatus> changesStatus = new AtomicReference<>(HttpResponseStatus.OK);
+    private static final List<String> receivedTraceparents = new CopyOnWriteArrayList<>();
+
+    private static final DisposableServer backend = HttpServer.create()
+        .port(0)
+        .handle((request, response) -> {
+            received.add(request.uri());
+            receivedTraceparents.add(String.valueOf(request.requestHeaders().get("traceparent")));
+            if (request.uri().equals("/api/changes")) {
+                return changes(response);
+            }
+            if (request.uri().startsWith("/api/trainings/status-")) {
+                return status(request, response);
+            }
+            return Mono.delay(Duration.ofMillis(200))
+                .then(response.header(HttpHeaders.CONTENT_TYPE, "application/json")
+                    .header("Server-Timing", "backend;dur=1.0, db;dur=0.5")
+                    .header(HttpHeaders.CONTENT_LENGTH, String.valueOf(BODY.length()))
+                    .sendString(Mono.just(BODY))
+                    .then());
+        })
+        .bindNow();
+
+    private static final String ISSUER = "http://localhost/realms/test";
+    private static final KeyPair KEY_PAIR = generateKeyPair();
+
+    @DynamicPropertySource
+    static void backendAndJwks(DynamicPropertyRegistry registry) throws IOException {
+        registry.add("backend.url", () -> "http://localhost:" + backend.port());
+
+        RSAPublicKey publicKey = (RSAPublicKey) KEY_PAIR.getPublic();
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String jwks = "{\"keys\":[{\"kty\":\"RSA\",\"use\":\"sig\",\"kid\":\"test-key\",\"alg\":\"RS256\","
+            + "\"n\":\"" + encoder.encodeToString(publicKey.getModulus().toByteArray()) + "\","
+            + "\"e\":\"" + encoder.encodeToString(publicKey.getPublicExponent().toByteArray()) + "\"}]}";
+        Path file = Files.createTempFile("jwks", ".json");
+        Files.writeString(file, jwks);
+        file.toFile().deleteOnExit();
+        registry.add("security.jwt.jwks-uri", () -> file.toUri().toString());
+        registry.add("security.jwt.issuer", () -> ISSUER);
+    }
+
+    private static Publisher<Void> changes(HttpServerResponse response) {
+        HttpResponseStatus status = changesStatus.get();
+        if (status.code() == 200) {
+            return response.header(HttpHeaders.CONTENT_TYPE, "text/event-stream")
+                .sendString(Mono.just("id: 1\ndata: {}\n\n"));
+        }
+        if (status.code() == 401) {
+            response.header(HttpHeaders.WWW_AUTHENTICATE, "Bearer error=\"invalid_token\"");
+        }
+        return response.status(status)
+            .header(HttpHeaders.CONTENT_TYPE, "application/json")
+            .sendString(Mono.just("{\"error\":\"" + status.reasonPhrase() + "\"}"));
+    }
+
+    // /api/trainings/status-{code}: 409 は受け取ったボディと Content-Type をそのまま返し、304・404 はボディ無しで応答する
+    private static Publisher<Void> status(HttpServerRequest request, HttpServerResponse response) {
+        int code = Integer.parseInt(request.uri().substring("/api/trainings/status-".length()));
+        response.status(code).header(HttpHeaders.ETAG, "\"v1\"");
+        if (code != 409) {
+            return response.send();
+        }
+        return request.receive().aggregate().asByteArray()
+            .flatMap(body -> response
+                .header(HttpHeaders.CONTENT_TYPE, request.requestHeaders().get(HttpHeaders.CONTENT_TYPE))
+                .header(HttpHeaders.CONTENT_LENGTH, String.valueOf(body.length))
+                .header("X-Backend-Only", "1")
+                .sendByteArray(Mono.just(body))
+                .then());
+    }
+
+    @AfterAll
+    static void stopBackend() {
+        backend.disposeNow();
+    }
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    void clear() {
+        received.clear();
+        receivedTraceparents.clear();
+        changesStatus.set(HttpResponseStatus.OK);
+    }
+
+    @Test
+    void encodesReservedCharactersInListQuery() {
+        webTestClient.get()
+            .uri(uriBuilder -> uriBuilder.path("/api/trainings")
+                .queryParam("search", "{a}")
+                .queryParam("type", "{type}")
+                .queryParam("cursor", "{cursor}")
+                .queryParam("fields", "{fields}")
+                .build("a&b=c#d+e {x}", "Cardio", "abc+/=", "id,title"))
+            .header(HttpHeaders.AUTHORIZATION, bearer("user-1"))
+            .exchange()
+            .expectStatus().isOk();
+
+        assertThat(received).containsExactly(
+            "/api/trainings?type=Cardio&search=a%26b%3Dc%23d%2Be%20%7Bx%7D&cursor=abc%2B%2F%3D&fields=id%2Ctitle");
+    }
+
+    @Test
+    void encodesStatsRange() {
+        webTestClient.get()
+            .uri(uriBuilder -> uriBuilder.path("/api/trainings/stats")
+                .queryParam("from", "{from}")
+                .queryParam("to", "{to}")
+                .build("2024-01-01&to=x", "{2024}"))
+            .header(HttpHeaders.AUTHORIZATION, bearer("user-1"))
+            .exchange()
+            .expectStatus().isOk();
+
+        assertThat(received).containsExactly("/api/trainings/stats?from=2024-01-01%26to%3Dx&to=%7B2024%7D");
+    }
+
+    @Test
+    void omitsAbsentParameters() {
+        webTestClient.get()
+            .uri("/api/trainings")
+            .header(HttpHeaders.AUTHORIZATION, bearer("user-1"))
+            .exchange()
+            .expectStatus().isOk();
+
+        assertThat(received).containsExactly("/api/trainings");
+    }
+
+    @Test
+    void coalescesSharedRoutesAcrossUsers() {
+        getConcurrently("/api/trainings/types", bearer("user-1"), bearer("user-2"));
+
+        assertThat(received).containsExactly("/api/trainings/types");
+    }
+
+    @Test
+    void coalescesPerUserRoutesOnlyForTheSameSubject() {
+        // 同じ利用者の別のトークンはまとめ、別の利用者は個別に呼び出す
+        getConcurrently("/api/trainings", bearer("user-1"), bearer("user-1"));
+        assertThat(received).containsExactly("/api/trainings");
+
+        received.clear();
+        getConcurrently("/api/trainings", bearer("user-1"), bearer("user-2"));
+        assertThat(received).containsExactly("/api/trainings", "/api/trainings");
+    }
+
+    @Test
+    void streamsChangesAsEventStream() {
+        webTestClient.get()
+            .uri("/api/changes")
+            .header(HttpHeaders.AUTHORIZATION, bearer("user-1"))
+            .accept(MediaType.TEXT_EVENT_STREAM)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM)
+            .expectHeader().cacheControl(CacheControl.noCache())
+            .expectBody(String.class).isEqualTo("id: 1\ndata: {}\n\n");
+    }
+
+    @Test
+    void passesChangesErrorsThroughWithTheirStatus() {
+        changesStatus.set(HttpResponseStatus.UNAUTHORIZED);
+        webTestClient.get()
+            .uri("/api/changes")
+            .header(HttpHeaders.AUTHORIZATION, bearer("user-1"))
+            .accept(MediaType.TEXT_EVENT_STREAM)
+            .exchange()
+            .expectStatus().isUnauthorized()
+            .expectHeader().valueEquals(HttpHeaders.WWW_AUTHENTICATE, "Bearer error=\"invalid_token\"")
+            .expectHeader().contentType(MediaType.APPLICATION_JSON)
+            .expectHeader().doesNotExist(HttpHeaders.CACHE_CONTROL)
+            .expectBody(String.class).isEqualTo("{\"error\":\"Unauthorized\"}");
+
+        changesStatus.set(HttpResponseStatus.SERVICE_UNAVAILABLE);
+        webTestClient.get()
+            .uri("/api/changes")
+            .header(HttpHeaders.AUTHORIZATION, bearer("user-1"))
+            .accept(MediaType.TEXT_EVENT_STREAM)
+            .exchange()
+            .expectStatus().isEqualTo(503)
+            .expectBody(String.class).isEqualTo("{\"error\":\"Service Unavailable\"}");
+    }
+
+    @Test
+    void publishesLatencyHistogramsPerRouteForPrometheus() {
+        webTestClient.get()
+            .uri("/api/trainings/42")
+            .header(HttpHeaders.AUTHORIZATION, bearer("user-1"))
+            .exchange()
+            .expectStatus().isOk();
+
+        String scrape = webTestClient.get()
+            .uri("/actuator/prometheus")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(String.class).returnResult().getResponseBody();
+
+        // ID を含まないルート単位で、受信・バックエンド呼び出しの両方にバケットが出る
+        assertThat(scrape.lines()).anyMatch(line -> line.startsWith("http_server_requests_seconds_bucket{")
+            && line.contains("application=\"training-api-gateway\"") && line.contains("uri=\"/api/trainings/{id}\""));
+        assertThat(scrape.lines()).anyMatch(line -> line.startsWith("http_client_requests_seconds_bucket{")
+            && line.contains("application=\"training-api-gateway\"") && line.contains("uri=\"/api/trainings/{id}\""));
+        assertThat(scrape).doesNotContain("/api/trainings/42");
+        assertThat(scrape).contains("reactor_netty_connection_provider_");
+    }
+
+    @Test
+    void continuesTheCallersTraceAndAddsItsOwnServerTiming() {
+        String traceId = "4bf92f3577b34da6a3ce929d0e0e4736";
+        String parentSpanId = "00f067aa0ba902b7";
+        List<String> serverTiming = webTestClient.get()
+            .uri("/api/trainings/7")
+            .header(HttpHeaders.AUTHORIZATION, bearer("user-1"))
+            .header("traceparent", "00-" + traceId + "-" + parentSpanId + "-01")
+            .exchange()
+            .expectStatus().isOk()
+            .returnResult(String.class).getResponseHeaders().get("Server-Timing");
+
+        // バックエンドへは同じトレースの、ゲートウェイのスパンを親として渡す
+        assertThat(receivedTraceparents).singleElement().satisfies(traceparent -> {
+            assertThat(traceparent).matches("00-" + traceId + "-[0-9a-f]{16}-01");
+            assertThat(traceparent).doesNotContain(parentSpanId);
+        });
+        assertThat(serverTiming).contains("backend;dur=1.0, db;dur=0.5");
+        assertThat(serverTiming).anyMatch(value -> value.matches("gateway;dur=\\d+\\.\\d"));
+    }
+
+    @Test
+    void tracesEndpointIsNotExposed() {
+        webTestClient.get()
+            .uri("/actuator/traces")
+            .exchange()
+            .expectStatus().isNotFound();
+    }
+
+    @Test
+    void passesBodiesAndErrorStatusesThroughByteForByte() {
+        // JSON として解釈し直すと変わってしまう、空白・重複キー・UTF-8 以外のバイトを含むボディ
+        byte[] body = {'{', ' ', '"', 'a', '"', ':', '1', ',', '"', 'a', '"', ':', '2', ' ', '}', (byte) 0xff, '\n'};
+        byte[] relayed = webTestClient.patch()
+            .uri("/api/trainings/status-409")
+            .header(HttpHeaders.AUTHORIZATION, bearer("user-1"))
+            .contentType(MediaType.parseMediaType("application/merge-patch+json;charset=ISO-8859-1"))
+            .bodyValue(body)
+            .exchange()
+            .expectStatus().isEqualTo(409)
+            .expectHeader().contentType("application/merge-patch+json;charset=ISO-8859-1")
+            .expectHeader().contentLength(body.length)
+            .expectHeader().valueEquals(HttpHeaders.ETAG, "\"v1\"")
+            .expectHeader().doesNotExist("X-Backend-Only")
+            .expectBody(byte[].class).returnResult().getResponseBody();
+
+        assertThat(relayed).containsExactly(body);
+    }
+
+    @Test
+    void relaysBodilessResponsesWithoutAContentType() {
+        webTestClient.get()
+            .uri("/api/trainings/status-404")
+            .header(HttpHeaders.AUTHORIZATION, bearer("user-1"))
+            .exchange()
+            .expectStatus().isNotFound()
+            .expectHeader().doesNotExist(HttpHeaders.CONTENT_TYPE)
+            .expectBody().isEmpty();
+
+        webTestClient.get()
+            .uri("/api/trainings/status-304")
+            .header(HttpHeaders.AUTHORIZATION, bearer("user-1"))
+            .header(HttpHeaders.IF_NONE_MATCH, "\"v1\"")
+            .exchange()
+            .expectStatus().isNotModified()
+            .expectHeader().valueEquals(HttpHeaders.ETAG, "\"v1\"")
+            .expectHeader().doesNotExist(HttpHeaders.CONTENT_TYPE)
+            .expectBody().isEmpty();
+    }
+
+    private void getConcurrently(String path, String... authorizations) {
+        CompletableFuture.allOf(Arrays.stream(authorizations)
+            .map(authorization -> CompletableFuture.runAsync(() -> webTestClient.get()
+                .uri(path)
+                .header(HttpHeaders.AUTHORIZATION, authorization)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo(BODY)))
+            .toArray(CompletableFuture[]::new)).join();
+    }
+
+    private static String bearer(String subject) {
+        return "Bearer " + JWT.create()
+            .withKeyId("test-key")
+            .withIssuer(ISSUER)
+            .withSubject(subject)
+            .withJWTId(UUID.randomUUID().toString())
+            .withExpiresAt(Instant.now().plusSeconds(300))
+            .sign(Algorithm.RSA256(null, (RSAPrivateKey) KEY_PAIR.getPrivate()));
+    }
+
+    private static KeyPair generateKeyPair() {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            return generator.generateKeyPair();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
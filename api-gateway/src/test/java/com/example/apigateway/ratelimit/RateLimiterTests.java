@@ -0,0 +1,229 @@
+package com.example.apigateway.ratelimit;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.example.apigateway.security.JwksKeyProvider;
+import com.example.apigateway.security.JwtSubjectResolver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.env.MockEnvironment;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimiterTests {
+
+    private static final String USER_A = "Bearer a";
+    private static final String USER_B = "Bearer b";
+    private static final String USER_C = "Bearer c";
+    private static final String ISSUER = "http://localhost/realms/test";
+    private static final KeyPair KEY_PAIR = generateKeyPair();
+
+    private final AtomicLong nanos = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+    private final MockEnvironment environment = new MockEnvironment();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final Mono<ResponseEntity<Flux<DataBuffer>>> call = Mono.fromSupplier(() -> {
+        calls.incrementAndGet();
+        return ResponseEntity.ok().build();
+    });
+
+    @Test
+    void limitsEachUserSeparately() {
+        RateLimiter limiter = limiter(1, 2, 1000, 1000);
+
+        assertThat(status(limiter, "list", USER_A)).isEqualTo(HttpStatus.OK);
+        assertThat(status(limiter, "list", USER_A)).isEqualTo(HttpStatus.OK);
+        assertThat(status(limiter, "list", USER_A)).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(status(limiter, "list", USER_B)).isEqualTo(HttpStatus.OK);
+
+        assertThat(calls).hasValue(3);
+        assertThat(rejected("subject")).isEqualTo(1);
+    }
+
+    @Test
+    void retryAfterIsRoundedUpToWholeSeconds() {
+        RateLimiter limiter = limiter(0.2, 1, 1000, 1000);
+        limiter.apply("list", HttpMethod.GET, USER_A, call).block();
+
+        assertThat(retryAfter(limiter.apply("list", HttpMethod.GET, USER_A, call).block())).isEqualTo("5");
+
+        advance(4_500);
+        assertThat(retryAfter(limiter.apply("list", HttpMethod.GET, USER_A, call).block())).isEqualTo("1");
+
+        advance(500);
+        assertThat(status(limiter, "list", USER_A)).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void globalLimitAppliesAcrossUsersAndRefundsTheUser() {
+        RateLimiter limiter = limiter(0.1, 1, 1, 2);
+
+        assertThat(status(limiter, "list", USER_A)).isEqualTo(HttpStatus.OK);
+        assertThat(status(limiter, "list", USER_B)).isEqualTo(HttpStatus.OK);
+        assertThat(status(limiter, "list", USER_C)).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(rejected("global")).isEqualTo(1);
+
+        // 全体の上限で断った分は利用者の上限を使っていない（利用者のバケットが貯まる 10 秒を待たずに通る）
+        advance(1_000);
+        assertThat(status(limiter, "list", USER_C)).isEqualTo(HttpStatus.OK);
+        assertThat(calls).hasValue(3);
+    }
+
+    @Test
+    void routeLimitOverridesTheDefaultInItsOwnBucket() {
+        environment.setProperty("rate-limit.routes.export.rate", "0.2");
+        environment.setProperty("rate-limit.routes.export.burst", "1");
+        RateLimiter limiter = limiter(10, 10, 1000, 1000);
+
+        assertThat(status(limiter, "export", USER_A)).isEqualTo(HttpStatus.OK);
+        assertThat(status(limiter, "export", USER_A)).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(status(limiter, "list", USER_A)).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void rejectionCarriesJsonBodyWithoutCallingTheBackend() {
+        RateLimiter limiter = limiter(1, 1, 1000, 1000);
+        limiter.apply("list", HttpMethod.GET, USER_A, call).block();
+
+        ResponseEntity<Flux<DataBuffer>> rejected = limiter.apply("list", HttpMethod.GET, USER_A, call).block();
+
+        assertThat(rejected.getHeaders().getContentType()).hasToString("application/json");
+        assertThat(rejected.getBody().map(buffer -> buffer.toString(StandardCharsets.UTF_8)).blockFirst())
+            .isEqualTo("{\"error\":\"Too many requests\"}");
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void rotatingTokensDoesNotEscapeTheSubjectLimit() throws IOException {
+        RateLimiter limiter = limiter(0.1, 2, 1000, 1000, resolver()::resolve);
+
+        // 同じ利用者のトークンを毎回作り直しても、同じバケットから取る
+        assertThat(status(limiter, "list", bearer("user-1"))).isEqualTo(HttpStatus.OK);
+        assertThat(status(limiter, "list", bearer("user-1"))).isEqualTo(HttpStatus.OK);
+        assertThat(status(limiter, "list", bearer("user-1"))).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(status(limiter, "list", bearer("user-2"))).isEqualTo(HttpStatus.OK);
+        assertThat(calls).hasValue(3);
+    }
+
+    @Test
+    void unverifiableTokensAreRejectedBeforeAnyBucket() throws IOException {
+        RateLimiter limiter = limiter(1000, 1000, 0.1, 1, resolver()::resolve);
+        Instant later = Instant.now().plusSeconds(300);
+
+        for (String authorization : List.of("Bearer garbage", "Basic dXNlcjpwYXNz",
+                bearer("http://evil", "user-1", later, KEY_PAIR.getPrivate()),
+                bearer(ISSUER, "user-1", Instant.now().minusSeconds(60), KEY_PAIR.getPrivate()),
+                bearer(ISSUER, "user-1", later, generateKeyPair().getPrivate()))) {
+            ResponseEntity<Flux<DataBuffer>> response = limiter.apply("list", HttpMethod.GET, authorization, call).block();
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+            assertThat(response.getHeaders().getFirst(HttpHeaders.WWW_AUTHENTICATE)).startsWith("Bearer");
+        }
+
+        // 全体のバケット（バースト 1）は使われていない
+        assertThat(status(limiter, "list", bearer("user-1"))).isEqualTo(HttpStatus.OK);
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void disabledLimiterPassesEverything() {
+        RateLimiter limiter = new RateLimiter(false, 1, 1, 1, 1, 1, 100, Duration.ofMinutes(1),
+            authorization -> authorization, environment, meterRegistry, nanos::get);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(status(limiter, "list", USER_A)).isEqualTo(HttpStatus.OK);
+        }
+    }
+
+    // Authorization の値をそのまま利用者とみなす
+    private RateLimiter limiter(double subjectRate, long subjectBurst, double globalRate, long globalBurst) {
+        return limiter(subjectRate, subjectBurst, globalRate, globalBurst, authorization -> authorization);
+    }
+
+    private RateLimiter limiter(double subjectRate, long subjectBurst, double globalRate, long globalBurst,
+                                Function<String, String> subjectOf) {
+        return new RateLimiter(true, subjectRate, subjectBurst, globalRate, globalBurst, 1, 100, Duration.ofMinutes(1),
+            subjectOf, environment, meterRegistry, nanos::get);
+    }
+
+    private static JwtSubjectResolver resolver() throws IOException {
+        RSAPublicKey publicKey = (RSAPublicKey) KEY_PAIR.getPublic();
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String jwks = "{\"keys\":[{\"kty\":\"RSA\",\"use\":\"sig\",\"kid\":\"test-key\",\"alg\":\"RS256\","
+            + "\"n\":\"" + encoder.encodeToString(publicKey.getModulus().toByteArray()) + "\","
+            + "\"e\":\"" + encoder.encodeToString(publicKey.getPublicExponent().toByteArray()) + "\"}]}";
+        Path file = Files.createTempFile("jwks", ".json");
+        Files.writeString(file, jwks);
+        file.toFile().deleteOnExit();
+        JwksKeyProvider keys = new JwksKeyProvider(file.toUri().toString(), Duration.ofMinutes(1), new DefaultResourceLoader());
+        return new JwtSubjectResolver(ISSUER, 0, 100, keys);
+    }
+
+    private static String bearer(String issuer, String subject, Instant expiresAt, PrivateKey privateKey) {
+        return "Bearer " + JWT.create()
+            .withKeyId("test-key")
+            .withIssuer(issuer)
+            .withSubject(subject)
+            .withJWTId(UUID.randomUUID().toString())
+            .withExpiresAt(expiresAt)
+            .sign(Algorithm.RSA256(null, (RSAPrivateKey) privateKey));
+    }
+
+    private static String bearer(String subject) {
+        return bearer(ISSUER, subject, Instant.now().plusSeconds(300), KEY_PAIR.getPrivate());
+    }
+
+    private static KeyPair generateKeyPair() {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            return generator.generateKeyPair();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private HttpStatus status(RateLimiter limiter, String route, String authorization) {
+        return HttpStatus.valueOf(limiter.apply(route, HttpMethod.GET, authorization, call).block().getStatusCode().value());
+    }
+
+    private static String retryAfter(ResponseEntity<Flux<DataBuffer>> response) {
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        return response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+    }
+
+    private double rejected(String scope) {
+        return meterRegistry.get("rate.limit.rejected").tag("scope", scope).counter().count();
+    }
+
+    private void advance(long millis) {
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
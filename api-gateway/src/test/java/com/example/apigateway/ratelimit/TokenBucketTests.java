@@ -0,0 +1,83 @@
+package com.example.apigateway.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTests {
+
+    private final AtomicLong nanos = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+
+    @Test
+    void allowsBurstThenRejectsWithTimeUntilNextToken() {
+        TokenBucket bucket = new TokenBucket(10, 5, 1, nanos::get);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(bucket.tryAcquire()).isZero();
+        }
+        assertThat(bucket.tryAcquire()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    void refillsAtRateUpToBurst() {
+        TokenBucket bucket = new TokenBucket(10, 5, 1, nanos::get);
+        drain(bucket);
+
+        advance(100);
+        assertThat(bucket.tryAcquire()).isZero();
+        assertThat(bucket.tryAcquire()).isPositive();
+
+        // 長く空いても貯まるのはバースト量まで
+        advance(10_000);
+        assertThat(drain(bucket)).isEqualTo(5);
+    }
+
+    @Test
+    void rejectionDoesNotConsumeTokens() {
+        TokenBucket bucket = new TokenBucket(10, 1, 1, nanos::get);
+        assertThat(bucket.tryAcquire()).isZero();
+        for (int i = 0; i < 10; i++) {
+            assertThat(bucket.tryAcquire()).isPositive();
+        }
+
+        advance(100);
+        assertThat(bucket.tryAcquire()).isZero();
+    }
+
+    @Test
+    void refundReturnsOneToken() {
+        TokenBucket bucket = new TokenBucket(1, 2, 1, nanos::get);
+        drain(bucket);
+
+        bucket.refund();
+
+        assertThat(bucket.tryAcquire()).isZero();
+        assertThat(bucket.tryAcquire()).isPositive();
+    }
+
+    @Test
+    void stripesShareTheTotalBurstAndRate() {
+        TokenBucket bucket = new TokenBucket(100, 8, 4, nanos::get);
+
+        // 自分のカウンターが空になっても他のカウンターから取れる
+        assertThat(drain(bucket)).isEqualTo(8);
+
+        advance(40);
+        assertThat(drain(bucket)).isEqualTo(4);
+    }
+
+    private void advance(long millis) {
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private static int drain(TokenBucket bucket) {
+        int acquired = 0;
+        while (bucket.tryAcquire() == 0) {
+            acquired++;
+        }
+        return acquired;
+    }
+}
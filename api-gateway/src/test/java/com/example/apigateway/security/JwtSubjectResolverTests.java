@@ -0,0 +1,107 @@
+package com.example.apigateway.security;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtSubjectResolverTests {
+
+    private static final String ISSUER = "http://localhost/realms/test";
+
+    private final KeyPair oldKey = generateKeyPair();
+    private final KeyPair newKey = generateKeyPair();
+
+    @Test
+    void resolvesIssuerAndSubjectOfVerifiedToken() throws IOException {
+        JwtSubjectResolver resolver = resolver(jwksFile("old", oldKey), Duration.ofMinutes(1));
+
+        assertThat(resolver.resolve(bearer("old", oldKey, "user-1"))).isEqualTo(ISSUER + "\nuser-1");
+        assertThat(resolver.resolve("Bearer " + JWT.create().withIssuer(ISSUER).withSubject("user-1")
+            .withExpiresAt(Instant.now().plusSeconds(300)).sign(Algorithm.none()))).isNull();
+        assertThat(resolver.resolve(null)).isNull();
+    }
+
+    @Test
+    void unknownKeyIdFailsFastAndRefreshesAtMostOncePerInterval() throws Exception {
+        Path jwks = jwksFile("old", oldKey);
+        JwtSubjectResolver throttled = resolver(jwks, Duration.ofHours(1));
+        Files.writeString(jwks, jwks(new String[] {"old", "new"}, oldKey, newKey));
+
+        // 起動時に取得したばかりのため、間隔内は取り直さずに失敗させる
+        assertThat(throttled.resolve(bearer("new", newKey, "user-1"))).isNull();
+        Thread.sleep(200);
+        assertThat(throttled.resolve(bearer("new", newKey, "user-1"))).isNull();
+
+        // 間隔を過ぎていれば別スレッドで取り直し、以降のリクエストは通る
+        Path rotated = jwksFile("old", oldKey);
+        JwtSubjectResolver refreshing = resolver(rotated, Duration.ZERO);
+        Files.writeString(rotated, jwks(new String[] {"old", "new"}, oldKey, newKey));
+        String token = bearer("new", newKey, "user-1");
+        assertThat(refreshing.resolve(token)).isNull();
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (refreshing.resolve(token) == null && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(refreshing.resolve(token)).isEqualTo(ISSUER + "\nuser-1");
+    }
+
+    private static JwtSubjectResolver resolver(Path jwks, Duration minRefreshInterval) {
+        JwksKeyProvider keys = new JwksKeyProvider(jwks.toUri().toString(), minRefreshInterval, new DefaultResourceLoader());
+        return new JwtSubjectResolver(ISSUER, 0, 100, keys);
+    }
+
+    private static Path jwksFile(String keyId, KeyPair keyPair) throws IOException {
+        Path file = Files.createTempFile("jwks", ".json");
+        file.toFile().deleteOnExit();
+        Files.writeString(file, jwks(new String[] {keyId}, keyPair));
+        return file;
+    }
+
+    private static String jwks(String[] keyIds, KeyPair... keyPairs) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return Stream.iterate(0, i -> i + 1).limit(keyIds.length)
+            .map(i -> {
+                RSAPublicKey publicKey = (RSAPublicKey) keyPairs[i].getPublic();
+                return "{\"kty\":\"RSA\",\"use\":\"sig\",\"kid\":\"" + keyIds[i] + "\",\"alg\":\"RS256\","
+                    + "\"n\":\"" + encoder.encodeToString(publicKey.getModulus().toByteArray()) + "\","
+                    + "\"e\":\"" + encoder.encodeToString(publicKey.getPublicExponent().toByteArray()) + "\"}";
+            })
+            .collect(Collectors.joining(",", "{\"keys\":[", "]}"));
+    }
+
+    private static String bearer(String keyId, KeyPair keyPair, String subject) {
+        return "Bearer " + JWT.create()
+            .withKeyId(keyId)
+            .withIssuer(ISSUER)
+            .withSubject(subject)
+            .withExpiresAt(Instant.now().plusSeconds(300))
+            .sign(Algorithm.RSA256(null, (RSAPrivateKey) keyPair.getPrivate()));
+    }
+
+    private static KeyPair generateKeyPair() {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            return generator.generateKeyPair();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
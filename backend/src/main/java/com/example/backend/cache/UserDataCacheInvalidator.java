@@ -0,0 +1,39 @@
+package com.example.backend.cache;
+
+import com.example.backend.event.UserDataChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * 書き込みのトランザクションの終了後に、そのユーザーの一覧・検索順位のキャッシュを無効化する。
+ * ロールバックした場合も無効化し、取り消された書き込みを同じトランザクション内で読んだ値を使わせない。
+ */
+@Component
+public class UserDataCacheInvalidator {
+
+    @Autowired
+    @Qualifier("trainingListCache")
+    private UserScopedCache trainingListCache;
+
+    @Autowired
+    @Qualifier("trainingPlanListCache")
+    private UserScopedCache trainingPlanListCache;
+
+    @Autowired
+    @Qualifier("trainingSearchRankingCache")
+    private UserScopedCache trainingSearchRankingCache;
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION, fallbackExecution = true)
+    public void onUserDataChanged(UserDataChangedEvent event) {
+        switch (event.getResource()) {
+            case TRAINING -> {
+                trainingListCache.invalidateUser(event.getUserId());
+                trainingSearchRankingCache.invalidateUser(event.getUserId());
+            }
+            case TRAINING_PLAN -> trainingPlanListCache.invalidateUser(event.getUserId());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.backend.cache;
+
+import com.example.backend.event.UserDataChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ユーザー × リソースごとのデータバージョン。書き込みのコミット後に進め、ETag の生成に使う。
+ * バージョンは全体で単調増加するカウンタから採番するため、追い出されたユーザーでも過去の値に戻ることはない。
+ */
+@Component
+public class UserDataVersions {
+
+    // 再起動をまたいで同じ ETag にならないよう起動時刻を含める
+    private final String bootId = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong counter = new AtomicLong();
+    // 追い出されたエントリの最大値。未登録のユーザーはこの値を返す
+    private final AtomicLong floor = new AtomicLong();
+
+    @Value("${cache.user-data.maximum-size}")
+    private long maximumSize;
+
+    private Cache<Key, Long> versions;
+
+    private static final class Key {
+
+        private final String userId;
+        private final UserDataChangedEvent.Resource resource;
+
+        Key(String userId, UserDataChangedEvent.Resource resource) {
+            this.userId = userId;
+            this.resource = resource;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return userId.equals(other.userId) && resource == other.resource;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, resource);
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        versions = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .evictionListener((Key key, Long version, RemovalCause cause) ->
+                floor.accumulateAndGet(Objects.requireNonNullElse(version, 0L), Math::max))
+            .build();
+    }
+
+    /**
+     * 現在のバージョンを表す強い ETag（引用符付き）を返す。
+     */
+    public String etag(String userId, UserDataChangedEvent.Resource resource) {
+        Long version = versions.getIfPresent(new Key(userId, resource));
+        long current = version != null ? version : floor.get();
+        return "\"" + resource.name().toLowerCase() + "-" + bootId + "-" + current + "\"";
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserDataChanged(UserDataChangedEvent event) {
+        versions.put(new Key(event.getUserId(), event.getResource()), counter.incrementAndGet());
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.backend.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * ユーザー単位で無効化できる読み込みキャッシュ（件数上限 + TTL）。
+ * キーにユーザーの世代を含め、無効化では世代を進めるだけにする（古い世代のエントリは参照されず、TTL・件数上限で消える）。
+ * 読み込み中に無効化された場合も、読み込んだ値は古い世代のキーで保存されるため使われない。
+ * 世代は全体で単調増加するカウンタから採番し、追い出されたユーザーは追い出された世代の最大値から再開するため、古い世代に戻ることはない。
+ */
+public class UserScopedCache {
+
+    private final String name;
+    private final Cache<Key, Object> cache;
+    private final AtomicLong counter = new AtomicLong();
+    // 追い出された世代の最大値。未登録のユーザーはこの値を使う
+    private final AtomicLong floor = new AtomicLong();
+    private final Cache<String, Long> generations;
+
+    private static final class Key {
+
+        private final String userId;
+        private final long generation;
+        private final Object query;
+
+        Key(String userId, long generation, Object query) {
+            this.userId = userId;
+            this.generation = generation;
+            this.query = query;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return generation == other.generation && userId.equals(other.userId) && query.equals(other.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, generation, query);
+        }
+    }
+
+    public UserScopedCache(String name, long maximumSize, Duration ttl) {
+        this.name = name;
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(ttl)
+            .recordStats()
+            .build();
+        this.generations = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .evictionListener((String userId, Long generation, RemovalCause cause) ->
+                floor.accumulateAndGet(Objects.requireNonNullElse(generation, 0L), Math::max))
+            .build();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(String userId, Object query, Supplier<T> loader) {
+        Key key = new Key(userId, generation(userId), query);
+        Object cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return (T) cached;
+        }
+
+        T value = loader.get();
+        if (value != null) {
+            cache.put(key, value);
+        }
+        return value;
+    }
+
+    // ユーザーの世代を進め、それまでのエントリを参照されなくする
+    public void invalidateUser(String userId) {
+        generations.put(userId, counter.incrementAndGet());
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public Cache<?, ?> getNativeCache() {
+        return cache;
+    }
+
+    private long generation(String userId) {
+        Long generation = generations.getIfPresent(userId);
+        return generation != null ? generation : floor.get();
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.backend.config;
+
+import com.example.backend.cache.UserScopedCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 一覧系の読み込みキャッシュ。ヒット・ミス・追い出しの統計は /actuator/metrics の cache.* で確認できる。
+ */
+@Configuration
+public class CacheConfig {
+
+    @Value("${cache.user-data.maximum-size}")
+    private long maximumSize;
+
+    @Value("${cache.user-data.ttl}")
+    private Duration ttl;
+
+    @Value("${cache.search-ranking.maximum-size}")
+    private long searchRankingMaximumSize;
+
+    @Value("${cache.search-ranking.ttl}")
+    private Duration searchRankingTtl;
+
+    @Bean
+    public UserScopedCache trainingListCache(MeterRegistry meterRegistry) {
+        return monitored(new UserScopedCache("trainingLists", maximumSize, ttl), meterRegistry);
+    }
+
+    @Bean
+    public UserScopedCache trainingPlanListCache(MeterRegistry meterRegistry) {
+        return monitored(new UserScopedCache("trainingPlanLists", maximumSize, ttl), meterRegistry);
+    }
+
+    // 検索語ごとの順位（1件あたり最大で max-postings-per-term 件の ID とスコア）。カーソルで次のページを読むときに使い回す
+    @Bean
+    public UserScopedCache trainingSearchRankingCache(MeterRegistry meterRegistry) {
+        return monitored(new UserScopedCache("trainingSearchRankings", searchRankingMaximumSize, searchRankingTtl), meterRegistry);
+    }
+
+    private UserScopedCache monitored(UserScopedCache cache, MeterRegistry meterRegistry) {
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.getNativeCache(), cache.getName());
+        return cache;
+    }
+}
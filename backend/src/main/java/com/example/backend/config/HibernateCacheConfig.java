@@ -0,0 +1,67 @@
+package com.example.backend.config;
+
+import com.example.backend.entity.Training;
+import com.example.backend.entity.TrainingPlan;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+
+/**
+ * Hibernate の2次キャッシュ・クエリキャッシュ（JCache + Caffeine、件数上限 + TTL）。
+ * リージョンはここで作成したものだけを使う（hibernate.javax.cache.missing_cache_strategy: fail）。
+ * ヒット・ミスの統計は /actuator/metrics の hibernate.second.level.cache.* / hibernate.cache.query.* で確認できる。
+ */
+@Configuration
+public class HibernateCacheConfig {
+
+    @Value("${cache.hibernate.entity.maximum-size}")
+    private long entityMaximumSize;
+
+    @Value("${cache.hibernate.entity.ttl}")
+    private Duration entityTtl;
+
+    @Value("${cache.hibernate.query.maximum-size}")
+    private long queryMaximumSize;
+
+    @Value("${cache.hibernate.query.ttl}")
+    private Duration queryTtl;
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager() {
+        // 同じJVMで複数のコンテキストが起動しても（テスト等）リージョンが衝突しないよう、コンテキスト毎の CacheManager を使う
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        URI uri = URI.create("hibernate-" + Integer.toHexString(System.identityHashCode(this)));
+        CacheManager cacheManager = provider.getCacheManager(uri, getClass().getClassLoader());
+        cacheManager.createCache(Training.class.getName(), bounded(entityMaximumSize, entityTtl));
+        cacheManager.createCache(TrainingPlan.class.getName(), bounded(entityMaximumSize, entityTtl));
+        cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, bounded(queryMaximumSize, queryTtl));
+        // テーブル毎の最終更新時刻。クエリキャッシュの鮮度判定に使うため追い出さない
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, new CaffeineConfiguration<>());
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheManagerCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+
+    private CaffeineConfiguration<Object, Object> bounded(long maximumSize, Duration ttl) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maximumSize));
+        // 値はナノ秒
+        configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        return configuration;
+    }
+}
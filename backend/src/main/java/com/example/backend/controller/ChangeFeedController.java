@@ -0,0 +1,33 @@
+package com.example.backend.controller;
+
+import com.example.backend.event.ChangeFeed;
+import com.example.backend.security.JwtAuthenticationFilter;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/changes")
+@Tag(name = "Change feed", description = "Server-Sent Events stream of the user's data changes")
+public class ChangeFeedController {
+
+    @Autowired
+    private ChangeFeed changeFeed;
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Subscribe to changes", description = "Streams a 'change' event (resource, changeType, ids) after each committed write. "
+        + "Reconnect with Last-Event-ID to receive missed events; a 'reset' event means they are no longer available and data should be re-fetched")
+    public SseEmitter subscribe(
+            @Parameter(hidden = true) @RequestAttribute(JwtAuthenticationFilter.USER_ID_ATTRIBUTE) String userId,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return changeFeed.subscribe(userId, lastEventId);
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.backend.controller;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * ETag 付き GET のレスポンス。ブラウザ・中継にはキャッシュさせつつ、毎回 If-None-Match で再検証させる。
+ * 利用者に依らない固定値（参照データ）は、Cache-Control を指定して中継でも共有・再利用させる。
+ */
+final class ConditionalResponses {
+
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+    private ConditionalResponses() {
+    }
+
+    static ResponseEntity.BodyBuilder ok(String etag) {
+        return ok(etag, REVALIDATE);
+    }
+
+    static ResponseEntity.BodyBuilder ok(String etag, CacheControl cacheControl) {
+        return ResponseEntity.ok().eTag(etag).cacheControl(cacheControl);
+    }
+
+    // ETag ヘッダーは WebRequest#checkNotModified が設定済み
+    static <T> ResponseEntity<T> notModified() {
+        return notModified(REVALIDATE);
+    }
+
+    static <T> ResponseEntity<T> notModified(CacheControl cacheControl) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
+    }
+}
@@ -1,18 +1,39 @@
 package com.example.backend.controller;
 
+import com.example.backend.cache.UserDataVersions;
+import com.example.backend.dto.TrainingCursor;
+import com.example.backend.dto.TrainingFilter;
+import com.example.backend.dto.TrainingPatch;
+import com.example.backend.dto.TrainingStats;
+import com.example.backend.dto.TrainingSummary;
 import com.example.backend.entity.Training;
+import com.example.backend.event.UserDataChangedEvent;
+import com.example.backend.security.JwtAuthenticationFilter;
 import com.example.backend.service.TrainingService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.*;
-import com.auth0.jwt.JWT;
-import com.auth0.jwt.exceptions.JWTDecodeException;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
@@ -23,56 +44,158 @@ public class TrainingController {
 
     private static final Logger logger = LoggerFactory.getLogger(TrainingController.class);
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_BULK_SIZE = 1000;
+    private static final String NDJSON = "application/x-ndjson";
+    private static final List<String> TYPES = List.of("strength", "cardio", "flexibility", "core");
+    private static final List<String> DIFFICULTIES = List.of("beginner", "intermediate", "advanced");
+    // 固定値の一覧は内容から ETag を決める
+    private static final String TYPES_ETAG = "\"types-" + Integer.toHexString(TYPES.hashCode()) + "\"";
+    private static final String DIFFICULTIES_ETAG = "\"difficulties-" + Integer.toHexString(DIFFICULTIES.hashCode()) + "\"";
+
     @Autowired
     private TrainingService trainingService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserDataVersions userDataVersions;
+
+    @Value("${reference-data.max-age}")
+    private Duration referenceDataMaxAge;
+
     @GetMapping
-    @Operation(summary = "Get all trainings for user", description = "Retrieve all trainings for a specific user")
-    public ResponseEntity<List<Training>> getAllTrainings(
-            @Parameter(description = "Authorization Bearer token") @RequestHeader("Authorization") String authorization,
+    @Operation(summary = "Get all trainings for user", description = "Retrieve trainings for a specific user matching every given filter, without description. When limit or cursor is given, returns a page with nextCursor")
+    public ResponseEntity<?> getAllTrainings(
+            @Parameter(hidden = true) @RequestAttribute(JwtAuthenticationFilter.USER_ID_ATTRIBUTE) String userId,
             @Parameter(description = "Filter by training type") @RequestParam(required = false) String type,
             @Parameter(description = "Filter by difficulty") @RequestParam(required = false) String difficulty,
-            @Parameter(description = "Search by title") @RequestParam(required = false) String search,
+            @Parameter(description = "Full-text search over title and description (prefix match, ranked by relevance)") @RequestParam(required = false) String search,
             @Parameter(description = "Minimum duration in minutes") @RequestParam(required = false) Integer minDuration,
-            @Parameter(description = "Maximum duration in minutes") @RequestParam(required = false) Integer maxDuration) {
+            @Parameter(description = "Maximum duration in minutes") @RequestParam(required = false) Integer maxDuration,
+            @Parameter(description = "Created on or after this date (yyyy-MM-dd)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Created on or before this date (yyyy-MM-dd)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @Parameter(description = "Opaque cursor returned as nextCursor of the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (1-" + MAX_PAGE_SIZE + ")") @RequestParam(required = false) Integer limit,
+            @Parameter(description = "Comma-separated fields to return (id, title, type, durationMinutes, difficulty, createdAt, updatedAt). id and createdAt are always included") @RequestParam(required = false) List<String> fields,
+            WebRequest webRequest) {
+        
+        // データが変わっていなければ一覧を読まずに 304 を返す
+        String etag = userDataVersions.etag(userId, UserDataChangedEvent.Resource.TRAINING);
+        if (webRequest.checkNotModified(etag)) {
+            return ConditionalResponses.notModified();
+        }
         
-        String userId = extractUserIdFromJWT(authorization);
-        if (userId == null) {
+        List<String> selectedFields;
+        try {
+            selectedFields = TrainingSummary.resolveFields(fields);
+        } catch (IllegalArgumentException e) {
+            logger.warn("不正な fields 指定: {}", e.getMessage());
             return ResponseEntity.badRequest().build();
         }
         
-        List<Training> trainings;
+        TrainingFilter filter = new TrainingFilter();
+        filter.setType(type);
+        filter.setDifficulty(difficulty);
+        filter.setSearch(search);
+        filter.setMinDuration(minDuration);
+        filter.setMaxDuration(maxDuration);
+        filter.setFrom(from);
+        filter.setTo(to);
         
-        if (search != null && !search.trim().isEmpty()) {
-            trainings = trainingService.searchTrainingsByTitle(userId, search.trim());
-        } else if (type != null && !type.trim().isEmpty()) {
-            trainings = trainingService.getTrainingsByType(userId, type);
-        } else if (difficulty != null && !difficulty.trim().isEmpty()) {
-            trainings = trainingService.getTrainingsByDifficulty(userId, difficulty);
-        } else if (minDuration != null && maxDuration != null) {
-            trainings = trainingService.getTrainingsByDuration(userId, minDuration, maxDuration);
-        } else {
-            trainings = trainingService.getAllTrainings(userId);
+        if (cursor == null && limit == null) {
+            return ConditionalResponses.ok(etag).body(trainingService.findTrainings(userId, filter, selectedFields));
+        }
+        
+        int pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        TrainingCursor after;
+        try {
+            after = cursor != null ? TrainingCursor.decode(cursor) : null;
+        } catch (IllegalArgumentException e) {
+            logger.warn("不正なカーソル: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+        // 全文検索は関連度順のカーソル、それ以外は作成日時順のカーソルのみ受け付ける
+        boolean searching = search != null && !search.trim().isEmpty();
+        if (after != null && after.isRank() != searching) {
+            return ResponseEntity.badRequest().build();
         }
         
-        return ResponseEntity.ok(trainings);
+        return ConditionalResponses.ok(etag).body(trainingService.findTrainings(userId, filter, selectedFields, after, pageSize));
+    }
+
+    @GetMapping(value = "/export", produces = NDJSON)
+    @Operation(summary = "Export all trainings", description = "Stream the user's full training history as newline-delimited JSON (oldest first)")
+    public ResponseEntity<StreamingResponseBody> exportTrainings(
+            @Parameter(hidden = true) @RequestAttribute(JwtAuthenticationFilter.USER_ID_ATTRIBUTE) String userId) {
+        
+        StreamingResponseBody body = out -> {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            long count = trainingService.streamTrainings(userId, training -> {
+                try {
+                    objectMapper.writeValue(generator, training);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.flush();
+            logger.debug("エクスポート完了 - ユーザーID: {}, 件数: {}", userId, count);
+        };
+        
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(NDJSON))
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"trainings.ndjson\"")
+            .body(body);
+    }
+
+    @GetMapping("/stats")
+    @Operation(summary = "Get training statistics", description = "Sessions and minutes in total, per type, per difficulty and per week (weeks start on Monday), read from the incrementally maintained rollup")
+    public ResponseEntity<TrainingStats> getStats(
+            @Parameter(hidden = true) @RequestAttribute(JwtAuthenticationFilter.USER_ID_ATTRIBUTE) String userId,
+            @Parameter(description = "Include weeks containing or after this date (yyyy-MM-dd)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Include weeks starting on or before this date (yyyy-MM-dd)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            WebRequest webRequest) {
+        
+        String etag = userDataVersions.etag(userId, UserDataChangedEvent.Resource.TRAINING);
+        if (webRequest.checkNotModified(etag)) {
+            return ConditionalResponses.notModified();
+        }
+        return ConditionalResponses.ok(etag).body(trainingService.getStats(userId, from, to));
+    }
+
+    @PostMapping("/stats/rebuild")
+    @Operation(summary = "Rebuild training statistics", description = "Recompute the user's statistics rollup from all trainings")
+    public ResponseEntity<TrainingStats> rebuildStats(
+            @Parameter(hidden = true) @RequestAttribute(JwtAuthenticationFilter.USER_ID_ATTRIBUTE) String userId) {
+        
+        trainingService.rebuildStats(userId);
+        return ResponseEntity.ok(trainingService.getStats(userId, null, null));
     }
 
     @GetMapping("/{id}")
     @Operation(summary = "Get training by ID", description = "Retrieve a specific training by ID")
     public ResponseEntity<Training> getTrainingById(
             @Parameter(description = "Training ID") @PathVariable Long id,
-            @Parameter(description = "Authorization Bearer token") @RequestHeader("Authorization") String authorization) {
+            @Parameter(hidden = true) @RequestAttribute(JwtAuthenticationFilter.USER_ID_ATTRIBUTE) String userId,
+            WebRequest webRequest) {
         
-        String userId = extractUserIdFromJWT(authorization);
-        if (userId == null) {
-            return ResponseEntity.badRequest().build();
+        String etag = userDataVersions.etag(userId, UserDataChangedEvent.Resource.TRAINING);
+        if (webRequest.checkNotModified(etag)) {
+            return ConditionalResponses.notModified();
         }
         
         Optional<Training> training = trainingService.getTrainingById(id, userId);
         
         if (training.isPresent()) {
-            return ResponseEntity.ok(training.get());
+            return ConditionalResponses.ok(etag).body(training.get());
         } else {
             return ResponseEntity.notFound().build();
         }
@@ -81,14 +204,9 @@ public class TrainingController {
     @PostMapping
     @Operation(summary = "Create new training", description = "Create a new training session")
     public ResponseEntity<Training> createTraining(
-            @Parameter(description = "Authorization Bearer token") @RequestHeader("Authorization") String authorization,
+            @Parameter(hidden = true) @RequestAttribute(JwtAuthenticationFilter.USER_ID_ATTRIBUTE) String userId,
             @RequestBody Training training) {
         
-        String userId = extractUserIdFromJWT(authorization);
-        if (userId == null) {
-            return ResponseEntity.badRequest().build();
-        }
-        
         // ユーザーIDを設定
         training.setUserId(userId);
         
@@ -100,14 +218,9 @@ public class TrainingController {
     @Operation(summary = "Update training", description = "Update an existing training session")
     public ResponseEntity<Training> updateTraining(
             @Parameter(description = "Training ID") @PathVariable Long id,
-            @Parameter(description = "Authorization Bearer token") @RequestHeader("Authorization") String authorization,
+            @Parameter(hidden = true) @RequestAttribute(JwtAuthenticationFilter.USER_ID_ATTRIBUTE) String userId,
             @RequestBody Training trainingDetails) {
         
-        String userId = extractUserIdFromJWT(authorization);
-        if (userId == null) {
-            return ResponseEntity.badRequest().build();
-        }
-        
         Optional<Training> updatedTraining = trainingService.updateTraining(id, trainingDetails, userId);
         
         if (updatedTraining.isPresent()) {
@@ -117,16 +230,33 @@ public class TrainingController {
         }
     }
 
+    @PatchMapping("/{id}")
+    @Operation(summary = "Partially update training", description = "Update only the given fields. If version is given and does not match, or another update wins concurrently, returns 409 with the current state")
+    public ResponseEntity<Training> patchTraining(
+            @Parameter(description = "Training ID") @PathVariable Long id,
+            @Parameter(hidden = true) @RequestAttribute(JwtAuthenticationFilter.USER_ID_ATTRIBUTE) String userId,
+            @RequestBody TrainingPatch patch) {
+        
+        try {
+            Optional<Training> patchedTraining = trainingService.patchTraining(id, patch, userId);
+            if (patchedTraining.isPresent()) {
+                return ResponseEntity.ok(patchedTraining.get());
+            } else {
+                return ResponseEntity.notFound().build();
+            }
+        } catch (ObjectOptimisticLockingFailureException e) {
+            logger.info("トレーニング更新の競合: id={}", id);
+            return trainingService.getTrainingById(id, userId)
+                .map(current -> ResponseEntity.status(HttpStatus.CONFLICT).body(current))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+        }
+    }
+
     @DeleteMapping("/{id}")
     @Operation(summary = "Delete training", description = "Delete a training session")
     public ResponseEntity<Void> deleteTraining(
             @Parameter(description = "Training ID") @PathVariable Long id,
-            @Parameter(description = "Authorization Bearer token") @RequestHeader("Authorization") String authorization) {
-        
-        String userId = extractUserIdFromJWT(authorization);
-        if (userId == null) {
-            return ResponseEntity.badRequest().build();
-        }
+            @Parameter(hidden = true) @RequestAttribute(JwtAuthenticationFilter.USER_ID_ATTRIBUTE) String userId) {
         
         boolean deleted = trainingService.deleteTraining(id, userId);
         
@@ -137,47 +267,71 @@ public class TrainingController {
         }
     }
 
-    @GetMapping("/types")
-    @Operation(summary = "Get available training types", description = "Get list of available training types")
-    public ResponseEntity<List<String>> getTrainingTypes(@Parameter(description = "Authorization Bearer token") @RequestHeader("Authorization") String authorization) {
-        String userId = extractUserIdFromJWT(authorization);
-        if (userId == null) {
+    @PostMapping("/bulk")
+    @Operation(summary = "Create trainings in bulk", description = "Create up to " + MAX_BULK_SIZE + " training sessions in one transaction")
+    public ResponseEntity<List<Training>> createTrainings(
+            @Parameter(hidden = true) @RequestAttribute(JwtAuthenticationFilter.USER_ID_ATTRIBUTE) String userId,
+            @RequestBody List<Training> trainings) {
+        
+        if (trainings.isEmpty() || trainings.size() > MAX_BULK_SIZE) {
             return ResponseEntity.badRequest().build();
         }
         
-        List<String> types = List.of("strength", "cardio", "flexibility", "core");
-        return ResponseEntity.ok(types);
+        return ResponseEntity.ok(trainingService.createTrainings(trainings, userId));
     }
 
-    @GetMapping("/difficulties")
-    @Operation(summary = "Get available difficulties", description = "Get list of available difficulty levels")
-    public ResponseEntity<List<String>> getDifficulties(@Parameter(description = "Authorization Bearer token") @RequestHeader("Authorization") String authorization) {
-        String userId = extractUserIdFromJWT(authorization);
-        if (userId == null) {
+    @PutMapping("/bulk")
+    @Operation(summary = "Update trainings in bulk", description = "Update several training sessions (identified by id) in one transaction. Nothing is updated if any id is not found")
+    public ResponseEntity<List<Training>> updateTrainings(
+            @Parameter(hidden = true) @RequestAttribute(JwtAuthenticationFilter.USER_ID_ATTRIBUTE) String userId,
+            @RequestBody List<Training> trainings) {
+        
+        if (trainings.isEmpty() || trainings.size() > MAX_BULK_SIZE) {
             return ResponseEntity.badRequest().build();
         }
         
-        List<String> difficulties = List.of("beginner", "intermediate", "advanced");
-        return ResponseEntity.ok(difficulties);
+        Optional<List<Training>> updatedTrainings = trainingService.updateTrainings(trainings, userId);
+        
+        if (updatedTrainings.isPresent()) {
+            return ResponseEntity.ok(updatedTrainings.get());
+        } else {
+            return ResponseEntity.notFound().build();
+        }
     }
 
-    private String extractUserIdFromJWT(String authorization) {
-        try {
-            if (authorization == null || !authorization.startsWith("Bearer ")) {
-                logger.error("Invalid Authorization header format");
-                return null;
-            }
-            
-            String token = authorization.substring(7); // "Bearer " を除去
-            var decodedJWT = JWT.decode(token);
-            String userId = decodedJWT.getSubject();
-            
-            logger.info("JWT認証成功 - ユーザーID: {}", userId);
-            return userId;
-            
-        } catch (JWTDecodeException e) {
-            logger.error("JWT解析エラー: {}", e.getMessage());
-            return null;
+    @DeleteMapping("/bulk")
+    @Operation(summary = "Delete trainings in bulk", description = "Delete the given training sessions and return the ids actually deleted")
+    public ResponseEntity<List<Long>> deleteTrainings(
+            @Parameter(hidden = true) @RequestAttribute(JwtAuthenticationFilter.USER_ID_ATTRIBUTE) String userId,
+            @Parameter(description = "Training IDs (comma separated)") @RequestParam List<Long> ids) {
+        
+        if (ids.isEmpty() || ids.size() > MAX_BULK_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        return ResponseEntity.ok(trainingService.deleteTrainings(ids, userId));
+    }
+
+    @GetMapping("/types")
+    @Operation(summary = "Get available training types", description = "Get list of available training types")
+    public ResponseEntity<List<String>> getTrainingTypes(WebRequest webRequest) {
+        if (webRequest.checkNotModified(TYPES_ETAG)) {
+            return ConditionalResponses.notModified(referenceDataCacheControl());
         }
+        return ConditionalResponses.ok(TYPES_ETAG, referenceDataCacheControl()).body(TYPES);
+    }
+
+    @GetMapping("/difficulties")
+    @Operation(summary = "Get available difficulties", description = "Get list of available difficulty levels")
+    public ResponseEntity<List<String>> getDifficulties(WebRequest webRequest) {
+        if (webRequest.checkNotModified(DIFFICULTIES_ETAG)) {
+            return ConditionalResponses.notModified(referenceDataCacheControl());
+        }
+        return ConditionalResponses.ok(DIFFICULTIES_ETAG, referenceDataCacheControl()).body(DIFFICULTIES);
+    }
+
+    // 種別・難易度は利用者に依らない固定値のため、API Gateway・ブラウザで期限まで共有・再利用させる
+    private CacheControl referenceDataCacheControl() {
+        return CacheControl.maxAge(referenceDataMaxAge).cachePublic();
     }
-}
\ No newline at end of file
+}
@@ -1,11 +1,18 @@
 package com.example.backend.controller;
 
+import com.example.backend.cache.UserDataVersions;
+import com.example.backend.dto.TrainingPlanPatch;
+import com.example.backend.dto.TrainingPlanSummary;
 import com.example.backend.entity.TrainingPlan;
+import com.example.backend.event.UserDataChangedEvent;
+import com.example.backend.security.JwtAuthenticationFilter;
 import com.example.backend.service.TrainingPlanService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Optional;
@@ -15,35 +22,48 @@ import java.util.Optional;
 @CrossOrigin(origins = "http://localhost:8080")
 public class TrainingPlanController {
 
+    private static final int MAX_BULK_SIZE = 1000;
+
     @Autowired
     private TrainingPlanService trainingPlanService;
 
+    @Autowired
+    private UserDataVersions userDataVersions;
+
     @GetMapping
-    public ResponseEntity<List<TrainingPlan>> getAllTrainingPlans(@RequestHeader("X-User-ID") String userId) {
-        List<TrainingPlan> plans = trainingPlanService.getAllTrainingPlans(userId);
-        return ResponseEntity.ok(plans);
+    public ResponseEntity<List<TrainingPlanSummary>> getAllTrainingPlans(@RequestAttribute(JwtAuthenticationFilter.USER_ID_ATTRIBUTE) String userId, WebRequest webRequest) {
+        String etag = userDataVersions.etag(userId, UserDataChangedEvent.Resource.TRAINING_PLAN);
+        if (webRequest.checkNotModified(etag)) {
+            return ConditionalResponses.notModified();
+        }
+        List<TrainingPlanSummary> plans = trainingPlanService.getAllTrainingPlans(userId);
+        return ConditionalResponses.ok(etag).body(plans);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<TrainingPlan> getTrainingPlan(@PathVariable Long id, @RequestHeader("X-User-ID") String userId) {
+    public ResponseEntity<TrainingPlan> getTrainingPlan(@PathVariable Long id, @RequestAttribute(JwtAuthenticationFilter.USER_ID_ATTRIBUTE) String userId, WebRequest webRequest) {
+        String etag = userDataVersions.etag(userId, UserDataChangedEvent.Resource.TRAINING_PLAN);
+        if (webRequest.checkNotModified(etag)) {
+            return ConditionalResponses.notModified();
+        }
         Optional<TrainingPlan> plan = trainingPlanService.getTrainingPlanById(id, userId);
         
         if (plan.isPresent()) {
-            return ResponseEntity.ok(plan.get());
+            return ConditionalResponses.ok(etag).body(plan.get());
         } else {
             return ResponseEntity.notFound().build();
         }
     }
 
     @PostMapping
-    public ResponseEntity<TrainingPlan> createTrainingPlan(@RequestBody TrainingPlan trainingPlan, @RequestHeader("X-User-ID") String userId) {
+    public ResponseEntity<TrainingPlan> createTrainingPlan(@RequestBody TrainingPlan trainingPlan, @RequestAttribute(JwtAuthenticationFilter.USER_ID_ATTRIBUTE) String userId) {
         trainingPlan.setUserId(userId);
         TrainingPlan savedPlan = trainingPlanService.createTrainingPlan(trainingPlan);
         return ResponseEntity.status(HttpStatus.CREATED).body(savedPlan);
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<TrainingPlan> updateTrainingPlan(@PathVariable Long id, @RequestBody TrainingPlan trainingPlan, @RequestHeader("X-User-ID") String userId) {
+    public ResponseEntity<TrainingPlan> updateTrainingPlan(@PathVariable Long id, @RequestBody TrainingPlan trainingPlan, @RequestAttribute(JwtAuthenticationFilter.USER_ID_ATTRIBUTE) String userId) {
         Optional<TrainingPlan> updatedPlan = trainingPlanService.updateTrainingPlan(id, userId, trainingPlan);
         
         if (updatedPlan.isPresent()) {
@@ -53,8 +73,25 @@ public class TrainingPlanController {
         }
     }
 
+    @PatchMapping("/{id}")
+    public ResponseEntity<TrainingPlan> patchTrainingPlan(@PathVariable Long id, @RequestBody TrainingPlanPatch patch, @RequestAttribute(JwtAuthenticationFilter.USER_ID_ATTRIBUTE) String userId) {
+        try {
+            Optional<TrainingPlan> patchedPlan = trainingPlanService.patchTrainingPlan(id, userId, patch);
+            if (patchedPlan.isPresent()) {
+                return ResponseEntity.ok(patchedPlan.get());
+            } else {
+                return ResponseEntity.notFound().build();
+            }
+        } catch (ObjectOptimisticLockingFailureException e) {
+            // 競合時は現在の状態を返す
+            return trainingPlanService.getTrainingPlanById(id, userId)
+                .map(current -> ResponseEntity.status(HttpStatus.CONFLICT).body(current))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+        }
+    }
+
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteTrainingPlan(@PathVariable Long id, @RequestHeader("X-User-ID") String userId) {
+    public ResponseEntity<Void> deleteTrainingPlan(@PathVariable Long id, @RequestAttribute(JwtAuthenticationFilter.USER_ID_ATTRIBUTE) String userId) {
         boolean deleted = trainingPlanService.deleteTrainingPlan(id, userId);
         
         if (deleted) {
@@ -64,15 +101,54 @@ public class TrainingPlanController {
         }
     }
 
+    @PostMapping("/bulk")
+    public ResponseEntity<List<TrainingPlan>> createTrainingPlans(@RequestBody List<TrainingPlan> trainingPlans, @RequestAttribute(JwtAuthenticationFilter.USER_ID_ATTRIBUTE) String userId) {
+        if (trainingPlans.isEmpty() || trainingPlans.size() > MAX_BULK_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<TrainingPlan> savedPlans = trainingPlanService.createTrainingPlans(trainingPlans, userId);
+        return ResponseEntity.status(HttpStatus.CREATED).body(savedPlans);
+    }
+
+    @PutMapping("/bulk")
+    public ResponseEntity<List<TrainingPlan>> updateTrainingPlans(@RequestBody List<TrainingPlan> trainingPlans, @RequestAttribute(JwtAuthenticationFilter.USER_ID_ATTRIBUTE) String userId) {
+        if (trainingPlans.isEmpty() || trainingPlans.size() > MAX_BULK_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        Optional<List<TrainingPlan>> updatedPlans = trainingPlanService.updateTrainingPlans(trainingPlans, userId);
+        
+        if (updatedPlans.isPresent()) {
+            return ResponseEntity.ok(updatedPlans.get());
+        } else {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @DeleteMapping("/bulk")
+    public ResponseEntity<List<Long>> deleteTrainingPlans(@RequestParam List<Long> ids, @RequestAttribute(JwtAuthenticationFilter.USER_ID_ATTRIBUTE) String userId) {
+        if (ids.isEmpty() || ids.size() > MAX_BULK_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(trainingPlanService.deleteTrainingPlans(ids, userId));
+    }
+
     @GetMapping("/type/{type}")
-    public ResponseEntity<List<TrainingPlan>> getTrainingPlansByType(@PathVariable String type, @RequestHeader("X-User-ID") String userId) {
-        List<TrainingPlan> plans = trainingPlanService.getTrainingPlansByType(userId, type);
-        return ResponseEntity.ok(plans);
+    public ResponseEntity<List<TrainingPlanSummary>> getTrainingPlansByType(@PathVariable String type, @RequestAttribute(JwtAuthenticationFilter.USER_ID_ATTRIBUTE) String userId, WebRequest webRequest) {
+        String etag = userDataVersions.etag(userId, UserDataChangedEvent.Resource.TRAINING_PLAN);
+        if (webRequest.checkNotModified(etag)) {
+            return ConditionalResponses.notModified();
+        }
+        List<TrainingPlanSummary> plans = trainingPlanService.getTrainingPlansByType(userId, type);
+        return ConditionalResponses.ok(etag).body(plans);
     }
 
     @GetMapping("/difficulty/{difficulty}")
-    public ResponseEntity<List<TrainingPlan>> getTrainingPlansByDifficulty(@PathVariable String difficulty, @RequestHeader("X-User-ID") String userId) {
-        List<TrainingPlan> plans = trainingPlanService.getTrainingPlansByDifficulty(userId, difficulty);
-        return ResponseEntity.ok(plans);
+    public ResponseEntity<List<TrainingPlanSummary>> getTrainingPlansByDifficulty(@PathVariable String difficulty, @RequestAttribute(JwtAuthenticationFilter.USER_ID_ATTRIBUTE) String userId, WebRequest webRequest) {
+        String etag = userDataVersions.etag(userId, UserDataChangedEvent.Resource.TRAINING_PLAN);
+        if (webRequest.checkNotModified(etag)) {
+            return ConditionalResponses.notModified();
+        }
+        List<TrainingPlanSummary> plans = trainingPlanService.getTrainingPlansByDifficulty(userId, difficulty);
+        return ConditionalResponses.ok(etag).body(plans);
     }
 }
\ No newline at end of file
@@ -0,0 +1,94 @@
+package com.example.backend.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * トレーニング一覧のページング用カーソル。Base64URLで不透明な文字列にエンコードする。
+ * 通常の一覧は (createdAt, id)、全文検索の結果は関連度順のため (score, id) を位置として持つ。
+ */
+public final class TrainingCursor {
+
+    private static final String RANK_PREFIX = "r|";
+
+    private final LocalDateTime createdAt;
+    private final Integer score;
+    private final Long id;
+
+    public TrainingCursor(LocalDateTime createdAt, Long id) {
+        this(createdAt, null, id);
+    }
+
+    private TrainingCursor(LocalDateTime createdAt, Integer score, Long id) {
+        this.createdAt = createdAt;
+        this.score = score;
+        this.id = id;
+    }
+
+    public static TrainingCursor ofRank(int score, Long id) {
+        return new TrainingCursor(null, score, id);
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public Integer getScore() {
+        return score;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public boolean isRank() {
+        return score != null;
+    }
+
+    public String encode() {
+        String raw = isRank() ? RANK_PREFIX + score + "|" + id : createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException カーソルの形式が不正な場合
+     */
+    public static TrainingCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            Long id = Long.valueOf(raw.substring(separator + 1));
+            if (raw.startsWith(RANK_PREFIX)) {
+                return ofRank(Integer.parseInt(raw.substring(RANK_PREFIX.length(), separator)), id);
+            }
+            return new TrainingCursor(LocalDateTime.parse(raw.substring(0, separator)), id);
+        } catch (DateTimeParseException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TrainingCursor)) {
+            return false;
+        }
+        TrainingCursor other = (TrainingCursor) o;
+        return Objects.equals(createdAt, other.createdAt)
+            && Objects.equals(score, other.score)
+            && Objects.equals(id, other.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(createdAt, score, id);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.backend.dto;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * トレーニング一覧の検索条件。未設定(null)の項目は条件に含めない。
+ */
+public class TrainingFilter {
+
+    private String type;
+    private String difficulty;
+    private String search;
+    private Integer minDuration;
+    private Integer maxDuration;
+    private LocalDate from;
+    private LocalDate to;
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getDifficulty() {
+        return difficulty;
+    }
+
+    public void setDifficulty(String difficulty) {
+        this.difficulty = difficulty;
+    }
+
+    public String getSearch() {
+        return search;
+    }
+
+    public void setSearch(String search) {
+        this.search = search;
+    }
+
+    public Integer getMinDuration() {
+        return minDuration;
+    }
+
+    public void setMinDuration(Integer minDuration) {
+        this.minDuration = minDuration;
+    }
+
+    public Integer getMaxDuration() {
+        return maxDuration;
+    }
+
+    public void setMaxDuration(Integer maxDuration) {
+        this.maxDuration = maxDuration;
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public void setFrom(LocalDate from) {
+        this.from = from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    public void setTo(LocalDate to) {
+        this.to = to;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TrainingFilter)) {
+            return false;
+        }
+        TrainingFilter other = (TrainingFilter) o;
+        return Objects.equals(type, other.type)
+            && Objects.equals(difficulty, other.difficulty)
+            && Objects.equals(search, other.search)
+            && Objects.equals(minDuration, other.minDuration)
+            && Objects.equals(maxDuration, other.maxDuration)
+            && Objects.equals(from, other.from)
+            && Objects.equals(to, other.to);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, difficulty, search, minDuration, maxDuration, from, to);
+    }
+}
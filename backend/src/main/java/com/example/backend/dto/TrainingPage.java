@@ -0,0 +1,25 @@
+package com.example.backend.dto;
+
+import java.util.List;
+
+/**
+ * カーソルページングのレスポンス。nextCursor が null の場合は最終ページ。
+ */
+public class TrainingPage {
+
+    private final List<TrainingSummary> items;
+    private final String nextCursor;
+
+    public TrainingPage(List<TrainingSummary> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<TrainingSummary> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.backend.dto;
+
+/**
+ * トレーニングの部分更新（PATCH）。null の項目は変更しない。
+ * version を指定した場合、現在のバージョンと異なれば競合として扱う。
+ */
+public class TrainingPatch {
+
+    private String title;
+    private String description;
+    private String type;
+    private Integer durationMinutes;
+    private String difficulty;
+    private Long version;
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Integer getDurationMinutes() {
+        return durationMinutes;
+    }
+
+    public void setDurationMinutes(Integer durationMinutes) {
+        this.durationMinutes = durationMinutes;
+    }
+
+    public String getDifficulty() {
+        return difficulty;
+    }
+
+    public void setDifficulty(String difficulty) {
+        this.difficulty = difficulty;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.backend.dto;
+
+/**
+ * トレーニングプランの部分更新（PATCH）。null の項目は変更しない。
+ * version を指定した場合、現在のバージョンと異なれば競合として扱う。
+ */
+public class TrainingPlanPatch {
+
+    private String name;
+    private String description;
+    private String type;
+    private Integer duration;
+    private String difficulty;
+    private Long version;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Integer getDuration() {
+        return duration;
+    }
+
+    public void setDuration(Integer duration) {
+        this.duration = duration;
+    }
+
+    public String getDifficulty() {
+        return difficulty;
+    }
+
+    public void setDifficulty(String difficulty) {
+        this.difficulty = difficulty;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.backend.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * 一覧表示用のトレーニングプラン（クローズドプロジェクション）。
+ * 宣言した列だけが SELECT され、description は読み込まない。
+ */
+public interface TrainingPlanSummary {
+
+    Long getId();
+
+    String getName();
+
+    String getType();
+
+    Integer getDuration();
+
+    String getDifficulty();
+
+    LocalDateTime getCreatedAt();
+
+    LocalDateTime getUpdatedAt();
+}
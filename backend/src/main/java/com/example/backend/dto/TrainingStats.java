@@ -0,0 +1,61 @@
+package com.example.backend.dto;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * ダッシュボード用の集計結果。ロールアップのバケットを種類別・難易度別・週別に合算したもの。
+ */
+public class TrainingStats {
+
+    private final Totals total = new Totals();
+    private final Map<String, Totals> byType = new TreeMap<>();
+    private final Map<String, Totals> byDifficulty = new TreeMap<>();
+    private final Map<LocalDate, Totals> weekly = new TreeMap<>();
+
+    /**
+     * 回数と合計時間（分）。
+     */
+    public static class Totals {
+
+        private long sessions;
+        private long minutes;
+
+        public long getSessions() {
+            return sessions;
+        }
+
+        public long getMinutes() {
+            return minutes;
+        }
+
+        void add(long sessions, long minutes) {
+            this.sessions += sessions;
+            this.minutes += minutes;
+        }
+    }
+
+    public void add(String type, String difficulty, LocalDate weekStart, long sessions, long minutes) {
+        total.add(sessions, minutes);
+        byType.computeIfAbsent(type, key -> new Totals()).add(sessions, minutes);
+        byDifficulty.computeIfAbsent(difficulty, key -> new Totals()).add(sessions, minutes);
+        weekly.computeIfAbsent(weekStart, key -> new Totals()).add(sessions, minutes);
+    }
+
+    public Totals getTotal() {
+        return total;
+    }
+
+    public Map<String, Totals> getByType() {
+        return byType;
+    }
+
+    public Map<String, Totals> getByDifficulty() {
+        return byDifficulty;
+    }
+
+    public Map<LocalDate, Totals> getWeekly() {
+        return weekly;
+    }
+}
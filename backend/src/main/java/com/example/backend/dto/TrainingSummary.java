@@ -0,0 +1,103 @@
+package com.example.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 一覧表示用のトレーニング。description は含まず、詳細取得でのみ読み込む。
+ * fields で指定されなかった項目は null のままレスポンスから省かれる。
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TrainingSummary {
+
+    // 選択可能な項目（id と createdAt はカーソルに必要なため常に含める）
+    public static final List<String> FIELDS = List.of("id", "title", "type", "durationMinutes", "difficulty", "createdAt", "updatedAt");
+    private static final List<String> REQUIRED_FIELDS = List.of("id", "createdAt");
+
+    private Long id;
+    private String title;
+    private String type;
+    private Integer durationMinutes;
+    private String difficulty;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    /**
+     * fields パラメータを検証し、FIELDS の並び順に揃えた項目リストを返す。未指定なら全項目。
+     */
+    public static List<String> resolveFields(Collection<String> requested) {
+        if (requested == null || requested.isEmpty()) {
+            return FIELDS;
+        }
+        Set<String> selected = new LinkedHashSet<>(REQUIRED_FIELDS);
+        for (String field : requested) {
+            String name = field.trim();
+            if (!FIELDS.contains(name)) {
+                throw new IllegalArgumentException("unknown field: " + name);
+            }
+            selected.add(name);
+        }
+        return FIELDS.stream().filter(selected::contains).toList();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Integer getDurationMinutes() {
+        return durationMinutes;
+    }
+
+    public void setDurationMinutes(Integer durationMinutes) {
+        this.durationMinutes = durationMinutes;
+    }
+
+    public String getDifficulty() {
+        return difficulty;
+    }
+
+    public void setDifficulty(String difficulty) {
+        this.difficulty = difficulty;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
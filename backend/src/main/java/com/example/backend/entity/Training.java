@@ -1,14 +1,28 @@
 package com.example.backend.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "trainings")
+@Table(name = "trainings", indexes = {
+    @Index(name = "idx_trainings_user_created_id", columnList = "user_id, created_at, id"),
+    @Index(name = "idx_trainings_user_type_created", columnList = "user_id, type, created_at, id"),
+    @Index(name = "idx_trainings_user_difficulty_created", columnList = "user_id, difficulty, created_at, id"),
+    @Index(name = "idx_trainings_user_duration", columnList = "user_id, duration_minutes")
+})
+// 更新時は変更された列だけを UPDATE する
+@DynamicUpdate
+// 2次キャッシュ（更新・削除時はHibernateが無効化する）
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Training {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "trainings_seq")
+    @SequenceGenerator(name = "trainings_seq", sequenceName = "trainings_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -35,6 +49,10 @@ public class Training {
     @Column(nullable = false)
     private LocalDateTime updatedAt;
 
+    // 楽観ロック用。更新のたびに加算される
+    @Version
+    private Long version;
+
     // Constructors
     public Training() {}
 
@@ -122,6 +140,14 @@ public class Training {
         this.updatedAt = updatedAt;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @PrePersist
     public void prePersist() {
         this.createdAt = LocalDateTime.now();
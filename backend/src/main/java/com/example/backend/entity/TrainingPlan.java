@@ -1,14 +1,26 @@
 package com.example.backend.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "training_plans")
+@Table(name = "training_plans", indexes = {
+    @Index(name = "idx_training_plans_user_type", columnList = "user_id, type"),
+    @Index(name = "idx_training_plans_user_difficulty", columnList = "user_id, difficulty")
+})
+// 更新時は変更された列だけを UPDATE する
+@DynamicUpdate
+// 2次キャッシュ（更新・削除時はHibernateが無効化する）
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class TrainingPlan {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "training_plans_seq")
+    @SequenceGenerator(name = "training_plans_seq", sequenceName = "training_plans_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -35,6 +47,10 @@ public class TrainingPlan {
     @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt;
 
+    // 楽観ロック用。更新のたびに加算される
+    @Version
+    private Long version;
+
     // Constructors
     public TrainingPlan() {}
 
@@ -122,6 +138,14 @@ public class TrainingPlan {
         this.updatedAt = updatedAt;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @PreUpdate
     public void preUpdate() {
         this.updatedAt = LocalDateTime.now();
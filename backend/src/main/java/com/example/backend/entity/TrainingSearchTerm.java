@@ -0,0 +1,82 @@
+package com.example.backend.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * トレーニング全文検索用の転置インデックス（1行 = 1トレーニング × 1トークン）。
+ */
+@Entity
+@Table(name = "training_search_terms", indexes = {
+    @Index(name = "idx_search_terms_user_term", columnList = "user_id, term, weight DESC, training_id DESC"),
+    @Index(name = "idx_search_terms_training", columnList = "training_id")
+})
+public class TrainingSearchTerm {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "training_search_terms_seq")
+    @SequenceGenerator(name = "training_search_terms_seq", sequenceName = "training_search_terms_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private String userId;
+
+    @Column(nullable = false)
+    private Long trainingId;
+
+    @Column(nullable = false, length = 64)
+    private String term;
+
+    @Column(nullable = false)
+    private Integer weight; // タイトル: 3, 説明: 1 の合計
+
+    // Constructors
+    public TrainingSearchTerm() {}
+
+    public TrainingSearchTerm(String userId, Long trainingId, String term, Integer weight) {
+        this.userId = userId;
+        this.trainingId = trainingId;
+        this.term = term;
+        this.weight = weight;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public Long getTrainingId() {
+        return trainingId;
+    }
+
+    public void setTrainingId(Long trainingId) {
+        this.trainingId = trainingId;
+    }
+
+    public String getTerm() {
+        return term;
+    }
+
+    public void setTerm(String term) {
+        this.term = term;
+    }
+
+    public Integer getWeight() {
+        return weight;
+    }
+
+    public void setWeight(Integer weight) {
+        this.weight = weight;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.backend.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * トレーニング統計のロールアップ（1行 = ユーザー × 種類 × 難易度 × 週）。
+ * TrainingService の書き込みと同じトランザクションで差分を加算する。
+ */
+@Entity
+@Table(name = "training_stats", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_training_stats_bucket", columnNames = {"user_id", "type", "difficulty", "week_start"})
+}, indexes = {
+    @Index(name = "idx_training_stats_user_week", columnList = "user_id, week_start")
+})
+public class TrainingStatsBucket {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "training_stats_seq")
+    @SequenceGenerator(name = "training_stats_seq", sequenceName = "training_stats_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private String userId;
+
+    @Column(nullable = false)
+    private String type;
+
+    @Column(nullable = false)
+    private String difficulty;
+
+    @Column(nullable = false)
+    private LocalDate weekStart; // 週の初日（月曜日）
+
+    @Column(nullable = false)
+    private Long sessions; // 回数
+
+    @Column(nullable = false)
+    private Long totalMinutes; // 合計時間（分）
+
+    // Constructors
+    public TrainingStatsBucket() {}
+
+    public TrainingStatsBucket(String userId, String type, String difficulty, LocalDate weekStart, Long sessions, Long totalMinutes) {
+        this.userId = userId;
+        this.type = type;
+        this.difficulty = difficulty;
+        this.weekStart = weekStart;
+        this.sessions = sessions;
+        this.totalMinutes = totalMinutes;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getDifficulty() {
+        return difficulty;
+    }
+
+    public void setDifficulty(String difficulty) {
+        this.difficulty = difficulty;
+    }
+
+    public LocalDate getWeekStart() {
+        return weekStart;
+    }
+
+    public void setWeekStart(LocalDate weekStart) {
+        this.weekStart = weekStart;
+    }
+
+    public Long getSessions() {
+        return sessions;
+    }
+
+    public void setSessions(Long sessions) {
+        this.sessions = sessions;
+    }
+
+    public Long getTotalMinutes() {
+        return totalMinutes;
+    }
+
+    public void setTotalMinutes(Long totalMinutes) {
+        this.totalMinutes = totalMinutes;
+    }
+}
@@ -0,0 +1,326 @@
+package com.example.backend.event;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ユーザー毎の変更通知を SSE で配信する。コミット後の UserDataChangedEvent に連番を振って直近分を保持し、
+ * 再接続時は Last-Event-ID より後のイベントを再送する。再送できない場合は reset を送り、クライアントに再取得させる。
+ * 1ユーザーの処理（採番・履歴・送信キューへの追加・接続登録）は常に同じスレッドで順に行うため、イベントの順序と取りこぼしが無い。
+ *
+ * <p>送信は接続ごとの上限付きキューから送信用のスレッドで行い、遅いクライアントが他の接続への配信を待たせないようにする。
+ * キューが溢れた接続と、1回の送信が send-timeout を超えた接続は閉じる（クライアントは Last-Event-ID 付きで再接続して続きを受け取る）。
+ */
+@Component
+public class ChangeFeed {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeFeed.class);
+
+    private static final int STRIPES = 4;
+
+    // 再起動前の Last-Event-ID と区別するため、イベントIDに起動時刻を含める
+    private final String bootId = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong sequence = new AtomicLong();
+    private final ConcurrentMap<String, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final ExecutorService[] stripes = new ExecutorService[STRIPES];
+    private ExecutorService sender;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${change-feed.timeout}")
+    private Duration timeout;
+
+    @Value("${change-feed.history-size}")
+    private int historySize;
+
+    @Value("${change-feed.send-queue-size}")
+    private int sendQueueSize;
+
+    @Value("${change-feed.send-timeout}")
+    private Duration sendTimeout;
+
+    @Value("${cache.user-data.maximum-size}")
+    private long maximumUsers;
+
+    private Cache<String, History> histories;
+
+    /**
+     * 配信するイベント。id は "起動ID-連番"。
+     */
+    public static class Change {
+
+        private final long sequence;
+        private final UserDataChangedEvent.Resource resource;
+        private final UserDataChangedEvent.ChangeType changeType;
+        private final List<Long> ids;
+
+        Change(long sequence, UserDataChangedEvent event) {
+            this.sequence = sequence;
+            this.resource = event.getResource();
+            this.changeType = event.getChangeType();
+            this.ids = event.getEntityIds();
+        }
+
+        public UserDataChangedEvent.Resource getResource() {
+            return resource;
+        }
+
+        public UserDataChangedEvent.ChangeType getChangeType() {
+            return changeType;
+        }
+
+        public List<Long> getIds() {
+            return ids;
+        }
+    }
+
+    // 直近のイベント。truncatedThrough 以前の連番は再送できない
+    private static final class History {
+
+        private final Deque<Change> changes = new ArrayDeque<>();
+        private long truncatedThrough;
+
+        History(long truncatedThrough) {
+            this.truncatedThrough = truncatedThrough;
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        histories = Caffeine.newBuilder()
+            .maximumSize(maximumUsers)
+            .expireAfterAccess(Duration.ofHours(1))
+            .build();
+        for (int i = 0; i < STRIPES; i++) {
+            int stripe = i;
+            ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "change-feed-" + stripe);
+                thread.setDaemon(true);
+                return thread;
+            });
+            // 採番・キューへの追加の滞留は executor.queued / executor.active で確認できる
+            stripes[i] = ExecutorServiceMetrics.monitor(meterRegistry, executor, "change-feed-" + stripe);
+        }
+        // 送信中の接続ごとに1スレッドを使う（止まった接続が他の接続の送信スレッドを奪わないよう、数は制限しない）
+        AtomicLong senders = new AtomicLong();
+        ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "change-feed-send-" + senders.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 送信中の接続数は executor.active で確認できる
+        sender = ExecutorServiceMetrics.monitor(meterRegistry, executor, "change-feed-send");
+    }
+
+    @PreDestroy
+    void shutdown() {
+        for (ExecutorService stripe : stripes) {
+            stripe.shutdown();
+        }
+        subscribers.values().forEach(list -> list.forEach(subscriber -> subscriber.emitter.complete()));
+        sender.shutdown();
+    }
+
+    /**
+     * 接続を登録する。lastEventId があれば、それより後のイベントを先に再送する。
+     */
+    public SseEmitter subscribe(String userId, String lastEventId) {
+        return subscribe(userId, lastEventId, new SseEmitter(timeout.toMillis()));
+    }
+
+    SseEmitter subscribe(String userId, String lastEventId, SseEmitter emitter) {
+        // 再送する履歴が全て入るよう、キューは履歴の件数に送信待ちの上限を足した大きさにする
+        Subscriber subscriber = new Subscriber(userId, emitter, historySize + sendQueueSize);
+        // 登録前に切断された場合も登録しないよう、closed を立ててから外す
+        Runnable remove = subscriber::detach;
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(error -> remove.run());
+
+        stripeOf(userId).execute(() -> {
+            History history = histories.get(userId, key -> new History(sequence.get()));
+            Long lastSequence = parseSequence(lastEventId);
+            if (lastEventId != null && (lastSequence == null || lastSequence < history.truncatedThrough)) {
+                subscriber.offer(SseEmitter.event().id(eventId(sequence.get())).name("reset").data(""));
+            } else if (lastSequence != null) {
+                for (Change change : history.changes) {
+                    if (change.sequence > lastSequence) {
+                        subscriber.offer(event(change));
+                    }
+                }
+            }
+            // 変更が無くても再接続の起点になるIDを渡しておく
+            subscriber.offer(SseEmitter.event().id(eventId(sequence.get())).name("ready").data(""));
+            if (!subscriber.closed) {
+                subscribers.compute(userId, (key, list) -> {
+                    List<Subscriber> registered = list != null ? list : new CopyOnWriteArrayList<>();
+                    registered.add(subscriber);
+                    return registered;
+                });
+            }
+        });
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserDataChanged(UserDataChangedEvent event) {
+        String userId = event.getUserId();
+        stripeOf(userId).execute(() -> {
+            History history = histories.get(userId, key -> new History(sequence.get()));
+            Change change = new Change(sequence.incrementAndGet(), event);
+            history.changes.addLast(change);
+            while (history.changes.size() > historySize) {
+                history.truncatedThrough = history.changes.removeFirst().sequence;
+            }
+            for (Subscriber subscriber : subscribers.getOrDefault(userId, List.of())) {
+                subscriber.offer(event(change));
+            }
+        });
+    }
+
+    // 中継やロードバランサにアイドル接続を切られないよう、定期的にコメント行を送る。送信が止まったままの接続はここで閉じる
+    @Scheduled(fixedDelayString = "${change-feed.heartbeat-interval}", initialDelayString = "${change-feed.heartbeat-interval}")
+    public void heartbeat() {
+        long now = System.nanoTime();
+        subscribers.forEach((userId, list) -> stripeOf(userId).execute(() -> {
+            for (Subscriber subscriber : list) {
+                long since = subscriber.sendingSince;
+                if (since != 0 && now - since > sendTimeout.toNanos()) {
+                    subscriber.close(new IOException("SSE send timed out"));
+                } else {
+                    subscriber.offer(SseEmitter.event().comment("heartbeat"));
+                }
+            }
+        }));
+    }
+
+    private SseEmitter.SseEventBuilder event(Change change) {
+        return SseEmitter.event()
+            .id(eventId(change.sequence))
+            .name("change")
+            .data(change, MediaType.APPLICATION_JSON);
+    }
+
+    private void unregister(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.userId, (key, list) -> {
+            list.remove(subscriber);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    private ExecutorService stripeOf(String userId) {
+        return stripes[Math.floorMod(userId.hashCode(), STRIPES)];
+    }
+
+    // 1接続分の送信キュー。キューが空でなければ送信スレッドで1つずつ順に送る（同時に送るのは1スレッドだけ）
+    private final class Subscriber {
+
+        private final String userId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        // 送信中ならその開始時刻（System.nanoTime）、送信していなければ 0
+        private volatile long sendingSince;
+        private volatile boolean closed;
+
+        Subscriber(String userId, SseEmitter emitter, int capacity) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        void offer(SseEmitter.SseEventBuilder event) {
+            if (closed) {
+                return;
+            }
+            if (!queue.offer(event)) {
+                close(new IOException("SSE send queue overflow"));
+                return;
+            }
+            if (draining.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                SseEmitter.SseEventBuilder event;
+                while (!closed && (event = queue.poll()) != null) {
+                    sendingSince = System.nanoTime();
+                    emitter.send(event);
+                    sendingSince = 0;
+                }
+            } catch (IOException | IllegalStateException e) {
+                close(e);
+            } finally {
+                sendingSince = 0;
+                draining.set(false);
+            }
+            // 終了直前に追加されたイベントを取りこぼさない
+            if (!closed && !queue.isEmpty() && draining.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        void detach() {
+            closed = true;
+            queue.clear();
+            unregister(this);
+        }
+
+        // 送信中の接続は閉じる処理も送信の終わりを待つため、送信スレッドで閉じる
+        void close(Throwable cause) {
+            if (closed) {
+                return;
+            }
+            detach();
+            logger.debug("SSE送信ができないため接続を閉じます: {}", cause.getMessage());
+            sender.execute(() -> emitter.completeWithError(cause));
+        }
+    }
+
+    private String eventId(long sequence) {
+        return bootId + "-" + sequence;
+    }
+
+    // 別の起動のIDや不正な形式は null（再送不可）
+    private Long parseSequence(String lastEventId) {
+        if (lastEventId == null || !lastEventId.startsWith(bootId + "-")) {
+            return null;
+        }
+        try {
+            return Long.parseLong(lastEventId.substring(bootId.length() + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.backend.event;
+
+import java.util.List;
+
+/**
+ * ユーザーのデータが作成・更新・削除されたことを通知するイベント。
+ * サービスがトランザクション内で発行し、リスナーはコミット後に受け取る。
+ */
+public class UserDataChangedEvent {
+
+    public enum Resource {
+        TRAINING, TRAINING_PLAN
+    }
+
+    public enum ChangeType {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final String userId;
+    private final Resource resource;
+    private final ChangeType changeType;
+    private final List<Long> entityIds;
+
+    public UserDataChangedEvent(String userId, Resource resource, ChangeType changeType, Long entityId) {
+        this(userId, resource, changeType, List.of(entityId));
+    }
+
+    // 一括操作ではまとめて1件のイベントにする
+    public UserDataChangedEvent(String userId, Resource resource, ChangeType changeType, List<Long> entityIds) {
+        this.userId = userId;
+        this.resource = resource;
+        this.changeType = changeType;
+        this.entityIds = List.copyOf(entityIds);
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public Resource getResource() {
+        return resource;
+    }
+
+    public ChangeType getChangeType() {
+        return changeType;
+    }
+
+    public List<Long> getEntityIds() {
+        return entityIds;
+    }
+}
@@ -1,7 +1,11 @@
 package com.example.backend.repository;
 
+import com.example.backend.dto.TrainingPlanSummary;
 import com.example.backend.entity.TrainingPlan;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -10,13 +14,18 @@ import java.util.Optional;
 @Repository
 public interface TrainingPlanRepository extends JpaRepository<TrainingPlan, Long> {
     
-    List<TrainingPlan> findByUserId(String userId);
+    // 一覧は TrainingPlanSummary の列だけを読む。結果はクエリキャッシュに載せる（training_plans の更新で無効化される）
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<TrainingPlanSummary> findSummariesByUserId(String userId);
     
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<TrainingPlan> findByIdAndUserId(Long id, String userId);
     
     void deleteByIdAndUserId(Long id, String userId);
     
-    List<TrainingPlan> findByUserIdAndType(String userId, String type);
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<TrainingPlanSummary> findSummariesByUserIdAndType(String userId, String type);
     
-    List<TrainingPlan> findByUserIdAndDifficulty(String userId, String difficulty);
-}
\ No newline at end of file
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<TrainingPlanSummary> findSummariesByUserIdAndDifficulty(String userId, String difficulty);
+}
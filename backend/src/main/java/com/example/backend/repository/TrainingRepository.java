@@ -1,29 +1,36 @@
 package com.example.backend.repository;
 
 import com.example.backend.entity.Training;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface TrainingRepository extends JpaRepository<Training, Long> {
+public interface TrainingRepository extends JpaRepository<Training, Long>, JpaSpecificationExecutor<Training>, TrainingSummaryRepository {
     
-    // ユーザーIDでトレーニングを検索
-    List<Training> findByUserIdOrderByCreatedAtDesc(String userId);
+    // 一覧検索は TrainingSpecifications で条件を合成し、findSummaries で必要な列だけ読む
     
-    // トレーニングタイプで検索
-    List<Training> findByUserIdAndTypeOrderByCreatedAtDesc(String userId, String type);
+    // エクスポート用: 全件をメモリに載せずにカーソルで順に読む（トランザクション内で消費すること）
+    // 第2レベルキャッシュを使わない設定は呼び出し側のセッションで行う（ストリームの行は、クエリのヒントが戻された後に読み込まれるため）
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Training> streamByUserIdOrderByCreatedAtAscIdAsc(String userId);
     
-    // 難易度で検索
-    List<Training> findByUserIdAndDifficultyOrderByCreatedAtDesc(String userId, String difficulty);
+    // 統計ロールアップの再構築用: 種類・難易度・日ごとの件数と合計時間（[type, difficulty, day, count, minutes]）
+    @Query("SELECT t.type, t.difficulty, CAST(t.createdAt AS LocalDate), COUNT(t), SUM(t.durationMinutes) FROM Training t "
+        + "WHERE t.userId = :userId GROUP BY t.type, t.difficulty, CAST(t.createdAt AS LocalDate)")
+    List<Object[]> sumDailyTotals(@Param("userId") String userId);
     
-    // タイトル検索（部分一致）
-    @Query("SELECT t FROM Training t WHERE t.userId = :userId AND t.title LIKE %:title% ORDER BY t.createdAt DESC")
-    List<Training> findByUserIdAndTitleContaining(@Param("userId") String userId, @Param("title") String title);
-    
-    // 期間で検索
-    List<Training> findByUserIdAndDurationMinutesBetweenOrderByCreatedAtDesc(String userId, Integer minDuration, Integer maxDuration);
-}
\ No newline at end of file
+    @Query("SELECT DISTINCT t.userId FROM Training t")
+    List<String> findDistinctUserIds();
+}
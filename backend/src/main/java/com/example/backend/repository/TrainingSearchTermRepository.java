@@ -0,0 +1,35 @@
+package com.example.backend.repository;
+
+import com.example.backend.entity.TrainingSearchTerm;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface TrainingSearchTermRepository extends JpaRepository<TrainingSearchTerm, Long> {
+    
+    // 完全一致するトークンの投稿（[trainingId, weight]）。重みの大きい順・新しい順にインデックスを読み、limit 件で打ち切る
+    // ORDER BY はインデックスの列順（userId, term から）で書き、H2 が並べ替えずにインデックスの順で返すようにする
+    @Query("SELECT s.trainingId, s.weight FROM TrainingSearchTerm s WHERE s.userId = :userId AND s.term = :term "
+        + "ORDER BY s.userId, s.term, s.weight DESC, s.trainingId DESC")
+    List<Object[]> findPostings(@Param("userId") String userId, @Param("term") String term, Limit limit);
+    
+    // 前方一致（完全一致を除く）。LIKE ではなく from < term < to の範囲検索でインデックスを使い、トークン順に limit 件で打ち切る
+    @Query("SELECT s.trainingId, s.weight FROM TrainingSearchTerm s WHERE s.userId = :userId AND s.term > :from AND s.term < :to "
+        + "ORDER BY s.userId, s.term, s.weight DESC, s.trainingId DESC")
+    List<Object[]> findPostingsInRange(@Param("userId") String userId, @Param("from") String from, @Param("to") String to, Limit limit);
+    
+    @Modifying
+    @Query("DELETE FROM TrainingSearchTerm s WHERE s.trainingId = :trainingId")
+    void deleteByTrainingId(@Param("trainingId") Long trainingId);
+    
+    @Modifying
+    @Query("DELETE FROM TrainingSearchTerm s WHERE s.trainingId IN :trainingIds")
+    void deleteByTrainingIdIn(@Param("trainingIds") Collection<Long> trainingIds);
+}
@@ -0,0 +1,66 @@
+package com.example.backend.repository;
+
+import com.example.backend.dto.TrainingFilter;
+import com.example.backend.entity.Training;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * TrainingFilter の各条件を1本のWHERE句に合成する。
+ * search は転置インデックスで処理するため、ここでは扱わない。
+ */
+public final class TrainingSpecifications {
+
+    private TrainingSpecifications() {
+    }
+
+    public static Specification<Training> forUser(String userId, TrainingFilter filter) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            predicates.add(cb.equal(root.get("userId"), userId));
+
+            if (hasText(filter.getType())) {
+                predicates.add(cb.equal(root.get("type"), filter.getType().trim()));
+            }
+            if (hasText(filter.getDifficulty())) {
+                predicates.add(cb.equal(root.get("difficulty"), filter.getDifficulty().trim()));
+            }
+            if (filter.getMinDuration() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("durationMinutes"), filter.getMinDuration()));
+            }
+            if (filter.getMaxDuration() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("durationMinutes"), filter.getMaxDuration()));
+            }
+            if (filter.getFrom() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("createdAt"), filter.getFrom().atStartOfDay()));
+            }
+            if (filter.getTo() != null) {
+                // to は当日を含む
+                predicates.add(cb.lessThan(root.get("createdAt"), filter.getTo().plusDays(1).atStartOfDay()));
+            }
+
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    // 全文検索（TrainingSearchIndex）で絞り込んだIDに限定する
+    public static Specification<Training> idIn(Collection<Long> ids) {
+        return (root, query, cb) -> root.get("id").in(ids);
+    }
+
+    // 作成日時降順・ID降順でキーより後ろ（キーセットページング）
+    public static Specification<Training> createdBefore(LocalDateTime createdAt, Long id) {
+        return (root, query, cb) -> cb.or(
+            cb.lessThan(root.get("createdAt"), createdAt),
+            cb.and(cb.equal(root.get("createdAt"), createdAt), cb.lessThan(root.get("id"), id)));
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.trim().isEmpty();
+    }
+}
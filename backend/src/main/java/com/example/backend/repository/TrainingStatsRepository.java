@@ -0,0 +1,29 @@
+package com.example.backend.repository;
+
+import com.example.backend.entity.TrainingStatsBucket;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface TrainingStatsRepository extends JpaRepository<TrainingStatsBucket, Long> {
+    
+    // 差分を読み込まずに加算する（同じバケットへの同時更新でも失われない）。更新件数 0 ならバケット未作成
+    @Modifying
+    @Query("UPDATE TrainingStatsBucket b SET b.sessions = b.sessions + :sessions, b.totalMinutes = b.totalMinutes + :minutes "
+        + "WHERE b.userId = :userId AND b.type = :type AND b.difficulty = :difficulty AND b.weekStart = :weekStart")
+    int increment(@Param("userId") String userId, @Param("type") String type, @Param("difficulty") String difficulty,
+                  @Param("weekStart") LocalDate weekStart, @Param("sessions") long sessions, @Param("minutes") long minutes);
+    
+    @Query("SELECT b FROM TrainingStatsBucket b WHERE b.userId = :userId AND b.sessions > 0 AND b.weekStart >= :from AND b.weekStart <= :to")
+    List<TrainingStatsBucket> findActive(@Param("userId") String userId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+    
+    @Modifying
+    @Query("DELETE FROM TrainingStatsBucket b WHERE b.userId = :userId")
+    void deleteByUserId(@Param("userId") String userId);
+}
@@ -0,0 +1,20 @@
+package com.example.backend.repository;
+
+import com.example.backend.dto.TrainingSummary;
+import com.example.backend.entity.Training;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/**
+ * 一覧用に、指定した列だけを SELECT して TrainingSummary を返すリポジトリ断片。
+ */
+public interface TrainingSummaryRepository {
+
+    /**
+     * @param fields SELECT する項目（TrainingSummary.FIELDS のいずれか）
+     * @param limit  最大件数。0 以下なら制限なし
+     */
+    List<TrainingSummary> findSummaries(Specification<Training> spec, List<String> fields, Sort sort, int limit);
+}
@@ -0,0 +1,76 @@
+package com.example.backend.repository;
+
+import com.example.backend.dto.TrainingSummary;
+import com.example.backend.entity.Training;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+class TrainingSummaryRepositoryImpl implements TrainingSummaryRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<TrainingSummary> findSummaries(Specification<Training> spec, List<String> fields, Sort sort, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Training> root = query.from(Training.class);
+
+        List<Selection<?>> selections = new ArrayList<>(fields.size());
+        for (String field : fields) {
+            selections.add(root.get(field).alias(field));
+        }
+        query.multiselect(selections);
+
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        if (sort.isSorted()) {
+            query.orderBy(QueryUtils.toOrders(sort, root, cb));
+        }
+
+        TypedQuery<Tuple> typedQuery = entityManager.createQuery(query);
+        if (limit > 0) {
+            typedQuery.setMaxResults(limit);
+        }
+
+        List<Tuple> tuples = typedQuery.getResultList();
+        List<TrainingSummary> summaries = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            TrainingSummary summary = new TrainingSummary();
+            for (String field : fields) {
+                set(summary, field, tuple.get(field));
+            }
+            summaries.add(summary);
+        }
+        return summaries;
+    }
+
+    private void set(TrainingSummary summary, String field, Object value) {
+        switch (field) {
+            case "id" -> summary.setId((Long) value);
+            case "title" -> summary.setTitle((String) value);
+            case "type" -> summary.setType((String) value);
+            case "durationMinutes" -> summary.setDurationMinutes((Integer) value);
+            case "difficulty" -> summary.setDifficulty((String) value);
+            case "createdAt" -> summary.setCreatedAt((LocalDateTime) value);
+            case "updatedAt" -> summary.setUpdatedAt((LocalDateTime) value);
+            default -> throw new IllegalArgumentException("unknown field: " + field);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.backend.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 検索用トークナイザ。
+ * 英数字は単語単位、日本語（漢字・ひらがな・カタカナ）は空白で区切られないためバイグラムに分割する。
+ */
+public final class SearchTokenizer {
+
+    public static final int MAX_TERM_LENGTH = 64;
+
+    private SearchTokenizer() {
+    }
+
+    /**
+     * 検索語の1トークン。prefix が true の場合は前方一致で照合する。
+     */
+    public static final class QueryTerm {
+
+        private final String text;
+        private final boolean prefix;
+
+        QueryTerm(String text, boolean prefix) {
+            this.text = text;
+            this.prefix = prefix;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public boolean isPrefix() {
+            return prefix;
+        }
+    }
+
+    // インデックス登録用のトークン（重複なし）
+    public static Set<String> tokenize(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (Segment segment : segments(text)) {
+            if (segment.cjk) {
+                terms.addAll(bigrams(segment.text));
+            } else {
+                terms.add(truncate(segment.text));
+            }
+        }
+        return terms;
+    }
+
+    // 検索語のトークン。英数字の単語と1文字の日本語は入力途中とみなして前方一致にする
+    public static List<QueryTerm> tokenizeQuery(String query) {
+        List<QueryTerm> terms = new ArrayList<>();
+        for (Segment segment : segments(query)) {
+            if (segment.cjk && segment.text.codePointCount(0, segment.text.length()) > 1) {
+                for (String bigram : bigrams(segment.text)) {
+                    terms.add(new QueryTerm(bigram, false));
+                }
+            } else {
+                String term = truncate(segment.text);
+                terms.add(new QueryTerm(term, segment.cjk || term.length() >= 2));
+            }
+        }
+        return terms;
+    }
+
+    private static final class Segment {
+
+        private final String text;
+        private final boolean cjk;
+
+        Segment(String text, boolean cjk) {
+            this.text = text;
+            this.cjk = cjk;
+        }
+    }
+
+    private static List<Segment> segments(String text) {
+        List<Segment> segments = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return segments;
+        }
+
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        StringBuilder current = new StringBuilder();
+        boolean currentCjk = false;
+
+        for (int i = 0; i < normalized.length(); ) {
+            int codePoint = normalized.codePointAt(i);
+            i += Character.charCount(codePoint);
+
+            if (!Character.isLetterOrDigit(codePoint)) {
+                flush(segments, current, currentCjk);
+                continue;
+            }
+            boolean cjk = isCjk(codePoint);
+            if (current.length() > 0 && cjk != currentCjk) {
+                flush(segments, current, currentCjk);
+            }
+            currentCjk = cjk;
+            current.appendCodePoint(codePoint);
+        }
+        flush(segments, current, currentCjk);
+        return segments;
+    }
+
+    private static void flush(List<Segment> segments, StringBuilder current, boolean cjk) {
+        if (current.length() > 0) {
+            segments.add(new Segment(current.toString(), cjk));
+            current.setLength(0);
+        }
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+            || script == Character.UnicodeScript.HIRAGANA
+            || script == Character.UnicodeScript.KATAKANA;
+    }
+
+    private static List<String> bigrams(String text) {
+        int[] codePoints = text.codePoints().toArray();
+        List<String> bigrams = new ArrayList<>();
+        if (codePoints.length == 1) {
+            bigrams.add(text);
+            return bigrams;
+        }
+        for (int i = 0; i + 1 < codePoints.length; i++) {
+            bigrams.add(new String(codePoints, i, 2));
+        }
+        return bigrams;
+    }
+
+    // サロゲートペアの途中では切らない
+    static String truncate(String term) {
+        if (term.length() <= MAX_TERM_LENGTH) {
+            return term;
+        }
+        int end = MAX_TERM_LENGTH;
+        if (Character.isLowSurrogate(term.charAt(end)) && Character.isHighSurrogate(term.charAt(end - 1))) {
+            end--;
+        }
+        return term.substring(0, end);
+    }
+}
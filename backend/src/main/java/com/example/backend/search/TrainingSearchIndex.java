@@ -0,0 +1,190 @@
+package com.example.backend.search;
+
+import com.example.backend.cache.UserScopedCache;
+import com.example.backend.dto.TrainingCursor;
+import com.example.backend.entity.Training;
+import com.example.backend.entity.TrainingSearchTerm;
+import com.example.backend.repository.TrainingSearchTermRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * title / description の転置インデックス。TrainingService の書き込みと同じトランザクションで更新する。
+ */
+@Component
+public class TrainingSearchIndex {
+
+    private static final int TITLE_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    @Autowired
+    private TrainingSearchTermRepository searchTermRepository;
+
+    @Autowired
+    @Qualifier("trainingSearchRankingCache")
+    private UserScopedCache rankingCache;
+
+    @Value("${search.max-postings-per-term}")
+    private int maxPostingsPerTerm;
+
+    @Transactional
+    public void index(Training training) {
+        indexAll(List.of(training));
+    }
+
+    // 複数件のトークンをまとめて保存する（JDBCバッチで挿入される）
+    @Transactional
+    public void indexAll(Collection<Training> trainings) {
+        List<TrainingSearchTerm> terms = new ArrayList<>();
+        for (Training training : trainings) {
+            Map<String, Integer> weights = new HashMap<>();
+            for (String term : SearchTokenizer.tokenize(training.getTitle())) {
+                weights.merge(term, TITLE_WEIGHT, Integer::sum);
+            }
+            for (String term : SearchTokenizer.tokenize(training.getDescription())) {
+                weights.merge(term, DESCRIPTION_WEIGHT, Integer::sum);
+            }
+            weights.forEach((term, weight) ->
+                terms.add(new TrainingSearchTerm(training.getUserId(), training.getId(), term, weight)));
+        }
+        searchTermRepository.saveAll(terms);
+    }
+
+    @Transactional
+    public void reindex(Training training) {
+        reindexAll(List.of(training));
+    }
+
+    @Transactional
+    public void reindexAll(Collection<Training> trainings) {
+        if (trainings.isEmpty()) {
+            return;
+        }
+        removeAll(trainings.stream().map(Training::getId).toList());
+        indexAll(trainings);
+    }
+
+    @Transactional
+    public void remove(Long trainingId) {
+        searchTermRepository.deleteByTrainingId(trainingId);
+    }
+
+    @Transactional
+    public void removeAll(Collection<Long> trainingIds) {
+        if (!trainingIds.isEmpty()) {
+            searchTermRepository.deleteByTrainingIdIn(trainingIds);
+        }
+    }
+
+    /**
+     * 全トークンに一致するトレーニングIDをスコアの高い順（同点は新しい順）に、after より後ろの上位 limit 件だけ返す。
+     * 完全一致は前方一致の2倍のスコアとする。
+     * 1トークンあたりに読む投稿は max-postings-per-term 件まで（完全一致は重みの大きい順・新しい順、前方一致はトークン順）とし、
+     * 履歴が多くても読む量を抑える。並べた結果は利用者のデータが変わるまでキャッシュし、ページごとに作り直さない。
+     */
+    @Transactional(readOnly = true)
+    public LinkedHashMap<Long, Integer> rank(String userId, String query, TrainingCursor after, int limit) {
+        List<SearchTokenizer.QueryTerm> queryTerms = SearchTokenizer.tokenizeQuery(query);
+        LinkedHashMap<Long, Integer> ranked = new LinkedHashMap<>();
+        if (queryTerms.isEmpty()) {
+            return ranked;
+        }
+
+        // トークンには英数字・日本語しか含まれないため、* で前方一致を区別できる
+        List<String> key = queryTerms.stream()
+            .map(queryTerm -> queryTerm.isPrefix() ? queryTerm.getText() + '*' : queryTerm.getText())
+            .toList();
+        Ranking ranking = rankingCache.get(userId, key, () -> computeRanking(userId, queryTerms));
+        for (int i = after != null ? ranking.indexAfter(after) : 0; i < ranking.ids.length && ranked.size() < limit; i++) {
+            ranked.put(ranking.ids[i], ranking.scores[i]);
+        }
+        return ranked;
+    }
+
+    private Ranking computeRanking(String userId, List<SearchTokenizer.QueryTerm> queryTerms) {
+        Limit postings = Limit.of(maxPostingsPerTerm);
+        Map<Long, Integer> scores = null;
+        for (SearchTokenizer.QueryTerm queryTerm : queryTerms) {
+            Map<Long, Integer> termScores = new HashMap<>();
+            for (Object[] row : searchTermRepository.findPostings(userId, queryTerm.getText(), postings)) {
+                termScores.merge((Long) row[0], ((Number) row[1]).intValue() * 2, Integer::sum);
+            }
+            if (queryTerm.isPrefix()) {
+                String from = queryTerm.getText();
+                for (Object[] row : searchTermRepository.findPostingsInRange(userId, from, from + Character.MAX_VALUE, postings)) {
+                    termScores.merge((Long) row[0], ((Number) row[1]).intValue(), Integer::sum);
+                }
+            }
+
+            // AND検索: 前のトークンまでに一致したものだけを残す
+            if (scores == null) {
+                scores = termScores;
+            } else {
+                Map<Long, Integer> previous = scores;
+                scores = new HashMap<>();
+                for (Map.Entry<Long, Integer> entry : termScores.entrySet()) {
+                    Integer score = previous.get(entry.getKey());
+                    if (score != null) {
+                        scores.put(entry.getKey(), score + entry.getValue());
+                    }
+                }
+            }
+            if (scores.isEmpty()) {
+                break;
+            }
+        }
+
+        List<Map.Entry<Long, Integer>> ordered = new ArrayList<>(scores.entrySet());
+        ordered.sort(Map.Entry.<Long, Integer>comparingByValue().thenComparing(Map.Entry.comparingByKey()).reversed());
+        long[] ids = new long[ordered.size()];
+        int[] rankedScores = new int[ordered.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = ordered.get(i).getKey();
+            rankedScores[i] = ordered.get(i).getValue();
+        }
+        return new Ranking(ids, rankedScores);
+    }
+
+    // スコア降順・ID降順に並べた検索結果
+    private static final class Ranking {
+
+        private final long[] ids;
+        private final int[] scores;
+
+        Ranking(long[] ids, int[] scores) {
+            this.ids = ids;
+            this.scores = scores;
+        }
+
+        // カーソルより後ろの最初の位置（二分探索）
+        int indexAfter(TrainingCursor cursor) {
+            int low = 0;
+            int high = ids.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (isAfter(scores[mid], ids[mid], cursor)) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return low;
+        }
+    }
+
+    // スコア降順・ID降順でカーソルより後ろか
+    private static boolean isAfter(int score, long id, TrainingCursor cursor) {
+        return score < cursor.getScore() || (score == cursor.getScore() && id < cursor.getId());
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.backend.security;
+
+import com.auth0.jwt.interfaces.RSAKeyProvider;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.security.KeyFactory;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * KeyCloakのJWKS(公開鍵セット)をローカルにキャッシュする。
+ * jwks-uri は http(s): のほか file: / classpath: も指定でき、テストではファイルで代替できる。
+ * 定期的にバックグラウンドで再取得する。未知の kid が来た場合は jwks-min-refresh-interval に1回まで
+ * スケジューラーのスレッドで取り直し、そのリクエストは待たせずにすぐ失敗させる。
+ */
+@Component
+public class JwksKeyProvider implements RSAKeyProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwksKeyProvider.class);
+
+    @Value("${security.jwt.jwks-uri}")
+    private String jwksUri;
+
+    @Value("${security.jwt.jwks-min-refresh-interval}")
+    private Duration minRefreshInterval;
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private volatile Map<String, RSAPublicKey> keys = Map.of();
+
+    private final AtomicLong lastRefresh = new AtomicLong(System.nanoTime());
+
+    @PostConstruct
+    public void init() {
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${security.jwt.jwks-refresh-interval}", initialDelayString = "${security.jwt.jwks-refresh-interval}")
+    public void refresh() {
+        try {
+            Resource resource = resourceLoader.getResource(jwksUri);
+            JsonNode jwks;
+            try (InputStream in = resource.getInputStream()) {
+                jwks = objectMapper.readTree(in);
+            }
+
+            Map<String, RSAPublicKey> loaded = new HashMap<>();
+            KeyFactory keyFactory = KeyFactory.getInstance("RSA");
+            for (JsonNode jwk : jwks.path("keys")) {
+                if (!"RSA".equals(jwk.path("kty").asText()) || "enc".equals(jwk.path("use").asText())) {
+                    continue;
+                }
+                BigInteger modulus = new BigInteger(1, Base64.getUrlDecoder().decode(jwk.path("n").asText()));
+                BigInteger exponent = new BigInteger(1, Base64.getUrlDecoder().decode(jwk.path("e").asText()));
+                loaded.put(jwk.path("kid").asText(),
+                    (RSAPublicKey) keyFactory.generatePublic(new RSAPublicKeySpec(modulus, exponent)));
+            }
+
+            keys = Map.copyOf(loaded);
+            logger.debug("JWKSを取得しました: {} ({}件)", jwksUri, loaded.size());
+        } catch (Exception e) {
+            // 取得に失敗しても前回の鍵で検証を続ける
+            logger.warn("JWKSの取得に失敗しました: {} - {}", jwksUri, e.getMessage());
+        }
+    }
+
+    @Override
+    public RSAPublicKey getPublicKeyById(String keyId) {
+        RSAPublicKey key = keys.get(keyId);
+        if (key == null) {
+            // 鍵のローテーション直後。間隔内に取り直す権利を得た1リクエストだけが別スレッドで取得を始める
+            long last = lastRefresh.get();
+            long now = System.nanoTime();
+            if (now - last >= minRefreshInterval.toNanos() && lastRefresh.compareAndSet(last, now)) {
+                taskScheduler.schedule(this::refresh, Instant.now());
+            }
+        }
+        return key;
+    }
+
+    @Override
+    public RSAPrivateKey getPrivateKey() {
+        return null;
+    }
+
+    @Override
+    public String getPrivateKeyId() {
+        return null;
+    }
+}
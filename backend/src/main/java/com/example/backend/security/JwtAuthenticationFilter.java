@@ -0,0 +1,67 @@
+package com.example.backend.security;
+
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * /api/** へのリクエストの Bearer トークンを検証し、ユーザーID(sub)をリクエスト属性に設定する。
+ * コントローラーは @RequestAttribute(USER_ID_ATTRIBUTE) で受け取る。
+ */
+@Component
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+
+    public static final String USER_ID_ATTRIBUTE = "authenticatedUserId";
+
+    private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    @Autowired
+    private JwtTokenVerifier tokenVerifier;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/") || "OPTIONS".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (authorization == null || !authorization.startsWith(BEARER_PREFIX)) {
+            logger.warn("Invalid Authorization header format: {} {}", request.getMethod(), request.getRequestURI());
+            reject(response, "Missing bearer token");
+            return;
+        }
+
+        String userId;
+        try {
+            userId = tokenVerifier.verify(authorization.substring(BEARER_PREFIX.length()));
+        } catch (JWTVerificationException e) {
+            logger.warn("JWT検証エラー: {}", e.getMessage());
+            reject(response, e.getMessage());
+            return;
+        }
+
+        logger.debug("JWT認証成功 - ユーザーID: {}", userId);
+        request.setAttribute(USER_ID_ATTRIBUTE, userId);
+        filterChain.doFilter(request, response);
+    }
+
+    private void reject(HttpServletResponse response, String description) throws IOException {
+        response.setHeader(HttpHeaders.WWW_AUTHENTICATE,
+            "Bearer error=\"invalid_token\", error_description=\"" + description.replace("\"", "'") + "\"");
+        response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.backend.security;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * JWTの署名・発行者・有効期限と、このAPI宛てであること（aud に audience を含むか、azp が audience）を検証し、subject を返す。
+ * 検証済みトークンは有効期限までキャッシュし、同じトークンの再検証（Base64/JSON解析・RSA検証）を省く。
+ */
+@Component
+public class JwtTokenVerifier {
+
+    @Value("${security.jwt.issuer}")
+    private String issuer;
+
+    // KeyCloak のアクセストークンは aud に既定でこのAPIを含まないため、発行先クライアント（azp）でも受け付ける
+    @Value("${security.jwt.audience}")
+    private String audience;
+
+    @Value("${security.jwt.leeway-seconds}")
+    private long leewaySeconds;
+
+    @Value("${security.jwt.cache-max-size}")
+    private long cacheMaxSize;
+
+    @Autowired
+    private JwksKeyProvider keyProvider;
+
+    private JWTVerifier verifier;
+
+    private Cache<String, VerifiedToken> verifiedTokens;
+
+    private static final class VerifiedToken {
+
+        private final String subject;
+        private final Instant expiresAt;
+
+        VerifiedToken(String subject, Instant expiresAt) {
+            this.subject = subject;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        verifier = JWT.require(Algorithm.RSA256(keyProvider))
+            .withIssuer(issuer)
+            .acceptLeeway(leewaySeconds)
+            .build();
+
+        verifiedTokens = Caffeine.newBuilder()
+            .maximumSize(cacheMaxSize)
+            .expireAfter(new Expiry<String, VerifiedToken>() {
+                @Override
+                public long expireAfterCreate(String token, VerifiedToken verified, long currentTime) {
+                    long remainingMillis = verified.expiresAt.toEpochMilli() - System.currentTimeMillis();
+                    return Math.max(0, remainingMillis) * 1_000_000;
+                }
+
+                @Override
+                public long expireAfterUpdate(String token, VerifiedToken verified, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+
+                @Override
+                public long expireAfterRead(String token, VerifiedToken verified, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .build();
+    }
+
+    /**
+     * @throws JWTVerificationException 署名・発行者・有効期限・宛先のいずれかが不正な場合
+     */
+    public String verify(String token) {
+        VerifiedToken cached = verifiedTokens.getIfPresent(token);
+        if (cached != null) {
+            return cached.subject;
+        }
+
+        DecodedJWT decoded = verifier.verify(token);
+        if (decoded.getSubject() == null || decoded.getExpiresAtAsInstant() == null) {
+            throw new JWTVerificationException("Token must have sub and exp claims");
+        }
+        List<String> audiences = decoded.getAudience();
+        if (!(audiences != null && audiences.contains(audience)) && !audience.equals(decoded.getClaim("azp").asString())) {
+            throw new JWTVerificationException("Token is not intended for " + audience);
+        }
+
+        verifiedTokens.put(token, new VerifiedToken(decoded.getSubject(), decoded.getExpiresAtAsInstant()));
+        return decoded.getSubject();
+    }
+}
@@ -1,13 +1,24 @@
 package com.example.backend.service;
 
+import com.example.backend.cache.UserScopedCache;
+import com.example.backend.dto.TrainingPlanPatch;
+import com.example.backend.dto.TrainingPlanSummary;
 import com.example.backend.entity.TrainingPlan;
+import com.example.backend.event.UserDataChangedEvent;
 import com.example.backend.repository.TrainingPlanRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
 @Service
@@ -17,8 +28,16 @@ public class TrainingPlanService {
     @Autowired
     private TrainingPlanRepository trainingPlanRepository;
 
-    public List<TrainingPlan> getAllTrainingPlans(String userId) {
-        return trainingPlanRepository.findByUserId(userId);
+    @Autowired
+    @Qualifier("trainingPlanListCache")
+    private UserScopedCache trainingPlanListCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    public List<TrainingPlanSummary> getAllTrainingPlans(String userId) {
+        return trainingPlanListCache.get(userId, "all",
+            () -> List.copyOf(trainingPlanRepository.findSummariesByUserId(userId)));
     }
 
     public Optional<TrainingPlan> getTrainingPlanById(Long id, String userId) {
@@ -26,9 +45,14 @@ public class TrainingPlanService {
     }
 
     public TrainingPlan createTrainingPlan(TrainingPlan trainingPlan) {
+        // 新規として INSERT させるため、クライアントが送った ID・バージョンは使わない
+        trainingPlan.setId(null);
+        trainingPlan.setVersion(null);
         trainingPlan.setCreatedAt(LocalDateTime.now());
         trainingPlan.setUpdatedAt(LocalDateTime.now());
-        return trainingPlanRepository.save(trainingPlan);
+        TrainingPlan saved = trainingPlanRepository.save(trainingPlan);
+        publishChange(saved.getUserId(), UserDataChangedEvent.ChangeType.CREATED, saved.getId());
+        return saved;
     }
 
     public Optional<TrainingPlan> updateTrainingPlan(Long id, String userId, TrainingPlan updatedPlan) {
@@ -43,28 +67,141 @@ public class TrainingPlanService {
             plan.setDifficulty(updatedPlan.getDifficulty());
             plan.setUpdatedAt(LocalDateTime.now());
             
-            return Optional.of(trainingPlanRepository.save(plan));
+            TrainingPlan saved = trainingPlanRepository.save(plan);
+            publishChange(userId, UserDataChangedEvent.ChangeType.UPDATED, id);
+            return Optional.of(saved);
         }
         
         return Optional.empty();
     }
 
+    // 部分更新。指定された項目だけを変更し、@DynamicUpdate により変更された列だけが UPDATE される。
+    // version が現在の値と異なる場合、またはコミット時に他の更新と競合した場合は ObjectOptimisticLockingFailureException
+    public Optional<TrainingPlan> patchTrainingPlan(Long id, String userId, TrainingPlanPatch patch) {
+        Optional<TrainingPlan> existingPlan = trainingPlanRepository.findByIdAndUserId(id, userId);
+        if (existingPlan.isEmpty()) {
+            return Optional.empty();
+        }
+
+        TrainingPlan plan = existingPlan.get();
+        if (patch.getVersion() != null && !patch.getVersion().equals(plan.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(TrainingPlan.class, id);
+        }
+
+        boolean changed = false;
+        if (patch.getName() != null && !patch.getName().equals(plan.getName())) {
+            plan.setName(patch.getName());
+            changed = true;
+        }
+        if (patch.getDescription() != null && !patch.getDescription().equals(plan.getDescription())) {
+            plan.setDescription(patch.getDescription());
+            changed = true;
+        }
+        if (patch.getType() != null && !patch.getType().equals(plan.getType())) {
+            plan.setType(patch.getType());
+            changed = true;
+        }
+        if (patch.getDuration() != null && !patch.getDuration().equals(plan.getDuration())) {
+            plan.setDuration(patch.getDuration());
+            changed = true;
+        }
+        if (patch.getDifficulty() != null && !patch.getDifficulty().equals(plan.getDifficulty())) {
+            plan.setDifficulty(patch.getDifficulty());
+            changed = true;
+        }
+
+        if (changed) {
+            publishChange(userId, UserDataChangedEvent.ChangeType.UPDATED, id);
+        }
+        return Optional.of(plan);
+    }
+
     public boolean deleteTrainingPlan(Long id, String userId) {
         Optional<TrainingPlan> plan = trainingPlanRepository.findByIdAndUserId(id, userId);
         
         if (plan.isPresent()) {
             trainingPlanRepository.deleteByIdAndUserId(id, userId);
+            publishChange(userId, UserDataChangedEvent.ChangeType.DELETED, id);
             return true;
         }
         
         return false;
     }
 
-    public List<TrainingPlan> getTrainingPlansByType(String userId, String type) {
-        return trainingPlanRepository.findByUserIdAndType(userId, type);
+    public List<TrainingPlan> createTrainingPlans(List<TrainingPlan> trainingPlans, String userId) {
+        LocalDateTime now = LocalDateTime.now();
+        for (TrainingPlan plan : trainingPlans) {
+            plan.setId(null);
+            plan.setVersion(null);
+            plan.setUserId(userId);
+            plan.setCreatedAt(now);
+            plan.setUpdatedAt(now);
+        }
+        List<TrainingPlan> saved = trainingPlanRepository.saveAll(trainingPlans);
+        publishChange(userId, UserDataChangedEvent.ChangeType.CREATED, saved.stream().map(TrainingPlan::getId).toList());
+        return saved;
+    }
+
+    // 1件でも存在しない（他ユーザーの）IDが含まれる場合は何も更新しない
+    public Optional<List<TrainingPlan>> updateTrainingPlans(List<TrainingPlan> updatedPlans, String userId) {
+        Map<Long, TrainingPlan> existing = findOwned(updatedPlans.stream().map(TrainingPlan::getId).toList(), userId);
+        if (updatedPlans.stream().anyMatch(updated -> !existing.containsKey(updated.getId()))) {
+            return Optional.empty();
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<TrainingPlan> plans = new ArrayList<>(updatedPlans.size());
+        for (TrainingPlan updatedPlan : updatedPlans) {
+            TrainingPlan plan = existing.get(updatedPlan.getId());
+            plan.setName(updatedPlan.getName());
+            plan.setDescription(updatedPlan.getDescription());
+            plan.setType(updatedPlan.getType());
+            plan.setDuration(updatedPlan.getDuration());
+            plan.setDifficulty(updatedPlan.getDifficulty());
+            plan.setUpdatedAt(now);
+            plans.add(plan);
+        }
+        publishChange(userId, UserDataChangedEvent.ChangeType.UPDATED, plans.stream().map(TrainingPlan::getId).toList());
+        return Optional.of(plans);
+    }
+
+    // 削除したIDを返す（存在しない・他ユーザーのIDは無視）
+    public List<Long> deleteTrainingPlans(List<Long> ids, String userId) {
+        Map<Long, TrainingPlan> existing = findOwned(ids, userId);
+        if (existing.isEmpty()) {
+            return List.of();
+        }
+        List<Long> deletedIds = List.copyOf(existing.keySet());
+        trainingPlanRepository.deleteAllInBatch(existing.values());
+        publishChange(userId, UserDataChangedEvent.ChangeType.DELETED, deletedIds);
+        return deletedIds;
+    }
+
+    public List<TrainingPlanSummary> getTrainingPlansByType(String userId, String type) {
+        return trainingPlanListCache.get(userId, List.of("type", type),
+            () -> List.copyOf(trainingPlanRepository.findSummariesByUserIdAndType(userId, type)));
+    }
+
+    public List<TrainingPlanSummary> getTrainingPlansByDifficulty(String userId, String difficulty) {
+        return trainingPlanListCache.get(userId, List.of("difficulty", difficulty),
+            () -> List.copyOf(trainingPlanRepository.findSummariesByUserIdAndDifficulty(userId, difficulty)));
+    }
+
+    private Map<Long, TrainingPlan> findOwned(List<Long> ids, String userId) {
+        Map<Long, TrainingPlan> owned = new HashMap<>();
+        for (TrainingPlan plan : trainingPlanRepository.findAllById(ids.stream().filter(Objects::nonNull).toList())) {
+            if (plan.getUserId().equals(userId)) {
+                owned.put(plan.getId(), plan);
+            }
+        }
+        return owned;
+    }
+
+    private void publishChange(String userId, UserDataChangedEvent.ChangeType changeType, Long id) {
+        publishChange(userId, changeType, List.of(id));
     }
 
-    public List<TrainingPlan> getTrainingPlansByDifficulty(String userId, String difficulty) {
-        return trainingPlanRepository.findByUserIdAndDifficulty(userId, difficulty);
+    private void publishChange(String userId, UserDataChangedEvent.ChangeType changeType, List<Long> ids) {
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId, UserDataChangedEvent.Resource.TRAINING_PLAN, changeType, ids));
     }
 }
\ No newline at end of file
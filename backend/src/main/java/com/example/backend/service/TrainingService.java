@@ -1,22 +1,127 @@
 package com.example.backend.service;
 
+import com.example.backend.cache.UserScopedCache;
+import com.example.backend.dto.TrainingCursor;
+import com.example.backend.dto.TrainingFilter;
+import com.example.backend.dto.TrainingPage;
+import com.example.backend.dto.TrainingPatch;
+import com.example.backend.dto.TrainingStats;
+import com.example.backend.dto.TrainingSummary;
 import com.example.backend.entity.Training;
+import com.example.backend.entity.TrainingStatsBucket;
+import com.example.backend.event.UserDataChangedEvent;
 import com.example.backend.repository.TrainingRepository;
+import com.example.backend.repository.TrainingSpecifications;
+import com.example.backend.repository.TrainingStatsRepository;
+import com.example.backend.search.TrainingSearchIndex;
+import com.example.backend.stats.TrainingStatsRollup;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class TrainingService {
 
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id"));
+    private static final int SEARCH_CHUNK_SIZE = 200;
+    // ページングしない一覧で search を指定した場合に返す上限（関連度の高い順）
+    private static final int MAX_UNPAGED_SEARCH_RESULTS = 500;
+
     @Autowired
     private TrainingRepository trainingRepository;
 
-    // 全トレーニング取得（ユーザー別）
-    public List<Training> getAllTrainings(String userId) {
-        return trainingRepository.findByUserIdOrderByCreatedAtDesc(userId);
+    @Autowired
+    private TrainingSearchIndex trainingSearchIndex;
+
+    @Autowired
+    private TrainingStatsRollup trainingStatsRollup;
+
+    @Autowired
+    private TrainingStatsRepository trainingStatsRepository;
+
+    @Autowired
+    @Qualifier("trainingListCache")
+    private UserScopedCache trainingListCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // 条件に一致するトレーニング取得（ユーザー別）。一覧では fields の列だけを読む
+    public List<TrainingSummary> findTrainings(String userId, TrainingFilter filter, List<String> fields) {
+        return trainingListCache.get(userId, Arrays.asList(filter, fields), () -> {
+            if (hasText(filter.getSearch())) {
+                return searchTrainings(userId, filter, fields, null, MAX_UNPAGED_SEARCH_RESULTS).getItems();
+            }
+            return List.copyOf(trainingRepository.findSummaries(TrainingSpecifications.forUser(userId, filter), fields, NEWEST_FIRST, 0));
+        });
+    }
+
+    // 条件に一致するトレーニング取得（カーソルページング）。search 指定時は関連度順
+    public TrainingPage findTrainings(String userId, TrainingFilter filter, List<String> fields, TrainingCursor cursor, int limit) {
+        return trainingListCache.get(userId, Arrays.asList(filter, fields, cursor, limit), () -> {
+            if (hasText(filter.getSearch())) {
+                return searchTrainings(userId, filter, fields, cursor, limit);
+            }
+            Specification<Training> spec = TrainingSpecifications.forUser(userId, filter);
+            if (cursor != null) {
+                spec = spec.and(TrainingSpecifications.createdBefore(cursor.getCreatedAt(), cursor.getId()));
+            }
+            // 1件多く読んで次ページの有無を判定する
+            List<TrainingSummary> items = trainingRepository.findSummaries(spec, fields, NEWEST_FIRST, limit + 1);
+            String nextCursor = null;
+            if (items.size() > limit) {
+                items = items.subList(0, limit);
+                TrainingSummary last = items.get(limit - 1);
+                nextCursor = new TrainingCursor(last.getCreatedAt(), last.getId()).encode();
+            }
+            return new TrainingPage(List.copyOf(items), nextCursor);
+        });
+    }
+
+    // 統計（ロールアップのバケットを合算する）。from / to は週の初日で絞り込む
+    public TrainingStats getStats(String userId, LocalDate from, LocalDate to) {
+        return trainingListCache.get(userId, Arrays.asList("stats", from, to), () -> {
+            LocalDate fromWeek = from != null ? TrainingStatsRollup.weekStart(from) : LocalDate.of(1970, 1, 1);
+            LocalDate toDate = to != null ? to : LocalDate.of(9999, 12, 31);
+            TrainingStats stats = new TrainingStats();
+            for (TrainingStatsBucket bucket : trainingStatsRepository.findActive(userId, fromWeek, toDate)) {
+                stats.add(bucket.getType(), bucket.getDifficulty(), bucket.getWeekStart(), bucket.getSessions(), bucket.getTotalMinutes());
+            }
+            return stats;
+        });
+    }
+
+    // ユーザーの統計ロールアップを trainings から作り直す
+    @Transactional
+    public int rebuildStats(String userId) {
+        int buckets = trainingStatsRollup.rebuild(userId);
+        publishChange(userId, UserDataChangedEvent.ChangeType.UPDATED, List.of());
+        return buckets;
     }
 
     // IDでトレーニング取得
@@ -30,54 +135,257 @@ public class TrainingService {
     }
 
     // トレーニング作成
+    @Transactional
     public Training createTraining(Training training) {
-        return trainingRepository.save(training);
+        // 新規として INSERT させるため、クライアントが送った ID・バージョンは使わない
+        training.setId(null);
+        training.setVersion(null);
+        Training saved = trainingRepository.save(training);
+        trainingSearchIndex.index(saved);
+        trainingStatsRollup.added(List.of(saved));
+        publishChange(saved.getUserId(), UserDataChangedEvent.ChangeType.CREATED, saved.getId());
+        return saved;
     }
 
     // トレーニング更新
+    @Transactional
     public Optional<Training> updateTraining(Long id, Training trainingDetails, String userId) {
         Optional<Training> trainingOpt = getTrainingById(id, userId);
         
         if (trainingOpt.isPresent()) {
             Training training = trainingOpt.get();
-            training.setTitle(trainingDetails.getTitle());
-            training.setDescription(trainingDetails.getDescription());
-            training.setType(trainingDetails.getType());
-            training.setDurationMinutes(trainingDetails.getDurationMinutes());
-            training.setDifficulty(trainingDetails.getDifficulty());
-            return Optional.of(trainingRepository.save(training));
+            TrainingStatsRollup.Contribution before = TrainingStatsRollup.Contribution.of(training);
+            boolean textChanged = applyDetails(training, trainingDetails);
+            Training saved = trainingRepository.save(training);
+            trainingStatsRollup.apply(List.of(before), List.of(TrainingStatsRollup.Contribution.of(saved)));
+            if (textChanged) {
+                trainingSearchIndex.reindex(saved);
+            }
+            publishChange(userId, UserDataChangedEvent.ChangeType.UPDATED, id);
+            return Optional.of(saved);
         }
         
         return Optional.empty();
     }
 
+    // 部分更新。指定された項目だけを変更し、@DynamicUpdate により変更された列だけが UPDATE される。
+    // version が現在の値と異なる場合、またはコミット時に他の更新と競合した場合は ObjectOptimisticLockingFailureException
+    @Transactional
+    public Optional<Training> patchTraining(Long id, TrainingPatch patch, String userId) {
+        Optional<Training> trainingOpt = getTrainingById(id, userId);
+        if (trainingOpt.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Training training = trainingOpt.get();
+        if (patch.getVersion() != null && !patch.getVersion().equals(training.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(Training.class, id);
+        }
+
+        TrainingStatsRollup.Contribution before = TrainingStatsRollup.Contribution.of(training);
+        boolean textChanged = false;
+        boolean changed = false;
+        if (patch.getTitle() != null && !patch.getTitle().equals(training.getTitle())) {
+            training.setTitle(patch.getTitle());
+            textChanged = true;
+        }
+        if (patch.getDescription() != null && !patch.getDescription().equals(training.getDescription())) {
+            training.setDescription(patch.getDescription());
+            textChanged = true;
+        }
+        if (patch.getType() != null && !patch.getType().equals(training.getType())) {
+            training.setType(patch.getType());
+            changed = true;
+        }
+        if (patch.getDurationMinutes() != null && !patch.getDurationMinutes().equals(training.getDurationMinutes())) {
+            training.setDurationMinutes(patch.getDurationMinutes());
+            changed = true;
+        }
+        if (patch.getDifficulty() != null && !patch.getDifficulty().equals(training.getDifficulty())) {
+            training.setDifficulty(patch.getDifficulty());
+            changed = true;
+        }
+
+        if (textChanged) {
+            trainingSearchIndex.reindex(training);
+        }
+        if (changed) {
+            trainingStatsRollup.apply(List.of(before), List.of(TrainingStatsRollup.Contribution.of(training)));
+        }
+        if (textChanged || changed) {
+            publishChange(userId, UserDataChangedEvent.ChangeType.UPDATED, id);
+        }
+        return Optional.of(training);
+    }
+
     // トレーニング削除
+    @Transactional
     public boolean deleteTraining(Long id, String userId) {
         Optional<Training> training = getTrainingById(id, userId);
         if (training.isPresent()) {
+            trainingSearchIndex.remove(id);
+            trainingStatsRollup.removed(List.of(training.get()));
             trainingRepository.delete(training.get());
+            publishChange(userId, UserDataChangedEvent.ChangeType.DELETED, id);
             return true;
         }
         return false;
     }
 
-    // タイプで検索
-    public List<Training> getTrainingsByType(String userId, String type) {
-        return trainingRepository.findByUserIdAndTypeOrderByCreatedAtDesc(userId, type);
+    // 全件エクスポート。1件ずつ consumer に渡し、渡し終えたエンティティは永続化コンテキストから外す
+    // 一度しか読まない全履歴で第2レベルキャッシュを埋めてよく使うエントリーを追い出さないよう、読み終えるまでキャッシュを読み書きしない
+    @Transactional(readOnly = true)
+    public long streamTrainings(String userId, Consumer<Training> consumer) {
+        Session session = entityManager.unwrap(Session.class);
+        CacheMode cacheMode = session.getCacheMode();
+        session.setCacheMode(CacheMode.IGNORE);
+        long count = 0;
+        try (Stream<Training> trainings = trainingRepository.streamByUserIdOrderByCreatedAtAscIdAsc(userId)) {
+            for (Iterator<Training> it = trainings.iterator(); it.hasNext(); ) {
+                Training training = it.next();
+                consumer.accept(training);
+                entityManager.detach(training);
+                count++;
+            }
+        } finally {
+            session.setCacheMode(cacheMode);
+        }
+        return count;
+    }
+
+    // 一括作成。IDはシーケンスから事前に採番されるため、INSERTはJDBCバッチでまとめて送られる
+    @Transactional
+    public List<Training> createTrainings(List<Training> trainings, String userId) {
+        for (Training training : trainings) {
+            training.setId(null);
+            training.setVersion(null);
+            training.setUserId(userId);
+        }
+        List<Training> saved = trainingRepository.saveAll(trainings);
+        trainingSearchIndex.indexAll(saved);
+        trainingStatsRollup.added(saved);
+        publishChange(userId, UserDataChangedEvent.ChangeType.CREATED, saved.stream().map(Training::getId).toList());
+        return saved;
+    }
+
+    // 一括更新。1件でも存在しない（他ユーザーの）IDが含まれる場合は何も更新しない
+    @Transactional
+    public Optional<List<Training>> updateTrainings(List<Training> trainingDetails, String userId) {
+        Map<Long, Training> existing = findOwned(trainingDetails.stream().map(Training::getId).toList(), userId);
+        if (trainingDetails.stream().anyMatch(details -> !existing.containsKey(details.getId()))) {
+            return Optional.empty();
+        }
+
+        List<Training> updated = new ArrayList<>(trainingDetails.size());
+        List<Training> textChanged = new ArrayList<>();
+        List<TrainingStatsRollup.Contribution> before = new ArrayList<>(trainingDetails.size());
+        List<TrainingStatsRollup.Contribution> after = new ArrayList<>(trainingDetails.size());
+        for (Training details : trainingDetails) {
+            Training training = existing.get(details.getId());
+            before.add(TrainingStatsRollup.Contribution.of(training));
+            if (applyDetails(training, details)) {
+                textChanged.add(training);
+            }
+            after.add(TrainingStatsRollup.Contribution.of(training));
+            updated.add(training);
+        }
+        trainingSearchIndex.reindexAll(textChanged);
+        trainingStatsRollup.apply(before, after);
+        publishChange(userId, UserDataChangedEvent.ChangeType.UPDATED, updated.stream().map(Training::getId).toList());
+        return Optional.of(updated);
+    }
+
+    // 一括削除。削除したIDを返す（存在しない・他ユーザーのIDは無視）
+    @Transactional
+    public List<Long> deleteTrainings(List<Long> ids, String userId) {
+        Map<Long, Training> existing = findOwned(ids, userId);
+        if (existing.isEmpty()) {
+            return List.of();
+        }
+        List<Long> deletedIds = List.copyOf(existing.keySet());
+        trainingSearchIndex.removeAll(deletedIds);
+        trainingStatsRollup.removed(existing.values());
+        trainingRepository.deleteAllInBatch(existing.values());
+        publishChange(userId, UserDataChangedEvent.ChangeType.DELETED, deletedIds);
+        return deletedIds;
+    }
+
+    private Map<Long, Training> findOwned(List<Long> ids, String userId) {
+        Map<Long, Training> owned = new HashMap<>();
+        for (Training training : trainingRepository.findAllById(ids.stream().filter(Objects::nonNull).toList())) {
+            if (training.getUserId().equals(userId)) {
+                owned.put(training.getId(), training);
+            }
+        }
+        return owned;
+    }
+
+    // 更新可能な項目をコピーし、検索対象のテキストが変わったかを返す
+    private boolean applyDetails(Training training, Training details) {
+        boolean textChanged = !Objects.equals(training.getTitle(), details.getTitle())
+            || !Objects.equals(training.getDescription(), details.getDescription());
+        training.setTitle(details.getTitle());
+        training.setDescription(details.getDescription());
+        training.setType(details.getType());
+        training.setDurationMinutes(details.getDurationMinutes());
+        training.setDifficulty(details.getDifficulty());
+        return textChanged;
+    }
+
+    // 全文検索: 関連度順の上位の候補IDをチャンク単位で他の条件と突き合わせ、limit + 1 件集まったら打ち切る
+    // 条件で候補が絞られて足りない場合は、最後の候補の後ろから倍の件数を取り直す
+    private TrainingPage searchTrainings(String userId, TrainingFilter filter, List<String> fields, TrainingCursor cursor, int limit) {
+        Specification<Training> base = TrainingSpecifications.forUser(userId, filter);
+        List<TrainingSummary> matched = new ArrayList<>();
+        Map<Long, Integer> scores = new HashMap<>();
+        TrainingCursor after = cursor;
+        int window = Math.max(SEARCH_CHUNK_SIZE, limit + 1);
+        while (matched.size() <= limit) {
+            LinkedHashMap<Long, Integer> ranked = trainingSearchIndex.rank(userId, filter.getSearch(), after, window);
+            scores.putAll(ranked);
+            List<Long> candidates = new ArrayList<>(ranked.keySet());
+            for (int from = 0; from < candidates.size() && matched.size() <= limit; from += SEARCH_CHUNK_SIZE) {
+                List<Long> chunk = candidates.subList(from, Math.min(from + SEARCH_CHUNK_SIZE, candidates.size()));
+                Map<Long, TrainingSummary> found = new HashMap<>();
+                for (TrainingSummary summary : trainingRepository.findSummaries(base.and(TrainingSpecifications.idIn(chunk)), fields, Sort.unsorted(), 0)) {
+                    found.put(summary.getId(), summary);
+                }
+                for (Long id : chunk) {
+                    TrainingSummary summary = found.get(id);
+                    if (summary != null) {
+                        matched.add(summary);
+                        if (matched.size() > limit) {
+                            break;
+                        }
+                    }
+                }
+            }
+            if (candidates.size() < window) {
+                break;
+            }
+            Long lastId = candidates.get(candidates.size() - 1);
+            after = TrainingCursor.ofRank(ranked.get(lastId), lastId);
+            window = (int) Math.min(Integer.MAX_VALUE - 1L, window * 2L);
+        }
+
+        String nextCursor = null;
+        if (matched.size() > limit) {
+            matched = matched.subList(0, limit);
+            Long lastId = matched.get(limit - 1).getId();
+            nextCursor = TrainingCursor.ofRank(scores.get(lastId), lastId).encode();
+        }
+        return new TrainingPage(List.copyOf(matched), nextCursor);
     }
 
-    // 難易度で検索
-    public List<Training> getTrainingsByDifficulty(String userId, String difficulty) {
-        return trainingRepository.findByUserIdAndDifficultyOrderByCreatedAtDesc(userId, difficulty);
+    private void publishChange(String userId, UserDataChangedEvent.ChangeType changeType, Long id) {
+        publishChange(userId, changeType, List.of(id));
     }
 
-    // タイトル検索
-    public List<Training> searchTrainingsByTitle(String userId, String title) {
-        return trainingRepository.findByUserIdAndTitleContaining(userId, title);
+    private void publishChange(String userId, UserDataChangedEvent.ChangeType changeType, List<Long> ids) {
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId, UserDataChangedEvent.Resource.TRAINING, changeType, ids));
     }
 
-    // 期間で検索
-    public List<Training> getTrainingsByDuration(String userId, Integer minDuration, Integer maxDuration) {
-        return trainingRepository.findByUserIdAndDurationMinutesBetweenOrderByCreatedAtDesc(userId, minDuration, maxDuration);
+    private boolean hasText(String value) {
+        return value != null && !value.trim().isEmpty();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,48 @@
+package com.example.backend.stats;
+
+import com.example.backend.repository.TrainingRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * 既存の trainings から統計ロールアップをバックフィルする。
+ * training-stats.rebuild-on-startup が true の場合、起動完了後に全ユーザー分を作り直す。
+ */
+@Component
+public class TrainingStatsRebuildJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrainingStatsRebuildJob.class);
+
+    @Value("${training-stats.rebuild-on-startup}")
+    private boolean rebuildOnStartup;
+
+    @Autowired
+    private TrainingRepository trainingRepository;
+
+    @Autowired
+    private TrainingStatsRollup trainingStatsRollup;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (rebuildOnStartup) {
+            rebuildAll();
+        }
+    }
+
+    // ユーザー単位の短いトランザクションで順に作り直す
+    public void rebuildAll() {
+        long started = System.currentTimeMillis();
+        int users = 0;
+        int buckets = 0;
+        for (String userId : trainingRepository.findDistinctUserIds()) {
+            buckets += trainingStatsRollup.rebuild(userId);
+            users++;
+        }
+        logger.info("統計ロールアップを再構築しました: {}ユーザー, {}バケット ({}ms)", users, buckets, System.currentTimeMillis() - started);
+    }
+}
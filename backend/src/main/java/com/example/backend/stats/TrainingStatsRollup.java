@@ -0,0 +1,180 @@
+package com.example.backend.stats;
+
+import com.example.backend.entity.Training;
+import com.example.backend.entity.TrainingStatsBucket;
+import com.example.backend.repository.TrainingRepository;
+import com.example.backend.repository.TrainingStatsRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * ユーザー × 種類 × 難易度 × 週の統計ロールアップ。TrainingService の書き込みと同じトランザクションで差分を反映する。
+ */
+@Component
+public class TrainingStatsRollup {
+
+    @Autowired
+    private TrainingStatsRepository statsRepository;
+
+    @Autowired
+    private TrainingRepository trainingRepository;
+
+    // 呼び出し元のトランザクションの接続で実行する（JPA を通さないため、失敗してもトランザクションはロールバック専用にならない）
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 1件のトレーニングがどのバケットにどれだけ寄与しているか。更新前の値を控えておくために使う。
+     */
+    public static final class Contribution {
+
+        private final String userId;
+        private final String type;
+        private final String difficulty;
+        private final LocalDate weekStart;
+        private final long minutes;
+
+        private Contribution(String userId, String type, String difficulty, LocalDate weekStart, long minutes) {
+            this.userId = userId;
+            this.type = type;
+            this.difficulty = difficulty;
+            this.weekStart = weekStart;
+            this.minutes = minutes;
+        }
+
+        public static Contribution of(Training training) {
+            return new Contribution(training.getUserId(), training.getType(), training.getDifficulty(),
+                weekStart(training.getCreatedAt().toLocalDate()), training.getDurationMinutes());
+        }
+
+        private BucketKey key() {
+            return new BucketKey(userId, type, difficulty, weekStart);
+        }
+    }
+
+    private static final class BucketKey {
+
+        private final String userId;
+        private final String type;
+        private final String difficulty;
+        private final LocalDate weekStart;
+
+        BucketKey(String userId, String type, String difficulty, LocalDate weekStart) {
+            this.userId = userId;
+            this.type = type;
+            this.difficulty = difficulty;
+            this.weekStart = weekStart;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof BucketKey)) {
+                return false;
+            }
+            BucketKey other = (BucketKey) o;
+            return userId.equals(other.userId) && type.equals(other.type)
+                && difficulty.equals(other.difficulty) && weekStart.equals(other.weekStart);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, type, difficulty, weekStart);
+        }
+    }
+
+    // 週の初日（月曜日）
+    public static LocalDate weekStart(LocalDate date) {
+        return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    @Transactional
+    public void added(Collection<Training> trainings) {
+        apply(List.of(), trainings.stream().map(Contribution::of).toList());
+    }
+
+    @Transactional
+    public void removed(Collection<Training> trainings) {
+        apply(trainings.stream().map(Contribution::of).toList(), List.of());
+    }
+
+    /**
+     * 差し引く寄与と加える寄与をバケット毎にまとめ、差分のあるバケットだけを更新する。
+     */
+    @Transactional
+    public void apply(Collection<Contribution> removed, Collection<Contribution> added) {
+        Map<BucketKey, long[]> deltas = new HashMap<>();
+        for (Contribution contribution : removed) {
+            long[] delta = deltas.computeIfAbsent(contribution.key(), key -> new long[2]);
+            delta[0]--;
+            delta[1] -= contribution.minutes;
+        }
+        for (Contribution contribution : added) {
+            long[] delta = deltas.computeIfAbsent(contribution.key(), key -> new long[2]);
+            delta[0]++;
+            delta[1] += contribution.minutes;
+        }
+
+        deltas.forEach((key, delta) -> {
+            if (delta[0] == 0 && delta[1] == 0) {
+                return;
+            }
+            int updated = statsRepository.increment(key.userId, key.type, key.difficulty, key.weekStart, delta[0], delta[1]);
+            if (updated == 0 && !insertBucket(key, delta)) {
+                statsRepository.increment(key.userId, key.type, key.difficulty, key.weekStart, delta[0], delta[1]);
+            }
+        });
+    }
+
+    // 未作成のバケットを差分の値で作る。同じバケットへの最初の書き込みが同時に来た場合、後の INSERT は先のコミットを待って
+    // 一意制約違反になるので、false を返して先に作られたバケットへ加算させる。H2 は失敗した文だけを取り消すため、
+    // 同じトランザクション・同じ接続のまま続けられる（別トランザクションで作ると接続を2本使い、プールが尽きると互いに待ち続ける）
+    // ID は Hibernate と同じシーケンスから取る。pooled の払い出しは取得値ごとに重ならない範囲なので、取得値をそのまま使っても衝突しない
+    private boolean insertBucket(BucketKey key, long[] delta) {
+        try {
+            jdbcTemplate.update("INSERT INTO training_stats (id, user_id, type, difficulty, week_start, sessions, total_minutes) "
+                + "VALUES (NEXT VALUE FOR training_stats_seq, ?, ?, ?, ?, ?, ?)",
+                key.userId, key.type, key.difficulty, key.weekStart, delta[0], delta[1]);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    /**
+     * ユーザーのロールアップを trainings から作り直す（既存データのバックフィル・不整合の修復用）。
+     */
+    @Transactional
+    public int rebuild(String userId) {
+        statsRepository.deleteByUserId(userId);
+
+        Map<BucketKey, long[]> totals = new HashMap<>();
+        for (Object[] row : trainingRepository.sumDailyTotals(userId)) {
+            BucketKey key = new BucketKey(userId, (String) row[0], (String) row[1], weekStart((LocalDate) row[2]));
+            long[] total = totals.computeIfAbsent(key, k -> new long[2]);
+            total[0] += ((Number) row[3]).longValue();
+            total[1] += ((Number) row[4]).longValue();
+        }
+
+        List<TrainingStatsBucket> buckets = new ArrayList<>(totals.size());
+        totals.forEach((key, total) ->
+            buckets.add(new TrainingStatsBucket(key.userId, key.type, key.difficulty, key.weekStart, total[0], total[1])));
+        statsRepository.saveAll(buckets);
+        return buckets.size();
+    }
+}
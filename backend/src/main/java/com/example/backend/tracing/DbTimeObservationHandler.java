@@ -0,0 +1,44 @@
+package com.example.backend.tracing;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import net.ttddyy.observation.tracing.QueryContext;
+import net.ttddyy.observation.tracing.ResultSetContext;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SQL の実行と結果セットの読み込みにかかった時間をリクエスト毎に合計する（Server-Timing の db）。
+ * 各 SQL のスパンは datasource-micrometer が作成する。
+ */
+@Component
+public class DbTimeObservationHandler implements ObservationHandler<Observation.Context> {
+
+    private static final String START_KEY = DbTimeObservationHandler.class.getName() + ".start";
+
+    @Override
+    public boolean supportsContext(Observation.Context context) {
+        return context instanceof QueryContext || context instanceof ResultSetContext;
+    }
+
+    @Override
+    public void onStart(Observation.Context context) {
+        context.put(START_KEY, System.nanoTime());
+    }
+
+    @Override
+    public void onStop(Observation.Context context) {
+        Long start = context.get(START_KEY);
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (start == null || attributes == null) {
+            return;
+        }
+        AtomicLong dbNanos = (AtomicLong) attributes.getAttribute(ServerTimingFilter.DB_NANOS_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (dbNanos != null) {
+            dbNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+}
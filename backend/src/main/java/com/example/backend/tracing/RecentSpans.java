@@ -0,0 +1,54 @@
+package com.example.backend.tracing;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * 終了したスパンを直近の指定件数だけメモリに保持するエクスポーター。
+ * 外部のコレクター無しで /actuator/traces から確認できる（traces プロファイルの時のみ）。
+ */
+@Component
+@Profile("traces")
+public class RecentSpans implements SpanExporter {
+
+    @Value("${tracing.recent-spans.capacity}")
+    private int capacity;
+
+    private final Deque<SpanData> spans = new ArrayDeque<>();
+
+    @Override
+    public synchronized CompletableResultCode export(Collection<SpanData> batch) {
+        for (SpanData span : batch) {
+            spans.addLast(span);
+            if (spans.size() > capacity) {
+                spans.removeFirst();
+            }
+        }
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public synchronized CompletableResultCode shutdown() {
+        spans.clear();
+        return CompletableResultCode.ofSuccess();
+    }
+
+    public synchronized List<SpanData> snapshot() {
+        return new ArrayList<>(spans);
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.backend.tracing;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * レスポンスに Server-Timing ヘッダーを付ける（backend: このサービスでの処理時間、db: SQL の実行時間の合計）。
+ * ヘッダーはボディの書き込み開始時（ボディが無ければ処理の終了時）に付けるため、ストリーミングでは最初のバイトまでの時間になる。
+ * トレースの開始後に計測するよう、ServerHttpObservationFilter の直後に置く。
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    public static final String SERVER_TIMING = "Server-Timing";
+
+    // DbTimeObservationHandler が SQL の実行時間（ナノ秒）を加算する
+    static final String DB_NANOS_ATTRIBUTE = ServerTimingFilter.class.getName() + ".dbNanos";
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        AtomicLong dbNanos = new AtomicLong();
+        request.setAttribute(DB_NANOS_ATTRIBUTE, dbNanos);
+
+        ServerTimingResponse timed = new ServerTimingResponse(response, () ->
+            entry("backend", System.nanoTime() - start) + ", " + entry("db", dbNanos.get()));
+        try {
+            filterChain.doFilter(request, timed);
+        } finally {
+            if (!request.isAsyncStarted()) {
+                timed.addServerTiming();
+            }
+        }
+    }
+
+    private static String entry(String name, long nanos) {
+        return String.format(Locale.ROOT, "%s;dur=%.1f", name, nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    // ボディの書き込みが始まる直前（コミット前）に一度だけヘッダーを追加する
+    private static final class ServerTimingResponse extends HttpServletResponseWrapper {
+
+        private final Supplier<String> value;
+        private boolean added;
+
+        ServerTimingResponse(HttpServletResponse response, Supplier<String> value) {
+            super(response);
+            this.value = value;
+        }
+
+        void addServerTiming() {
+            if (!added && !isCommitted()) {
+                added = true;
+                addHeader(SERVER_TIMING, value.get());
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            addServerTiming();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            addServerTiming();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            addServerTiming();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            addServerTiming();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            addServerTiming();
+            super.sendError(sc);
+        }
+    }
+}
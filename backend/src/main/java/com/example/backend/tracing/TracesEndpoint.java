@@ -0,0 +1,155 @@
+package com.example.backend.tracing;
+
+import io.opentelemetry.sdk.trace.data.SpanData;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * RecentSpans に残っているスパンをトレース毎にまとめて返す（/actuator/traces, /actuator/traces/{traceId}）。
+ */
+@Component
+@Profile("traces")
+@Endpoint(id = "traces")
+public class TracesEndpoint {
+
+    @Autowired
+    private RecentSpans recentSpans;
+
+    /**
+     * 1トレース分のスパン（開始時刻順）。
+     */
+    public static class TraceView {
+
+        private final String traceId;
+        private final Instant startTime;
+        private final double durationMillis;
+        private final List<SpanView> spans;
+
+        TraceView(String traceId, List<SpanData> spans) {
+            long start = spans.stream().mapToLong(SpanData::getStartEpochNanos).min().orElse(0);
+            long end = spans.stream().mapToLong(SpanData::getEndEpochNanos).max().orElse(0);
+            this.traceId = traceId;
+            this.startTime = toInstant(start);
+            this.durationMillis = toMillis(end - start);
+            this.spans = spans.stream()
+                .sorted(Comparator.comparingLong(SpanData::getStartEpochNanos))
+                .map(SpanView::new)
+                .toList();
+        }
+
+        public String getTraceId() {
+            return traceId;
+        }
+
+        public Instant getStartTime() {
+            return startTime;
+        }
+
+        public double getDurationMillis() {
+            return durationMillis;
+        }
+
+        public List<SpanView> getSpans() {
+            return spans;
+        }
+    }
+
+    public static class SpanView {
+
+        private final String spanId;
+        private final String parentSpanId;
+        private final String name;
+        private final String kind;
+        private final Instant startTime;
+        private final double durationMillis;
+        private final String status;
+        private final Map<String, String> attributes;
+
+        SpanView(SpanData span) {
+            this.spanId = span.getSpanId();
+            this.parentSpanId = span.getParentSpanContext().isValid() ? span.getParentSpanId() : null;
+            this.name = span.getName();
+            this.kind = span.getKind().name();
+            this.startTime = toInstant(span.getStartEpochNanos());
+            this.durationMillis = toMillis(span.getEndEpochNanos() - span.getStartEpochNanos());
+            this.status = span.getStatus().getStatusCode().name();
+            Map<String, String> attributes = new TreeMap<>();
+            span.getAttributes().forEach((key, value) -> attributes.put(key.getKey(), String.valueOf(value)));
+            this.attributes = attributes;
+        }
+
+        public String getSpanId() {
+            return spanId;
+        }
+
+        public String getParentSpanId() {
+            return parentSpanId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getKind() {
+            return kind;
+        }
+
+        public Instant getStartTime() {
+            return startTime;
+        }
+
+        public double getDurationMillis() {
+            return durationMillis;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public Map<String, String> getAttributes() {
+            return attributes;
+        }
+    }
+
+    // 新しいトレースから順に返す
+    @ReadOperation
+    public List<TraceView> traces() {
+        Map<String, List<SpanData>> byTrace = recentSpans.snapshot().stream()
+            .collect(Collectors.groupingBy(SpanData::getTraceId, LinkedHashMap::new, Collectors.toList()));
+        List<TraceView> traces = new ArrayList<>(byTrace.size());
+        byTrace.forEach((traceId, spans) -> traces.add(new TraceView(traceId, spans)));
+        traces.sort(Comparator.comparing(TraceView::getStartTime).reversed());
+        return traces;
+    }
+
+    // 見つからなければ null（404）
+    @ReadOperation
+    public TraceView trace(@Selector String traceId) {
+        List<SpanData> spans = recentSpans.snapshot().stream()
+            .filter(span -> span.getTraceId().equals(traceId))
+            .toList();
+        return spans.isEmpty() ? null : new TraceView(traceId, spans);
+    }
+
+    private static Instant toInstant(long epochNanos) {
+        return Instant.ofEpochSecond(0, epochNanos);
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,72 @@
+-- 初期スキーマ（prod プロファイル用）。エンティティの定義と一致させること（ddl-auto: validate で検証する）
+
+-- ID はシーケンスから 50 件ずつ事前採番する（allocationSize = 50）
+create sequence trainings_seq start with 1 increment by 50;
+create sequence training_plans_seq start with 1 increment by 50;
+create sequence training_search_terms_seq start with 1 increment by 50;
+create sequence training_stats_seq start with 1 increment by 50;
+
+create table trainings (
+    id bigint not null,
+    user_id varchar(255) not null,
+    title varchar(255) not null,
+    description text,
+    type varchar(255) not null,
+    duration_minutes integer not null,
+    difficulty varchar(255) not null,
+    created_at timestamp(6) not null,
+    updated_at timestamp(6) not null,
+    version bigint default 0 not null,
+    primary key (id)
+);
+
+-- 一覧（作成日時降順のキーセットページング）と種類・難易度・時間の絞り込み
+create index idx_trainings_user_created_id on trainings (user_id, created_at, id);
+create index idx_trainings_user_type_created on trainings (user_id, type, created_at, id);
+create index idx_trainings_user_difficulty_created on trainings (user_id, difficulty, created_at, id);
+create index idx_trainings_user_duration on trainings (user_id, duration_minutes);
+
+create table training_plans (
+    id bigint not null,
+    user_id varchar(255) not null,
+    name varchar(255) not null,
+    description varchar(1000),
+    type varchar(255) not null,
+    duration integer not null,
+    difficulty varchar(255) not null,
+    created_at timestamp(6) not null,
+    updated_at timestamp(6) not null,
+    version bigint default 0 not null,
+    primary key (id)
+);
+
+create index idx_training_plans_user_type on training_plans (user_id, type);
+create index idx_training_plans_user_difficulty on training_plans (user_id, difficulty);
+
+-- 全文検索の転置インデックス
+create table training_search_terms (
+    id bigint not null,
+    user_id varchar(255) not null,
+    training_id bigint not null,
+    term varchar(64) not null,
+    weight integer not null,
+    primary key (id)
+);
+
+create index idx_search_terms_user_term on training_search_terms (user_id, term, training_id);
+create index idx_search_terms_training on training_search_terms (training_id);
+
+-- 統計ロールアップ（ユーザー × 種類 × 難易度 × 週）
+create table training_stats (
+    id bigint not null,
+    user_id varchar(255) not null,
+    type varchar(255) not null,
+    difficulty varchar(255) not null,
+    week_start date not null,
+    sessions bigint not null,
+    total_minutes bigint not null,
+    primary key (id),
+    constraint uk_training_stats_bucket unique (user_id, type, difficulty, week_start)
+);
+
+create index idx_training_stats_user_week on training_stats (user_id, week_start);
@@ -0,0 +1,3 @@
+-- 検索語ごとの投稿を重みの大きい順・新しい順にインデックスから読み、上限件数で打ち切れるようにする
+drop index idx_search_terms_user_term;
+create index idx_search_terms_user_term on training_search_terms (user_id, term, weight desc, training_id desc);
@@ -0,0 +1,84 @@
+package com.example.backend;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.MigrationState;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.example.backend.entity.Training;
+import com.example.backend.service.TrainingService;
+
+@SpringBootTest
+@ActiveProfiles("prod")
+class ProdProfileTests {
+
+	@Autowired
+	private Flyway flyway;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private Environment environment;
+
+	@Autowired
+	private TrainingService trainingService;
+
+	@DynamicPropertySource
+	static void dataDir(DynamicPropertyRegistry registry) throws IOException {
+		Path dir = Files.createTempDirectory("training-data");
+		dir.toFile().deleteOnExit();
+		registry.add("TRAINING_DATA_DIR", dir::toString);
+	}
+
+	@Test
+	void migrationsCreateTheSchemaThatHibernateValidates() {
+		// コンテキストが起動した時点で ddl-auto: validate を通っている
+		assertThat(environment.getProperty("spring.jpa.hibernate.ddl-auto")).isEqualTo("validate");
+		assertThat(environment.getProperty("spring.datasource.url")).startsWith("jdbc:h2:file:");
+
+		List<MigrationInfo> applied = Arrays.asList(flyway.info().applied());
+		assertThat(applied).extracting(info -> info.getVersion().getVersion()).containsExactly("1", "2");
+		assertThat(applied).allMatch(info -> info.getState() == MigrationState.SUCCESS);
+		assertThat(flyway.info().pending()).isEmpty();
+	}
+
+	@Test
+	void searchPostingsIndexMatchesTheQueryOrder() {
+		List<String> columns = jdbcTemplate.queryForList(
+				"SELECT c.COLUMN_NAME FROM INFORMATION_SCHEMA.INDEX_COLUMNS c"
+						+ " WHERE c.INDEX_NAME = 'IDX_SEARCH_TERMS_USER_TERM' ORDER BY c.ORDINAL_POSITION",
+				String.class);
+		assertThat(columns).containsExactly("USER_ID", "TERM", "WEIGHT", "TRAINING_ID");
+	}
+
+	@Test
+	void writesGoThroughTheMigratedSchema() {
+		String userId = "prod-profile-user";
+		Training created = trainingService.createTraining(new Training("run", "easy run", "Cardio", 30, "Easy", userId));
+
+		assertThat(trainingService.getTrainingById(created.getId(), userId)).hasValueSatisfying(
+				training -> assertThat(training.getDescription()).isEqualTo("easy run"));
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM training_search_terms WHERE user_id = ?", Integer.class, userId))
+			.isPositive();
+		// 集計行は training_stats_seq から採番するネイティブ SQL で作られる
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM training_stats WHERE user_id = ?", Integer.class, userId))
+			.isPositive();
+	}
+
+}
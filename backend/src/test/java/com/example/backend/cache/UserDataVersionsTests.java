@@ -0,0 +1,71 @@
+package com.example.backend.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.backend.event.UserDataChangedEvent;
+import com.example.backend.event.UserDataChangedEvent.ChangeType;
+import com.example.backend.event.UserDataChangedEvent.Resource;
+
+class UserDataVersionsTests {
+
+	@Test
+	void writesChangeOnlyTheWritersEtag() {
+		UserDataVersions versions = versions(100);
+		String alice = versions.etag("alice", Resource.TRAINING);
+		String bob = versions.etag("bob", Resource.TRAINING);
+
+		changed(versions, "alice", Resource.TRAINING);
+
+		assertThat(versions.etag("alice", Resource.TRAINING)).isNotEqualTo(alice);
+		assertThat(versions.etag("bob", Resource.TRAINING)).isEqualTo(bob);
+		assertThat(versions.etag("alice", Resource.TRAINING_PLAN)).isEqualTo(versions.etag("bob", Resource.TRAINING_PLAN));
+	}
+
+	@Test
+	void evictedUsersNeverGoBackToAnEarlierEtag() {
+		UserDataVersions versions = versions(2);
+		String beforeWrite = versions.etag("alice", Resource.TRAINING);
+		changed(versions, "alice", Resource.TRAINING);
+		long written = version(versions.etag("alice", Resource.TRAINING));
+
+		for (int i = 0; i < 1000; i++) {
+			changed(versions, "user-" + i, Resource.TRAINING);
+		}
+
+		// 追い出されていてもいなくても、書き込み後のバージョンより前には戻らない
+		String current = versions.etag("alice", Resource.TRAINING);
+		assertThat(current).isNotEqualTo(beforeWrite);
+		assertThat(version(current)).isGreaterThanOrEqualTo(written);
+	}
+
+	@Test
+	void restartsDoNotReuseEtags() throws InterruptedException {
+		UserDataVersions before = versions(100);
+		changed(before, "alice", Resource.TRAINING);
+		Thread.sleep(5);
+		UserDataVersions after = versions(100);
+		changed(after, "alice", Resource.TRAINING);
+
+		assertThat(version(after.etag("alice", Resource.TRAINING))).isEqualTo(version(before.etag("alice", Resource.TRAINING)));
+		assertThat(after.etag("alice", Resource.TRAINING)).isNotEqualTo(before.etag("alice", Resource.TRAINING));
+	}
+
+	private static UserDataVersions versions(long maximumSize) {
+		UserDataVersions versions = new UserDataVersions();
+		ReflectionTestUtils.setField(versions, "maximumSize", maximumSize);
+		versions.init();
+		return versions;
+	}
+
+	private static void changed(UserDataVersions versions, String userId, Resource resource) {
+		versions.onUserDataChanged(new UserDataChangedEvent(userId, resource, ChangeType.UPDATED, 1L));
+	}
+
+	private static long version(String etag) {
+		return Long.parseLong(etag.substring(etag.lastIndexOf('-') + 1, etag.length() - 1));
+	}
+
+}
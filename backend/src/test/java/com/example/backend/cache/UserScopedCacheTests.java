@@ -0,0 +1,52 @@
+package com.example.backend.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class UserScopedCacheTests {
+
+	@Test
+	void invalidatingAUserReloadsOnlyThatUser() {
+		UserScopedCache cache = new UserScopedCache("test", 100, Duration.ofMinutes(1));
+		AtomicInteger loads = new AtomicInteger();
+
+		assertThat(cache.get("alice", "list", () -> "alice-" + loads.incrementAndGet())).isEqualTo("alice-1");
+		assertThat(cache.get("bob", "list", () -> "bob-" + loads.incrementAndGet())).isEqualTo("bob-2");
+		assertThat(cache.get("alice", "list", () -> "alice-" + loads.incrementAndGet())).isEqualTo("alice-1");
+
+		cache.invalidateUser("alice");
+
+		assertThat(cache.get("alice", "list", () -> "alice-" + loads.incrementAndGet())).isEqualTo("alice-3");
+		assertThat(cache.get("bob", "list", () -> "bob-" + loads.incrementAndGet())).isEqualTo("bob-2");
+	}
+
+	@Test
+	void valueLoadedWhileInvalidatedIsNotReused() {
+		UserScopedCache cache = new UserScopedCache("test", 100, Duration.ofMinutes(1));
+
+		cache.get("alice", "list", () -> {
+			cache.invalidateUser("alice");
+			return "stale";
+		});
+
+		assertThat(cache.get("alice", "list", () -> "fresh")).isEqualTo("fresh");
+	}
+
+	@Test
+	void evictedGenerationsNeverRevealOlderEntries() {
+		UserScopedCache cache = new UserScopedCache("test", 2, Duration.ofMinutes(1));
+		cache.get("alice", "list", () -> "stale");
+		cache.invalidateUser("alice");
+
+		for (int i = 0; i < 1000; i++) {
+			cache.invalidateUser("user-" + i);
+		}
+
+		assertThat(cache.get("alice", "list", () -> "fresh")).isEqualTo("fresh");
+	}
+
+}
@@ -0,0 +1,463 @@
+package com.example.backend.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+class TrainingControllerTests {
+
+	private static final String ISSUER = "http://localhost/realms/test";
+
+	private static final KeyPair KEY_PAIR = generateKeyPair();
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@DynamicPropertySource
+	static void jwks(DynamicPropertyRegistry registry) throws IOException {
+		RSAPublicKey publicKey = (RSAPublicKey) KEY_PAIR.getPublic();
+		Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+		String jwks = "{\"keys\":[{\"kty\":\"RSA\",\"use\":\"sig\",\"kid\":\"test-key\",\"alg\":\"RS256\","
+				+ "\"n\":\"" + encoder.encodeToString(publicKey.getModulus().toByteArray()) + "\","
+				+ "\"e\":\"" + encoder.encodeToString(publicKey.getPublicExponent().toByteArray()) + "\"}]}";
+		Path file = Files.createTempFile("jwks", ".json");
+		Files.writeString(file, jwks);
+		file.toFile().deleteOnExit();
+
+		registry.add("security.jwt.jwks-uri", () -> file.toUri().toString());
+		registry.add("security.jwt.issuer", () -> ISSUER);
+	}
+
+	@Test
+	void patchWithStaleVersionReturnsConflictWithCurrentState() throws Exception {
+		String token = token("patch-user");
+		JsonNode created = create(token, "{\"title\":\"Run\",\"type\":\"Cardio\",\"durationMinutes\":30,\"difficulty\":\"Easy\"}");
+		long id = created.get("id").asLong();
+		long version = created.get("version").asLong();
+
+		MvcResult fetched = this.mockMvc.perform(get("/api/trainings/" + id).header("Authorization", "Bearer " + token))
+			.andExpect(status().isOk())
+			.andExpect(header().exists(HttpHeaders.ETAG))
+			.andExpect(jsonPath("$.version").value(version))
+			.andReturn();
+		String etag = fetched.getResponse().getHeader(HttpHeaders.ETAG);
+
+		this.mockMvc.perform(patch("/api/trainings/" + id).header("Authorization", "Bearer " + token)
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"title\":\"Long run\",\"version\":" + version + "}"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.title").value("Long run"))
+			.andExpect(jsonPath("$.version").value(version + 1));
+
+		// 更新後は以前の ETag では 304 にならない
+		this.mockMvc.perform(get("/api/trainings/" + id).header("Authorization", "Bearer " + token)
+				.header(HttpHeaders.IF_NONE_MATCH, etag))
+			.andExpect(status().isOk())
+			.andExpect(header().string(HttpHeaders.ETAG, not(etag)));
+
+		this.mockMvc.perform(patch("/api/trainings/" + id).header("Authorization", "Bearer " + token)
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"title\":\"Stale edit\",\"version\":" + version + "}"))
+			.andExpect(status().isConflict())
+			.andExpect(jsonPath("$.id").value(id))
+			.andExpect(jsonPath("$.title").value("Long run"))
+			.andExpect(jsonPath("$.version").value(version + 1));
+	}
+
+	@Test
+	void createIgnoresClientSuppliedIdAndVersion() throws Exception {
+		String owner = token("owner");
+		JsonNode existing = create(owner, "{\"title\":\"Mine\",\"type\":\"Cardio\",\"durationMinutes\":30,\"difficulty\":\"Easy\"}");
+		long existingId = existing.get("id").asLong();
+
+		String other = token("other");
+		JsonNode created = create(other, "{\"id\":" + existingId + ",\"version\":7,\"title\":\"Theirs\","
+				+ "\"type\":\"Cardio\",\"durationMinutes\":10,\"difficulty\":\"Easy\"}");
+
+		assertThat(created.get("id").asLong()).isNotEqualTo(existingId);
+		assertThat(created.get("version").asLong()).isZero();
+		this.mockMvc.perform(get("/api/trainings/" + existingId).header("Authorization", "Bearer " + owner))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.title").value("Mine"));
+	}
+
+	@Test
+	void cursorPagesCoverEveryTrainingOnceNewestFirst() throws Exception {
+		String token = token("page-user");
+		List<Long> created = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			created.add(create(token, training("Run " + i, 30)).get("id").asLong());
+		}
+
+		List<Long> seen = new ArrayList<>();
+		String cursor = null;
+		int pages = 0;
+		do {
+			JsonNode page = getJson(token, "/api/trainings?limit=2" + (cursor != null ? "&cursor=" + cursor : ""));
+			assertThat(page.get("items").size()).isLessThanOrEqualTo(2);
+			page.get("items").forEach(item -> seen.add(item.get("id").asLong()));
+			cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+			pages++;
+		} while (cursor != null);
+
+		assertThat(pages).isEqualTo(3);
+		Collections.reverse(created);
+		assertThat(seen).containsExactlyElementsOf(created);
+
+		// ちょうど limit 件で終わる場合は次のカーソルを返さない
+		JsonNode exact = getJson(token, "/api/trainings?limit=5");
+		assertThat(exact.get("items").size()).isEqualTo(5);
+		assertThat(exact.get("nextCursor").isNull()).isTrue();
+	}
+
+	@Test
+	void rejectsOutOfRangeLimitsAndMalformedCursors() throws Exception {
+		String token = token("page-bounds-user");
+		for (String query : List.of("limit=0", "limit=101", "cursor=not-a-cursor", "limit=-1")) {
+			this.mockMvc.perform(get("/api/trainings?" + query).header("Authorization", "Bearer " + token))
+				.andExpect(status().isBadRequest());
+		}
+		this.mockMvc.perform(get("/api/trainings?limit=100").header("Authorization", "Bearer " + token))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.items").isEmpty());
+	}
+
+	@Test
+	void bulkCreateRejectsEmptyAndOversizedBatches() throws Exception {
+		String token = token("bulk-size-user");
+		this.mockMvc.perform(post("/api/trainings/bulk").header("Authorization", "Bearer " + token)
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("[]"))
+			.andExpect(status().isBadRequest());
+
+		this.mockMvc.perform(post("/api/trainings/bulk").header("Authorization", "Bearer " + token)
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(trainings(1001)))
+			.andExpect(status().isBadRequest());
+
+		MvcResult result = this.mockMvc.perform(post("/api/trainings/bulk").header("Authorization", "Bearer " + token)
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(trainings(1000)))
+			.andExpect(status().isOk())
+			.andReturn();
+		JsonNode created = this.objectMapper.readTree(result.getResponse().getContentAsString());
+		assertThat(created.size()).isEqualTo(1000);
+		assertThat(getJson(token, "/api/trainings").size()).isEqualTo(1000);
+	}
+
+	@Test
+	void bulkUpdateChangesNothingWhenAnyIdIsNotOwned() throws Exception {
+		String token = token("bulk-update-user");
+		long mine = create(token, training("Mine", 30)).get("id").asLong();
+		long theirs = create(token("bulk-update-other"), training("Theirs", 30)).get("id").asLong();
+
+		this.mockMvc.perform(put("/api/trainings/bulk").header("Authorization", "Bearer " + token)
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("[" + withId(mine, training("Renamed", 45)) + "," + withId(theirs, training("Renamed", 45)) + "]"))
+			.andExpect(status().isNotFound());
+
+		this.mockMvc.perform(get("/api/trainings/" + mine).header("Authorization", "Bearer " + token))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.title").value("Mine"));
+		this.mockMvc.perform(get("/api/trainings/" + theirs).header("Authorization", "Bearer " + token("bulk-update-other")))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.title").value("Theirs"));
+
+		this.mockMvc.perform(put("/api/trainings/bulk").header("Authorization", "Bearer " + token)
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("[" + withId(mine, training("Renamed", 45)) + "]"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$[0].title").value("Renamed"))
+			.andExpect(jsonPath("$[0].durationMinutes").value(45));
+	}
+
+	@Test
+	void bulkDeleteReturnsOnlyTheIdsItDeleted() throws Exception {
+		String token = token("bulk-delete-user");
+		long first = create(token, training("First", 30)).get("id").asLong();
+		long second = create(token, training("Second", 30)).get("id").asLong();
+		String other = token("bulk-delete-other");
+		long theirs = create(other, training("Theirs", 30)).get("id").asLong();
+
+		MvcResult result = this.mockMvc.perform(delete("/api/trainings/bulk").header("Authorization", "Bearer " + token)
+				.param("ids", first + "," + theirs + "," + Long.MAX_VALUE + "," + second))
+			.andExpect(status().isOk())
+			.andReturn();
+		JsonNode deleted = this.objectMapper.readTree(result.getResponse().getContentAsString());
+		List<Long> deletedIds = new ArrayList<>();
+		deleted.forEach(id -> deletedIds.add(id.asLong()));
+
+		assertThat(deletedIds).containsExactlyInAnyOrder(first, second);
+		assertThat(getJson(token, "/api/trainings").size()).isZero();
+		this.mockMvc.perform(get("/api/trainings/" + theirs).header("Authorization", "Bearer " + other))
+			.andExpect(status().isOk());
+
+		this.mockMvc.perform(delete("/api/trainings/bulk").header("Authorization", "Bearer " + token).param("ids", ""))
+			.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void exportStreamsOneJsonObjectPerLineOldestFirst() throws Exception {
+		String token = token("export-user");
+		List<Long> created = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			created.add(create(token, training("Run " + i, 30 + i)).get("id").asLong());
+		}
+		create(token("export-other"), training("Theirs", 30));
+
+		MvcResult started = this.mockMvc.perform(get("/api/trainings/export").header("Authorization", "Bearer " + token))
+			.andExpect(request().asyncStarted())
+			.andReturn();
+		MvcResult result = this.mockMvc.perform(asyncDispatch(started))
+			.andExpect(status().isOk())
+			.andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+			.andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"trainings.ndjson\""))
+			.andReturn();
+
+		String body = result.getResponse().getContentAsString();
+		assertThat(body).endsWith("\n");
+		List<String> lines = body.lines().toList();
+		assertThat(lines).hasSize(3);
+		for (int i = 0; i < lines.size(); i++) {
+			JsonNode line = this.objectMapper.readTree(lines.get(i));
+			assertThat(line.get("id").asLong()).isEqualTo(created.get(i));
+			assertThat(line.get("title").asText()).isEqualTo("Run " + i);
+			assertThat(line.get("description").asText()).isEqualTo("Run " + i + " notes");
+			assertThat(line.get("durationMinutes").asInt()).isEqualTo(30 + i);
+		}
+	}
+
+	@Test
+	void exportOfAnEmptyHistoryIsAnEmptyBody() throws Exception {
+		MvcResult started = this.mockMvc.perform(get("/api/trainings/export")
+				.header("Authorization", "Bearer " + token("export-empty-user")))
+			.andExpect(request().asyncStarted())
+			.andReturn();
+		this.mockMvc.perform(asyncDispatch(started))
+			.andExpect(status().isOk())
+			.andExpect(content().string(""));
+	}
+
+	@Test
+	void fieldsSelectsTheSummaryFieldsAlongsideIdAndCreatedAt() throws Exception {
+		String token = token("fields-user");
+		long id = create(token, training("Run", 30)).get("id").asLong();
+
+		JsonNode list = getJson(token, "/api/trainings");
+		assertThat(list.get(0).has("description")).isFalse();
+		assertThat(list.get(0).get("type").asText()).isEqualTo("Cardio");
+
+		JsonNode selected = getJson(token, "/api/trainings?fields=title,durationMinutes").get(0);
+		assertThat(fieldNames(selected)).containsExactlyInAnyOrder("id", "createdAt", "title", "durationMinutes");
+		assertThat(selected.get("id").asLong()).isEqualTo(id);
+		assertThat(selected.get("durationMinutes").asInt()).isEqualTo(30);
+
+		JsonNode paged = getJson(token, "/api/trainings?fields=type&limit=10").get("items").get(0);
+		assertThat(fieldNames(paged)).containsExactlyInAnyOrder("id", "createdAt", "type");
+
+		// 詳細取得は fields の対象外で、description も返す
+		this.mockMvc.perform(get("/api/trainings/" + id).header("Authorization", "Bearer " + token))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.description").value("Run notes"));
+	}
+
+	@Test
+	void rejectsUnknownFields() throws Exception {
+		String token = token("fields-unknown-user");
+		for (String fields : List.of("description", "title,userId", "nope")) {
+			this.mockMvc.perform(get("/api/trainings").param("fields", fields).header("Authorization", "Bearer " + token))
+				.andExpect(status().isBadRequest());
+		}
+	}
+
+	@Test
+	void conditionalGetsReturnNotModifiedUntilTheUserWrites() throws Exception {
+		String token = token("etag-user");
+		long id = create(token, training("Run", 30)).get("id").asLong();
+
+		for (String uri : List.of("/api/trainings", "/api/trainings?limit=10", "/api/trainings/stats", "/api/trainings/" + id)) {
+			String etag = this.mockMvc.perform(get(uri).header("Authorization", "Bearer " + token))
+				.andExpect(status().isOk())
+				.andExpect(header().exists(HttpHeaders.ETAG))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+			this.mockMvc.perform(get(uri).header("Authorization", "Bearer " + token).header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string(HttpHeaders.ETAG, etag))
+				.andExpect(content().string(""));
+
+			// 他の利用者の書き込みでは変わらない
+			create(token("etag-other"), training("Theirs", 30));
+			this.mockMvc.perform(get(uri).header("Authorization", "Bearer " + token).header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified());
+
+			create(token, training("Another run", 20));
+			this.mockMvc.perform(get(uri).header("Authorization", "Bearer " + token).header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, not(etag)));
+		}
+	}
+
+	@Test
+	void referenceDataIsRevalidatedWithPublicCacheControl() throws Exception {
+		String token = token("reference-user");
+		for (String uri : List.of("/api/trainings/types", "/api/trainings/difficulties")) {
+			MvcResult result = this.mockMvc.perform(get(uri).header("Authorization", "Bearer " + token))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=3600, public"))
+				.andReturn();
+			String etag = result.getResponse().getHeader(HttpHeaders.ETAG);
+
+			this.mockMvc.perform(get(uri).header("Authorization", "Bearer " + token).header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=3600, public"))
+				.andExpect(content().string(""));
+		}
+	}
+
+	@Test
+	void publishesLatencyHistogramsForPrometheus() throws Exception {
+		String token = token("metrics-user");
+		long id = create(token, training("Run", 30)).get("id").asLong();
+		this.mockMvc.perform(get("/api/trainings/" + id).header("Authorization", "Bearer " + token))
+			.andExpect(status().isOk());
+
+		String scrape = this.mockMvc.perform(get("/actuator/prometheus"))
+			.andExpect(status().isOk())
+			.andReturn().getResponse().getContentAsString();
+
+		assertThat(scrape.lines()).anyMatch(line -> line.startsWith("http_server_requests_seconds_bucket{")
+				&& line.contains("application=\"training-backend\"") && line.contains("uri=\"/api/trainings/{id}\""));
+		assertThat(scrape.lines()).anyMatch(line -> line.startsWith("spring_data_repository_invocations_seconds_bucket{")
+				&& line.contains("repository=\"TrainingRepository\""));
+		assertThat(scrape).contains("hikaricp_connections_active", "executor_active_threads{application=\"training-backend\",name=\"change-feed-send\"");
+	}
+
+	@Test
+	void reportsServerTimingAndKeepsTracesClosedByDefault() throws Exception {
+		String token = token("timing-user");
+		String etag = this.mockMvc.perform(get("/api/trainings").header("Authorization", "Bearer " + token))
+			.andExpect(status().isOk())
+			.andExpect(header().string("Server-Timing", matchesPattern("backend;dur=\\d+\\.\\d, db;dur=\\d+\\.\\d")))
+			.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+		// ボディの無い 304・404 にも付く
+		this.mockMvc.perform(get("/api/trainings").header("Authorization", "Bearer " + token).header(HttpHeaders.IF_NONE_MATCH, etag))
+			.andExpect(status().isNotModified())
+			.andExpect(header().exists("Server-Timing"));
+		this.mockMvc.perform(get("/api/trainings/" + Long.MAX_VALUE).header("Authorization", "Bearer " + token))
+			.andExpect(status().isNotFound())
+			.andExpect(header().exists("Server-Timing"));
+
+		this.mockMvc.perform(get("/actuator/traces"))
+			.andExpect(status().isNotFound());
+	}
+
+	private static List<String> fieldNames(JsonNode node) {
+		List<String> names = new ArrayList<>();
+		node.fieldNames().forEachRemaining(names::add);
+		return names;
+	}
+
+	private JsonNode getJson(String token, String uri) throws Exception {
+		MvcResult result = this.mockMvc.perform(get(uri).header("Authorization", "Bearer " + token))
+			.andExpect(status().isOk())
+			.andReturn();
+		return this.objectMapper.readTree(result.getResponse().getContentAsString());
+	}
+
+	private static String training(String title, int minutes) {
+		return "{\"title\":\"" + title + "\",\"description\":\"" + title + " notes\",\"type\":\"Cardio\","
+				+ "\"durationMinutes\":" + minutes + ",\"difficulty\":\"Easy\"}";
+	}
+
+	private static String withId(long id, String json) {
+		return "{\"id\":" + id + "," + json.substring(1);
+	}
+
+	private static String trainings(int count) {
+		StringBuilder json = new StringBuilder("[");
+		for (int i = 0; i < count; i++) {
+			json.append(i > 0 ? "," : "").append(training("Run " + i, 30));
+		}
+		return json.append(']').toString();
+	}
+
+	private JsonNode create(String token, String json) throws Exception {
+		MvcResult result = this.mockMvc.perform(post("/api/trainings").header("Authorization", "Bearer " + token)
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(json))
+			.andExpect(status().isOk())
+			.andReturn();
+		return this.objectMapper.readTree(result.getResponse().getContentAsString());
+	}
+
+	private static String token(String subject) {
+		return JWT.create()
+			.withKeyId("test-key")
+			.withIssuer(ISSUER)
+			.withClaim("azp", "training-app")
+			.withSubject(subject)
+			.withExpiresAt(Instant.now().plusSeconds(300))
+			.sign(Algorithm.RSA256(null, (RSAPrivateKey) KEY_PAIR.getPrivate()));
+	}
+
+	private static KeyPair generateKeyPair() {
+		try {
+			KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+			generator.initialize(2048);
+			return generator.generateKeyPair();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
@@ -0,0 +1,115 @@
+package com.example.backend.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.backend.event.UserDataChangedEvent.ChangeType;
+import com.example.backend.event.UserDataChangedEvent.Resource;
+
+@SpringBootTest
+class ChangeFeedTests {
+
+	// 同じストライプに割り当てられるユーザー（"a".hashCode() と "e".hashCode() は 4 で割った余りが同じ）
+	private static final String STALLED_USER = "a";
+
+	private static final String OTHER_USER = "e";
+
+	@Autowired
+	private ChangeFeed changeFeed;
+
+	@Value("${change-feed.history-size}")
+	private int historySize;
+
+	@Value("${change-feed.send-queue-size}")
+	private int sendQueueSize;
+
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	@AfterEach
+	void releaseStalledSends() {
+		release.countDown();
+	}
+
+	@Test
+	void stalledSubscriberDoesNotDelayOtherUsers() throws Exception {
+		StalledEmitter stalled = new StalledEmitter();
+		changeFeed.subscribe(STALLED_USER, null, stalled);
+		assertThat(stalled.sending.await(5, TimeUnit.SECONDS)).isTrue();
+
+		RecordingEmitter other = new RecordingEmitter();
+		changeFeed.subscribe(OTHER_USER, null, other);
+		assertThat(other.sent.poll(5, TimeUnit.SECONDS)).isNotNull();
+
+		changeFeed.onUserDataChanged(changed(STALLED_USER));
+		changeFeed.onUserDataChanged(changed(OTHER_USER));
+
+		assertThat(other.sent.poll(5, TimeUnit.SECONDS)).isNotNull();
+	}
+
+	@Test
+	void subscriberIsClosedWhenItsQueueOverflows() throws Exception {
+		StalledEmitter stalled = new StalledEmitter();
+		changeFeed.subscribe(STALLED_USER, null, stalled);
+		assertThat(stalled.sending.await(5, TimeUnit.SECONDS)).isTrue();
+
+		// 送信中の1件に加えて、キュー（再送できる履歴 + 送信待ち）を超える件数を発行する
+		for (int i = 0; i < historySize + sendQueueSize + 2; i++) {
+			changeFeed.onUserDataChanged(changed(STALLED_USER));
+		}
+
+		assertThat(stalled.failed.await(5, TimeUnit.SECONDS)).isTrue();
+	}
+
+	private static UserDataChangedEvent changed(String userId) {
+		return new UserDataChangedEvent(userId, Resource.TRAINING, ChangeType.UPDATED, 1L);
+	}
+
+	// 受け取らないクライアント。最初の送信で止まる
+	private class StalledEmitter extends SseEmitter {
+
+		private final CountDownLatch sending = new CountDownLatch(1);
+
+		private final CountDownLatch failed = new CountDownLatch(1);
+
+		@Override
+		public void send(SseEventBuilder builder) throws IOException {
+			sending.countDown();
+			try {
+				release.await();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		@Override
+		public void completeWithError(Throwable ex) {
+			failed.countDown();
+		}
+
+	}
+
+	private static class RecordingEmitter extends SseEmitter {
+
+		private final BlockingQueue<SseEventBuilder> sent = new LinkedBlockingQueue<>();
+
+		@Override
+		public void send(SseEventBuilder builder) {
+			sent.add(builder);
+		}
+
+	}
+
+}
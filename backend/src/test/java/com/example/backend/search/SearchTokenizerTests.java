@@ -0,0 +1,35 @@
+package com.example.backend.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class SearchTokenizerTests {
+
+	@Test
+	void tokenizesWordsAndJapaneseBigrams() {
+		assertThat(SearchTokenizer.tokenize("Morning RUN, 朝のランニング"))
+			.containsExactly("morning", "run", "朝の", "のラ", "ラン", "ンニ", "ニン", "ング");
+	}
+
+	@Test
+	void queryWordsAndSingleJapaneseCharactersArePrefixes() {
+		List<SearchTokenizer.QueryTerm> terms = SearchTokenizer.tokenizeQuery("ｒｕ ラ x 公園");
+
+		assertThat(terms).extracting(SearchTokenizer.QueryTerm::getText).containsExactly("ru", "ラ", "x", "公園");
+		assertThat(terms).extracting(SearchTokenizer.QueryTerm::isPrefix).containsExactly(true, true, false, false);
+	}
+
+	@Test
+	void truncatesLongTermsWithoutSplittingSurrogatePairs() {
+		String gothic = "\uD800\uDF30";
+		String term = "a".repeat(SearchTokenizer.MAX_TERM_LENGTH - 1) + gothic + "b";
+
+		assertThat(SearchTokenizer.truncate(term)).isEqualTo("a".repeat(SearchTokenizer.MAX_TERM_LENGTH - 1));
+		assertThat(SearchTokenizer.truncate("a".repeat(SearchTokenizer.MAX_TERM_LENGTH - 2) + gothic + "b"))
+			.isEqualTo("a".repeat(SearchTokenizer.MAX_TERM_LENGTH - 2) + gothic);
+	}
+
+}
@@ -0,0 +1,103 @@
+package com.example.backend.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.backend.cache.UserScopedCache;
+import com.example.backend.dto.TrainingCursor;
+import com.example.backend.entity.Training;
+
+@SpringBootTest
+@Transactional
+class TrainingSearchIndexTests {
+
+	private static final String USER_ID = "search-index-user";
+
+	@Autowired
+	private TrainingSearchIndex trainingSearchIndex;
+
+	@Autowired
+	@Qualifier("trainingSearchRankingCache")
+	private UserScopedCache trainingSearchRankingCache;
+
+	@Value("${search.max-postings-per-term}")
+	private int maxPostingsPerTerm;
+
+	@Test
+	void ranksOnlyTheTopCandidatesAfterTheCursor() {
+		trainingSearchIndex.indexAll(List.of(
+				training(1L, "morning run", null),
+				training(2L, "run", "run"),
+				training(3L, "walk", "run"),
+				training(4L, "run", null),
+				training(5L, "swim", null)));
+
+		assertThat(trainingSearchIndex.rank(USER_ID, "run", null, 2))
+			.containsExactly(entry(2L, 8), entry(4L, 6));
+		assertThat(trainingSearchIndex.rank(USER_ID, "run", TrainingCursor.ofRank(6, 4L), 10))
+			.containsExactly(entry(1L, 6), entry(3L, 2));
+		assertThat(trainingSearchIndex.rank(USER_ID, "run", null, 10)).hasSize(4);
+	}
+
+	@Test
+	void readsAtMostTheConfiguredPostingsPerTermOnALargeHistory() {
+		// 重みの大きい古い1件と、同じ重みの多数の一致。重みの大きい順・新しい順に上限件数だけが候補になる
+		String userId = "search-index-large";
+		List<Training> trainings = new ArrayList<>();
+		trainings.add(training(userId, 1L, "run", "run"));
+		for (long id = 2; id <= maxPostingsPerTerm + 500; id++) {
+			trainings.add(training(userId, id, "run", null));
+		}
+		trainingSearchIndex.indexAll(trainings);
+
+		LinkedHashMap<Long, Integer> ranked = trainingSearchIndex.rank(userId, "run", null, Integer.MAX_VALUE);
+
+		assertThat(ranked).hasSize(maxPostingsPerTerm);
+		assertThat(ranked.entrySet()).first().isEqualTo(entry(1L, 8));
+		assertThat(new ArrayList<>(ranked.keySet()).subList(1, 3)).containsExactly(maxPostingsPerTerm + 500L, maxPostingsPerTerm + 499L);
+		assertThat(ranked).doesNotContainKey(501L);
+	}
+
+	@Test
+	void pagesThroughTheRankingWithoutRecomputingItUntilTheUserIsInvalidated() {
+		String userId = "search-index-paging";
+		trainingSearchIndex.indexAll(List.of(
+				training(userId, 1L, "run", null),
+				training(userId, 2L, "run", null),
+				training(userId, 3L, "run", null)));
+		assertThat(trainingSearchIndex.rank(userId, "run", null, 2)).containsExactly(entry(3L, 6), entry(2L, 6));
+
+		// 無効化されるまでは、その後の書き込みを読み直さずに同じ順位から次のページを返す
+		trainingSearchIndex.index(training(userId, 4L, "run", null));
+		assertThat(trainingSearchIndex.rank(userId, "run", TrainingCursor.ofRank(6, 2L), 2)).containsExactly(entry(1L, 6));
+
+		trainingSearchRankingCache.invalidateUser(userId);
+		assertThat(trainingSearchIndex.rank(userId, "run", null, 2)).containsExactly(entry(4L, 6), entry(3L, 6));
+	}
+
+	private static Training training(Long id, String title, String description) {
+		return training(USER_ID, id, title, description);
+	}
+
+	private static Training training(String userId, Long id, String title, String description) {
+		Training training = new Training(title, description, "Cardio", 30, "Easy", userId);
+		training.setId(id);
+		return training;
+	}
+
+	private static Map.Entry<Long, Integer> entry(Long id, int score) {
+		return Map.entry(id, score);
+	}
+
+}
@@ -0,0 +1,159 @@
+package com.example.backend.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class JwtAuthenticationFilterTests {
+
+	private static final String ISSUER = "http://localhost/realms/test";
+
+	private static final KeyPair KEY_PAIR = generateKeyPair();
+
+	private static final KeyPair ROTATED_KEY_PAIR = generateKeyPair();
+
+	private static Path jwksFile;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@DynamicPropertySource
+	static void jwks(DynamicPropertyRegistry registry) throws IOException {
+		jwksFile = Files.createTempFile("jwks", ".json");
+		Files.writeString(jwksFile, "{\"keys\":[" + jwk("test-key", KEY_PAIR) + "]}");
+		jwksFile.toFile().deleteOnExit();
+
+		registry.add("security.jwt.jwks-uri", () -> jwksFile.toUri().toString());
+		registry.add("security.jwt.issuer", () -> ISSUER);
+		registry.add("security.jwt.jwks-min-refresh-interval", () -> "PT2S");
+	}
+
+	private static String jwk(String keyId, KeyPair keyPair) {
+		RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+		Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+		return "{\"kty\":\"RSA\",\"use\":\"sig\",\"kid\":\"" + keyId + "\",\"alg\":\"RS256\","
+				+ "\"n\":\"" + encoder.encodeToString(publicKey.getModulus().toByteArray()) + "\","
+				+ "\"e\":\"" + encoder.encodeToString(publicKey.getPublicExponent().toByteArray()) + "\"}";
+	}
+
+	@Test
+	void acceptsTokenSignedByJwksKey() throws Exception {
+		this.mockMvc.perform(get("/api/trainings").header("Authorization", "Bearer " + token(ISSUER, "test-key")))
+			.andExpect(status().isOk());
+	}
+
+	@Test
+	void rejectsMissingOrUnverifiableTokens() throws Exception {
+		this.mockMvc.perform(get("/api/trainings")).andExpect(status().isUnauthorized());
+		this.mockMvc.perform(get("/api/trainings").header("Authorization", "Bearer " + token("http://evil", "test-key")))
+			.andExpect(status().isUnauthorized());
+		this.mockMvc.perform(get("/api/trainings").header("Authorization", "Bearer " + token(ISSUER, "unknown-key")))
+			.andExpect(status().isUnauthorized());
+
+		String unsigned = JWT.create().withIssuer(ISSUER).withSubject("user-1")
+			.withExpiresAt(Instant.now().plusSeconds(300)).sign(Algorithm.none());
+		this.mockMvc.perform(get("/api/trainings").header("Authorization", "Bearer " + unsigned))
+			.andExpect(status().isUnauthorized());
+	}
+
+	@Test
+	void acceptsTokenForThisApiByAudienceOrAuthorizedParty() throws Exception {
+		String byAudience = JWT.create().withKeyId("test-key").withIssuer(ISSUER).withAudience("account", "training-app")
+			.withSubject("user-1").withExpiresAt(Instant.now().plusSeconds(300))
+			.sign(Algorithm.RSA256(null, (RSAPrivateKey) KEY_PAIR.getPrivate()));
+		this.mockMvc.perform(get("/api/trainings").header("Authorization", "Bearer " + byAudience))
+			.andExpect(status().isOk());
+
+		String otherClient = JWT.create().withKeyId("test-key").withIssuer(ISSUER).withAudience("account")
+			.withClaim("azp", "other-app").withSubject("user-1").withExpiresAt(Instant.now().plusSeconds(300))
+			.sign(Algorithm.RSA256(null, (RSAPrivateKey) KEY_PAIR.getPrivate()));
+		this.mockMvc.perform(get("/api/trainings").header("Authorization", "Bearer " + otherClient))
+			.andExpect(status().isUnauthorized());
+
+		String noAudience = JWT.create().withKeyId("test-key").withIssuer(ISSUER).withSubject("user-1")
+			.withExpiresAt(Instant.now().plusSeconds(300))
+			.sign(Algorithm.RSA256(null, (RSAPrivateKey) KEY_PAIR.getPrivate()));
+		this.mockMvc.perform(get("/api/trainings").header("Authorization", "Bearer " + noAudience))
+			.andExpect(status().isUnauthorized());
+	}
+
+	@Test
+	void unknownKeyIdFailsFastAndPicksUpRotatedKeysInTheBackground() throws Exception {
+		// 鍵を追加しても、取り直しが終わるまでは待たずに 401 を返す
+		Files.writeString(jwksFile, "{\"keys\":[" + jwk("test-key", KEY_PAIR) + "," + jwk("rotated-key", ROTATED_KEY_PAIR) + "]}");
+		String rotated = "Bearer " + token(ISSUER, "rotated-key", ROTATED_KEY_PAIR);
+		awaitStatus(rotated, 200);
+
+		// 取り直した直後は間隔（2秒）が空くまで取り直さない
+		Files.writeString(jwksFile, "{\"keys\":[" + jwk("test-key", KEY_PAIR) + "," + jwk("rotated-key", ROTATED_KEY_PAIR)
+				+ "," + jwk("next-key", KEY_PAIR) + "]}");
+		String next = "Bearer " + token(ISSUER, "next-key", KEY_PAIR);
+		this.mockMvc.perform(get("/api/trainings").header("Authorization", next)).andExpect(status().isUnauthorized());
+		Thread.sleep(300);
+		this.mockMvc.perform(get("/api/trainings").header("Authorization", next)).andExpect(status().isUnauthorized());
+		awaitStatus(next, 200);
+	}
+
+	private void awaitStatus(String authorization, int expected) throws Exception {
+		long deadline = System.currentTimeMillis() + 10_000;
+		int actual;
+		do {
+			actual = this.mockMvc.perform(get("/api/trainings").header("Authorization", authorization))
+				.andReturn().getResponse().getStatus();
+			if (actual == expected) {
+				return;
+			}
+			Thread.sleep(50);
+		} while (System.currentTimeMillis() < deadline);
+		assertThat(actual).isEqualTo(expected);
+	}
+
+	private static String token(String issuer, String keyId) {
+		return token(issuer, keyId, KEY_PAIR);
+	}
+
+	private static String token(String issuer, String keyId, KeyPair keyPair) {
+		return JWT.create()
+			.withKeyId(keyId)
+			.withIssuer(issuer)
+			.withClaim("azp", "training-app")
+			.withSubject("user-1")
+			.withExpiresAt(Instant.now().plusSeconds(300))
+			.sign(Algorithm.RSA256(null, (RSAPrivateKey) keyPair.getPrivate()));
+	}
+
+	private static KeyPair generateKeyPair() {
+		try {
+			KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+			generator.initialize(2048);
+			return generator.generateKeyPair();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
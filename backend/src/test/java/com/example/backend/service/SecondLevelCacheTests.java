@@ -0,0 +1,93 @@
+package com.example.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.example.backend.entity.Training;
+import com.example.backend.entity.TrainingPlan;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+
+@SpringBootTest
+class SecondLevelCacheTests {
+
+	@Autowired
+	private TrainingService trainingService;
+
+	@Autowired
+	private TrainingPlanService trainingPlanService;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Test
+	void trainingByIdIsServedFromTheCacheAndRefreshedOnUpdate() {
+		String userId = "l2-training-user";
+		Training created = trainingService.createTraining(new Training("run", null, "Cardio", 30, "Easy", userId));
+		entityManagerFactory.getCache().evict(Training.class);
+		Statistics statistics = statistics();
+
+		long loads = statistics.getEntityLoadCount();
+		trainingService.getTrainingById(created.getId(), userId);
+		assertThat(statistics.getEntityLoadCount()).isEqualTo(loads + 1);
+		assertThat(entityManagerFactory.getCache().contains(Training.class, created.getId())).isTrue();
+
+		long hits = statistics.getSecondLevelCacheHitCount();
+		loads = statistics.getEntityLoadCount();
+		assertThat(trainingService.getTrainingById(created.getId(), userId)).isPresent();
+		assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(hits + 1);
+		assertThat(statistics.getEntityLoadCount()).isEqualTo(loads);
+
+		trainingService.updateTraining(created.getId(), new Training("long run", null, "Cardio", 60, "Easy", userId), userId);
+		assertThat(trainingService.getTrainingById(created.getId(), userId)).hasValueSatisfying(training -> {
+			assertThat(training.getTitle()).isEqualTo("long run");
+			assertThat(training.getDurationMinutes()).isEqualTo(60);
+		});
+	}
+
+	@Test
+	void planQueriesAreCachedUntilPlansChange() {
+		String userId = "l2-plan-user";
+		TrainingPlan plan = trainingPlanService.createTrainingPlan(new TrainingPlan(userId, "base", null, "Cardio", 30, "Easy"));
+		Statistics statistics = statistics();
+
+		trainingPlanService.getTrainingPlanById(plan.getId(), userId);
+		long hits = statistics.getQueryCacheHitCount();
+		assertThat(trainingPlanService.getTrainingPlanById(plan.getId(), userId)).isPresent();
+		assertThat(statistics.getQueryCacheHitCount()).isEqualTo(hits + 1);
+
+		// training_plans への書き込みで、キャッシュ済みのクエリ結果は使われなくなる
+		trainingPlanService.createTrainingPlan(new TrainingPlan(userId, "other", null, "Cardio", 30, "Easy"));
+		trainingPlanService.updateTrainingPlan(plan.getId(), userId, new TrainingPlan(userId, "renamed", null, "Cardio", 45, "Easy"));
+		hits = statistics.getQueryCacheHitCount();
+		assertThat(trainingPlanService.getTrainingPlanById(plan.getId(), userId))
+			.hasValueSatisfying(found -> assertThat(found.getName()).isEqualTo("renamed"));
+		assertThat(statistics.getQueryCacheHitCount()).isEqualTo(hits);
+	}
+
+	@Test
+	void cacheStatisticsArePublishedAsMetrics() {
+		String userId = "l2-metrics-user";
+		Training created = trainingService.createTraining(new Training("run", null, "Cardio", 30, "Easy", userId));
+		trainingService.getTrainingById(created.getId(), userId);
+		trainingService.getTrainingById(created.getId(), userId);
+
+		assertThat(meterRegistry.find("hibernate.second.level.cache.requests").tag("result", "hit").functionCounters())
+			.anySatisfy(counter -> assertThat(counter.count()).isPositive());
+		assertThat(meterRegistry.find("hibernate.cache.query.requests").functionCounters()).isNotEmpty();
+	}
+
+	private Statistics statistics() {
+		return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+	}
+
+}
@@ -0,0 +1,43 @@
+package com.example.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.example.backend.entity.Training;
+
+import jakarta.persistence.EntityManagerFactory;
+
+@SpringBootTest
+class TrainingServiceExportTests {
+
+	private static final String USER_ID = "export-service-user";
+
+	@Autowired
+	private TrainingService trainingService;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Test
+	void exportDoesNotFillTheSecondLevelCache() {
+		List<Training> trainings = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			trainings.add(new Training("run " + i, null, "Cardio", 30, "Easy", USER_ID));
+		}
+		List<Long> ids = trainingService.createTrainings(trainings, USER_ID).stream().map(Training::getId).toList();
+		entityManagerFactory.getCache().evict(Training.class);
+
+		List<Long> exported = new ArrayList<>();
+		trainingService.streamTrainings(USER_ID, training -> exported.add(training.getId()));
+
+		assertThat(exported).containsExactlyElementsOf(ids);
+		assertThat(ids).noneMatch(id -> entityManagerFactory.getCache().contains(Training.class, id));
+	}
+
+}
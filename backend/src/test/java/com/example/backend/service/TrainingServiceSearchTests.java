@@ -0,0 +1,72 @@
+package com.example.backend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.backend.dto.TrainingCursor;
+import com.example.backend.dto.TrainingFilter;
+import com.example.backend.dto.TrainingPage;
+import com.example.backend.dto.TrainingSummary;
+import com.example.backend.entity.Training;
+
+@SpringBootTest
+@Transactional
+class TrainingServiceSearchTests {
+
+	private static final String USER_ID = "search-service-user";
+
+	private static final List<String> FIELDS = TrainingSummary.resolveFields(null);
+
+	@Autowired
+	private TrainingService trainingService;
+
+	@Test
+	void findsLowRankedMatchesBeyondTheFirstCandidateWindow() {
+		List<Training> trainings = new ArrayList<>();
+		for (int i = 0; i < 250; i++) {
+			trainings.add(new Training("run " + i, null, "Cardio", 30, "Easy", USER_ID));
+		}
+		trainings.add(new Training("evening", "run", "Strength", 30, "Easy", USER_ID));
+		trainingService.createTrainings(trainings, USER_ID);
+
+		TrainingFilter filter = new TrainingFilter();
+		filter.setSearch("run");
+		filter.setType("Strength");
+		TrainingPage page = trainingService.findTrainings(USER_ID, filter, FIELDS, null, 1);
+
+		assertThat(page.getItems()).extracting(TrainingSummary::getTitle).containsExactly("evening");
+		assertThat(page.getNextCursor()).isNull();
+	}
+
+	@Test
+	void pagesThroughSearchResultsInRankOrder() {
+		List<Training> trainings = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			trainings.add(new Training("run", i % 2 == 0 ? "run" : null, "Cardio", 30, "Easy", USER_ID));
+		}
+		trainingService.createTrainings(trainings, USER_ID);
+
+		TrainingFilter filter = new TrainingFilter();
+		filter.setSearch("run");
+		List<Long> ids = new ArrayList<>();
+		TrainingPage page = trainingService.findTrainings(USER_ID, filter, FIELDS, null, 2);
+		ids.addAll(page.getItems().stream().map(TrainingSummary::getId).toList());
+		while (page.getNextCursor() != null) {
+			page = trainingService.findTrainings(USER_ID, filter, FIELDS,
+					TrainingCursor.decode(page.getNextCursor()), 2);
+			ids.addAll(page.getItems().stream().map(TrainingSummary::getId).toList());
+		}
+
+		assertThat(ids).hasSize(5).doesNotHaveDuplicates();
+		assertThat(trainingService.findTrainings(USER_ID, filter, FIELDS)).extracting(TrainingSummary::getId)
+			.containsExactlyElementsOf(ids);
+	}
+
+}
@@ -0,0 +1,166 @@
+package com.example.backend.stats;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import com.example.backend.entity.Training;
+import com.example.backend.entity.TrainingStatsBucket;
+import com.example.backend.repository.TrainingStatsRepository;
+import com.example.backend.service.TrainingService;
+
+@SpringBootTest
+class TrainingStatsRollupTests {
+
+	private static final LocalDate ALL_FROM = LocalDate.of(1970, 1, 1);
+
+	private static final LocalDate ALL_TO = LocalDate.of(9999, 12, 31);
+
+	@Autowired
+	private TrainingStatsRollup trainingStatsRollup;
+
+	@Autowired
+	private TrainingStatsRepository trainingStatsRepository;
+
+	@Autowired
+	private TrainingService trainingService;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Test
+	void createsTheBucketOnFirstWriteAndIncrementsItAfterwards() {
+		String userId = "rollup-first-write";
+		trainingStatsRollup.added(List.of(training(userId, 30)));
+
+		assertThat(buckets(userId)).singleElement()
+			.satisfies(bucket -> assertThat(bucket.getSessions()).isEqualTo(1))
+			.satisfies(bucket -> assertThat(bucket.getTotalMinutes()).isEqualTo(30));
+
+		trainingStatsRollup.added(List.of(training(userId, 15), training(userId, 5)));
+
+		assertThat(buckets(userId)).singleElement()
+			.satisfies(bucket -> assertThat(bucket.getSessions()).isEqualTo(3))
+			.satisfies(bucket -> assertThat(bucket.getTotalMinutes()).isEqualTo(50));
+	}
+
+	@Test
+	void concurrentFirstWritesToTheSameBucketDoNotFail() throws Exception {
+		String userId = "rollup-concurrent";
+		int writers = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(writers);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < writers; i++) {
+				futures.add(executor.submit(() -> {
+					start.await();
+					trainingStatsRollup.added(List.of(training(userId, 10)));
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		assertThat(buckets(userId)).singleElement()
+			.satisfies(bucket -> assertThat(bucket.getSessions()).isEqualTo(writers))
+			.satisfies(bucket -> assertThat(bucket.getTotalMinutes()).isEqualTo(10L * writers));
+	}
+
+	@Test
+	void firstWritesDoNotNeedASecondConnection() throws Exception {
+		// プールの全接続をそれぞれのトランザクションが持ったまま、未作成のバケットへ書き込む
+		String userId = "rollup-pool";
+		int writers = dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+		ExecutorService executor = Executors.newFixedThreadPool(writers);
+		try {
+			CyclicBarrier allConnected = new CyclicBarrier(writers);
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < writers; i++) {
+				int minutes = i + 1;
+				futures.add(executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+					trainingStatsRepository.count();
+					try {
+						allConnected.await(10, TimeUnit.SECONDS);
+					} catch (Exception e) {
+						throw new IllegalStateException(e);
+					}
+					Training training = training(userId, minutes);
+					training.setCreatedAt(LocalDateTime.of(2024, 1, 10, 9, 0).plusWeeks(minutes));
+					trainingStatsRollup.added(List.of(training));
+				})));
+			}
+			for (Future<?> future : futures) {
+				future.get(20, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertThat(buckets(userId)).hasSize(writers);
+	}
+
+	@Test
+	void incrementalRollupMatchesARebuild() {
+		String userId = "rollup-rebuild";
+		List<Training> created = trainingService.createTrainings(List.of(
+				new Training("Run", null, "Cardio", 30, "Easy", userId),
+				new Training("Lift", null, "Strength", 45, "Hard", userId),
+				new Training("Swim", null, "Cardio", 20, "Easy", userId)), userId);
+		Training changed = new Training("Run", null, "Cardio", 40, "Medium", userId);
+		trainingService.updateTraining(created.get(0).getId(), changed, userId);
+		trainingService.deleteTraining(created.get(1).getId(), userId);
+		trainingService.createTraining(new Training("Yoga", null, "Flexibility", 60, "Easy", userId));
+
+		Map<String, String> incremental = totals(userId);
+		trainingService.rebuildStats(userId);
+
+		assertThat(totals(userId)).isEqualTo(incremental).hasSize(3);
+	}
+
+	private List<TrainingStatsBucket> buckets(String userId) {
+		return trainingStatsRepository.findActive(userId, ALL_FROM, ALL_TO);
+	}
+
+	// 0 件のバケットは集計に含まれないため、件数のあるバケットだけを比べる
+	private Map<String, String> totals(String userId) {
+		return buckets(userId).stream().collect(Collectors.toMap(
+				bucket -> bucket.getType() + "/" + bucket.getDifficulty() + "/" + bucket.getWeekStart(),
+				bucket -> bucket.getSessions() + "/" + bucket.getTotalMinutes()));
+	}
+
+	private static Training training(String userId, int minutes) {
+		Training training = new Training("Run", null, "Cardio", minutes, "Easy", userId);
+		training.setCreatedAt(LocalDateTime.of(2024, 1, 10, 9, 0));
+		return training;
+	}
+
+}
@@ -0,0 +1,136 @@
+package com.example.backend.tracing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@ActiveProfiles("traces")
+class TracesEndpointTests {
+
+	private static final String ISSUER = "http://localhost/realms/test";
+
+	private static final KeyPair KEY_PAIR = generateKeyPair();
+
+	private static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+
+	private static final String PARENT_SPAN_ID = "00f067aa0ba902b7";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@DynamicPropertySource
+	static void jwksAndDatabase(DynamicPropertyRegistry registry) throws IOException {
+		RSAPublicKey publicKey = (RSAPublicKey) KEY_PAIR.getPublic();
+		Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+		String jwks = "{\"keys\":[{\"kty\":\"RSA\",\"use\":\"sig\",\"kid\":\"test-key\",\"alg\":\"RS256\","
+				+ "\"n\":\"" + encoder.encodeToString(publicKey.getModulus().toByteArray()) + "\","
+				+ "\"e\":\"" + encoder.encodeToString(publicKey.getPublicExponent().toByteArray()) + "\"}]}";
+		Path file = Files.createTempFile("jwks", ".json");
+		Files.writeString(file, jwks);
+		file.toFile().deleteOnExit();
+
+		registry.add("security.jwt.jwks-uri", () -> file.toUri().toString());
+		registry.add("security.jwt.issuer", () -> ISSUER);
+		// 他のテストのコンテキストと同じインメモリ DB を作り直さないよう、別の DB を使う
+		registry.add("spring.datasource.url", () -> "jdbc:h2:mem:traces");
+	}
+
+	@Test
+	void continuesTheCallersTraceAndRecordsItsSqlSpans() throws Exception {
+		this.mockMvc.perform(get("/api/trainings").header("Authorization", "Bearer " + token("traces-user"))
+				.header("traceparent", "00-" + TRACE_ID + "-" + PARENT_SPAN_ID + "-01"))
+			.andExpect(status().isOk())
+			.andExpect(header().string(ServerTimingFilter.SERVER_TIMING,
+					matchesPattern("backend;dur=\\d+\\.\\d, db;dur=\\d+\\.\\d")));
+
+		JsonNode trace = awaitTrace(TRACE_ID);
+		List<String> names = new ArrayList<>();
+		trace.get("spans").forEach(span -> names.add(span.get("name").asText()));
+		assertThat(trace.get("traceId").asText()).isEqualTo(TRACE_ID);
+		assertThat(trace.get("spans")).anySatisfy(span -> {
+			assertThat(span.get("kind").asText()).isEqualTo("SERVER");
+			assertThat(span.get("parentSpanId").asText()).isEqualTo(PARENT_SPAN_ID);
+		});
+		assertThat(names).as("spans %s", names).contains("query");
+	}
+
+	@Test
+	void unknownTracesAreNotFound() throws Exception {
+		this.mockMvc.perform(get("/actuator/traces/0123456789abcdef0123456789abcdef"))
+			.andExpect(status().isNotFound());
+	}
+
+	// スパンはバッチでエクスポートされるため、現れるまで待つ
+	private JsonNode awaitTrace(String traceId) throws Exception {
+		long deadline = System.nanoTime() + 15_000_000_000L;
+		while (true) {
+			MvcResult result = this.mockMvc.perform(get("/actuator/traces/" + traceId)).andReturn();
+			if (result.getResponse().getStatus() == 200) {
+				JsonNode trace = this.objectMapper.readTree(result.getResponse().getContentAsString());
+				if (trace.get("spans").size() > 1) {
+					return trace;
+				}
+			}
+			assertThat(System.nanoTime()).as("trace %s was not exported", traceId).isLessThan(deadline);
+			Thread.sleep(100);
+		}
+	}
+
+	private static String token(String subject) {
+		return JWT.create()
+			.withKeyId("test-key")
+			.withIssuer(ISSUER)
+			.withClaim("azp", "training-app")
+			.withSubject(subject)
+			.withExpiresAt(Instant.now().plusSeconds(300))
+			.sign(Algorithm.RSA256(null, (RSAPrivateKey) KEY_PAIR.getPrivate()));
+	}
+
+	private static KeyPair generateKeyPair() {
+		try {
+			KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+			generator.initialize(2048);
+			return generator.generateKeyPair();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
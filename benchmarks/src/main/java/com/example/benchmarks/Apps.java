@@ -0,0 +1,105 @@
+package com.example.benchmarks;
+
+import com.example.apigateway.ApiGatewayApplication;
+import com.example.backend.TrainingBackendApplication;
+import com.example.bff.TrainingBffApplication;
+import org.springframework.boot.actuate.autoconfigure.security.reactive.ReactiveManagementWebSecurityAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.ManagementWebSecurityAutoConfiguration;
+import org.springframework.boot.autoconfigure.flyway.FlywayAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.reactive.ReactiveSecurityAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.reactive.ReactiveUserDetailsServiceAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.SecurityFilterAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.UserDetailsServiceAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * ベンチマーク・負荷試験からサービスを同じ JVM 内で起動する。
+ * 3つのサービスの application.yml と依存が同じクラスパスに並ぶため、設定ファイルは各サービスの jar（または classes ディレクトリ）の
+ * ものを明示して読み込み、他のサービスの依存で有効になる自動設定（BFF の Spring Security、backend の DB）は外す。
+ * API Gateway は WebFlux のため、Spring MVC・Tomcat が同じクラスパスにあってもリアクティブ・Netty で起動する。
+ */
+public final class Apps {
+
+    // 計測の邪魔になる DEBUG ログ（SQL・リクエスト毎のログ）を止める
+    private static final List<String> QUIET = List.of(
+        "--spring.main.banner-mode=off",
+        "--logging.level.root=WARN",
+        "--logging.level.org.springframework.web=WARN",
+        "--logging.level.org.springframework.security=WARN",
+        "--logging.level.org.hibernate.SQL=WARN",
+        "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+        "--logging.level.com.example=WARN",
+        "--spring.jpa.show-sql=false");
+
+    private static final List<Class<?>> SECURITY = List.of(
+        SecurityAutoConfiguration.class, SecurityFilterAutoConfiguration.class,
+        UserDetailsServiceAutoConfiguration.class, ManagementWebSecurityAutoConfiguration.class);
+
+    private static final List<Class<?>> REACTIVE_SECURITY = List.of(
+        ReactiveSecurityAutoConfiguration.class, ReactiveUserDetailsServiceAutoConfiguration.class,
+        ReactiveManagementWebSecurityAutoConfiguration.class);
+
+    private static final List<Class<?>> DATABASE = List.of(
+        DataSourceAutoConfiguration.class, HibernateJpaAutoConfiguration.class, FlywayAutoConfiguration.class);
+
+    private Apps() {
+    }
+
+    public static ConfigurableApplicationContext runBackend(String... args) {
+        return run(new Class<?>[] {TrainingBackendApplication.class}, configLocation(TrainingBackendApplication.class), SECURITY, args);
+    }
+
+    public static ConfigurableApplicationContext runGateway(String... args) {
+        List<Class<?>> excluded = Stream.of(SECURITY, REACTIVE_SECURITY, DATABASE).flatMap(List::stream).toList();
+        List<String> arguments = new ArrayList<>(List.of("--spring.main.web-application-type=reactive"));
+        arguments.addAll(List.of(args));
+        return run(new Class<?>[] {ApiGatewayApplication.class, NettyServer.class}, configLocation(ApiGatewayApplication.class),
+            excluded, arguments.toArray(new String[0]));
+    }
+
+    // BFF の application.yml は各自の環境用（Git 管理外）のため、呼び出し側で用意した設定を使う
+    public static ConfigurableApplicationContext runBff(String config, String... args) {
+        return run(new Class<?>[] {TrainingBffApplication.class}, config, DATABASE, args);
+    }
+
+    public static int port(ConfigurableApplicationContext context) {
+        return context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+
+    private static ConfigurableApplicationContext run(Class<?>[] sources, String config, List<Class<?>> excluded, String... args) {
+        List<String> arguments = new ArrayList<>(QUIET);
+        arguments.add("--spring.config.location=" + config);
+        arguments.add("--spring.autoconfigure.exclude=" + excluded.stream().map(Class::getName).collect(Collectors.joining(",")));
+        arguments.addAll(List.of(args));
+        return new SpringApplicationBuilder(sources).run(arguments.toArray(new String[0]));
+    }
+
+    private static String configLocation(Class<?> application) {
+        URL location = application.getProtectionDomain().getCodeSource().getLocation();
+        String base = location.toString();
+        return base.endsWith(".jar") ? "jar:" + base + "!/application.yml" : base + "application.yml";
+    }
+
+    // 自動設定はクラスパスに Tomcat があると Tomcat を選ぶため、API Gateway 単体と同じ Netty を明示する
+    @Configuration(proxyBeanMethods = false)
+    static class NettyServer {
+
+        @Bean
+        NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+            return new NettyReactiveWebServerFactory();
+        }
+    }
+}
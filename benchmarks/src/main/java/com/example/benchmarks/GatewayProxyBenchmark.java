@@ -0,0 +1,175 @@
+package com.example.benchmarks;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * API Gateway の中継のオーバーヘッド。固定のレスポンスを返すスタブのバックエンドに対し、
+ * 直接呼んだ場合（direct）と Gateway 経由（クエリ文字列の組み立て・転送・ヘッダーのコピーを含む）の差を見る。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+// スタブ（JDK の HttpServer）は既定で Nagle が有効で、遅延 ACK と重なり 40ms 待たされるため無効にする
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g", "-Dsun.net.httpserver.nodelay=true"})
+public class GatewayProxyBenchmark {
+
+    private static final String ISSUER = "http://localhost/realms/benchmark";
+    private static final String KEY_ID = "benchmark-key";
+    private static final String LIST_QUERY = "/api/trainings?type=cardio&difficulty=easy&search=run&minDuration=10&maxDuration=60&limit=50&fields=title,type";
+
+    // スタブが返す一覧の件数
+    @Param({"20", "200"})
+    private int items;
+
+    private HttpServer backend;
+    private ExecutorService backendExecutor;
+    private ConfigurableApplicationContext gateway;
+    private HttpClient client;
+    private URI directList;
+    private URI gatewayList;
+    private URI gatewayById;
+    private String authorization;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, NoSuchAlgorithmException {
+        byte[] list = listJson(items).getBytes(StandardCharsets.UTF_8);
+        byte[] single = itemJson(1).getBytes(StandardCharsets.UTF_8);
+
+        backend = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        backend.createContext("/api/trainings", exchange -> {
+            byte[] body = exchange.getRequestURI().getPath().equals("/api/trainings") ? list : single;
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.getResponseHeaders().set("ETag", "\"training-benchmark-1\"");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        backendExecutor = Executors.newFixedThreadPool(4);
+        backend.setExecutor(backendExecutor);
+        backend.start();
+        String backendUrl = "http://localhost:" + backend.getAddress().getPort();
+
+        // 流量制限の主体を求めるため、Gateway は JWKS の鍵で署名を確かめる（検証済みのトークンはキャッシュに当たる）
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        Path jwks = Files.createTempFile("jwks", ".json");
+        jwks.toFile().deleteOnExit();
+        Files.writeString(jwks, jwks((RSAPublicKey) keyPair.getPublic()));
+        authorization = "Bearer " + JWT.create()
+            .withKeyId(KEY_ID)
+            .withIssuer(ISSUER)
+            .withSubject("benchmark-user")
+            .withExpiresAt(Instant.now().plusSeconds(3600))
+            .sign(Algorithm.RSA256(null, (RSAPrivateKey) keyPair.getPrivate()));
+
+        // 1人の利用者で上限なく呼ぶため、流量制限は判定だけ行い断らない値にする
+        gateway = Apps.runGateway("--server.port=0", "--backend.url=" + backendUrl,
+            "--security.jwt.jwks-uri=" + jwks.toUri(), "--security.jwt.issuer=" + ISSUER,
+            "--rate-limit.subject.rate=1e9", "--rate-limit.subject.burst=1000000000",
+            "--rate-limit.global.rate=1e9", "--rate-limit.global.burst=1000000000");
+        String gatewayUrl = "http://localhost:" + Apps.port(gateway);
+
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        directList = URI.create(backendUrl + LIST_QUERY);
+        gatewayList = URI.create(gatewayUrl + LIST_QUERY);
+        gatewayById = URI.create(gatewayUrl + "/api/trainings/1");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        gateway.close();
+        backend.stop(0);
+        backendExecutor.shutdown();
+    }
+
+    @Benchmark
+    public byte[] direct() throws IOException, InterruptedException {
+        return get(directList);
+    }
+
+    @Benchmark
+    public byte[] viaGatewayList() throws IOException, InterruptedException {
+        return get(gatewayList);
+    }
+
+    @Benchmark
+    public byte[] viaGatewayById() throws IOException, InterruptedException {
+        return get(gatewayById);
+    }
+
+    private byte[] get(URI uri) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+            .header("Authorization", authorization)
+            .GET()
+            .build();
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("unexpected status " + response.statusCode() + " for " + uri);
+        }
+        return response.body();
+    }
+
+    private static String listJson(int count) {
+        StringBuilder json = new StringBuilder("{\"items\":[");
+        for (int i = 1; i <= count; i++) {
+            if (i > 1) {
+                json.append(',');
+            }
+            json.append(itemJson(i));
+        }
+        return json.append("],\"nextCursor\":null}").toString();
+    }
+
+    private static String itemJson(int id) {
+        return "{\"id\":" + id + ",\"title\":\"Training " + id + "\",\"type\":\"cardio\",\"durationMinutes\":30,"
+            + "\"difficulty\":\"easy\",\"createdAt\":\"2025-01-01T09:00:00\",\"updatedAt\":\"2025-01-01T09:00:00\"}";
+    }
+
+    private static String jwks(RSAPublicKey publicKey) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return "{\"keys\":[{\"kty\":\"RSA\",\"use\":\"sig\",\"kid\":\"" + KEY_ID + "\",\"alg\":\"RS256\","
+            + "\"n\":\"" + encoder.encodeToString(publicKey.getModulus().toByteArray()) + "\","
+            + "\"e\":\"" + encoder.encodeToString(publicKey.getPublicExponent().toByteArray()) + "\"}]}";
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.benchmarks;
+
+import com.example.backend.dto.TrainingSummary;
+import com.example.backend.entity.Training;
+import com.example.backend.entity.TrainingPlan;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * レスポンスの JSON シリアライズ（Training / TrainingPlan / 一覧用の TrainingSummary のリスト）。
+ * ObjectMapper は Spring Boot と同じ既定値（JavaTimeModule、日時は ISO 文字列）で作る。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class JsonSerializationBenchmark {
+
+    private static final String[] TYPES = {"cardio", "strength", "flexibility", "balance"};
+    private static final String[] DIFFICULTIES = {"easy", "medium", "hard"};
+
+    @Param({"10", "100", "1000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private List<Training> trainings;
+    private List<TrainingPlan> trainingPlans;
+    private List<TrainingSummary> summaries;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        // 毎回同じデータになるよう乱数の種を固定する
+        Random random = new Random(42);
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 9, 0);
+        trainings = new ArrayList<>(size);
+        trainingPlans = new ArrayList<>(size);
+        summaries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String type = TYPES[random.nextInt(TYPES.length)];
+            String difficulty = DIFFICULTIES[random.nextInt(DIFFICULTIES.length)];
+            LocalDateTime createdAt = base.plusMinutes(random.nextInt(525_600));
+
+            Training training = new Training("Training " + i, "Description of training " + i + " ".repeat(random.nextInt(200)),
+                type, 10 + random.nextInt(110), difficulty, "benchmark-user");
+            training.setId((long) i + 1);
+            training.setCreatedAt(createdAt);
+            training.setUpdatedAt(createdAt);
+            training.setVersion(0L);
+            trainings.add(training);
+
+            TrainingPlan plan = new TrainingPlan("benchmark-user", "Plan " + i, "Description of plan " + i,
+                type, 1 + random.nextInt(12), difficulty);
+            plan.setId((long) i + 1);
+            plan.setCreatedAt(createdAt);
+            plan.setUpdatedAt(createdAt);
+            plan.setVersion(0L);
+            trainingPlans.add(plan);
+
+            TrainingSummary summary = new TrainingSummary();
+            summary.setId(training.getId());
+            summary.setTitle(training.getTitle());
+            summary.setType(type);
+            summary.setDurationMinutes(training.getDurationMinutes());
+            summary.setDifficulty(difficulty);
+            summary.setCreatedAt(createdAt);
+            summary.setUpdatedAt(createdAt);
+            summaries.add(summary);
+        }
+    }
+
+    @Benchmark
+    public byte[] trainings() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(trainings);
+    }
+
+    @Benchmark
+    public byte[] trainingPlans() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(trainingPlans);
+    }
+
+    @Benchmark
+    public byte[] trainingSummaries() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(summaries);
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.benchmarks;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.example.backend.security.JwksKeyProvider;
+import com.example.backend.security.JwtTokenVerifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * バックエンドの JWT 検証。verifyCached は JwtTokenVerifier が検証済みキャッシュに当たる場合、
+ * verifySignature はキャッシュに無いトークンで JwtTokenVerifier が行う検証（JWKS の鍵で RS256 署名・発行者・有効期限）。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class JwtVerificationBenchmark {
+
+    private static final String ISSUER = "http://localhost/realms/benchmark";
+    private static final String KEY_ID = "benchmark-key";
+
+    private ConfigurableApplicationContext context;
+    private JwtTokenVerifier verifier;
+    private JWTVerifier signatureVerifier;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, NoSuchAlgorithmException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+
+        Path jwks = Files.createTempFile("jwks", ".json");
+        jwks.toFile().deleteOnExit();
+        Files.writeString(jwks, jwks((RSAPublicKey) keyPair.getPublic()));
+
+        context = Apps.runBackend(
+            "--spring.main.web-application-type=none",
+            "--security.jwt.jwks-uri=" + jwks.toUri(),
+            "--security.jwt.issuer=" + ISSUER);
+        verifier = context.getBean(JwtTokenVerifier.class);
+        signatureVerifier = JWT.require(Algorithm.RSA256(context.getBean(JwksKeyProvider.class)))
+            .withIssuer(ISSUER)
+            .acceptLeeway(context.getEnvironment().getRequiredProperty("security.jwt.leeway-seconds", Long.class))
+            .build();
+
+        token = JWT.create()
+            .withKeyId(KEY_ID)
+            .withIssuer(ISSUER)
+            .withClaim("azp", "training-app")
+            .withSubject("benchmark-user")
+            .withExpiresAt(Instant.now().plusSeconds(3600))
+            .sign(Algorithm.RSA256(null, (RSAPrivateKey) keyPair.getPrivate()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String verifyCached() {
+        return verifier.verify(token);
+    }
+
+    @Benchmark
+    public String verifySignature() {
+        return signatureVerifier.verify(token).getSubject();
+    }
+
+    private static String jwks(RSAPublicKey publicKey) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return "{\"keys\":[{\"kty\":\"RSA\",\"use\":\"sig\",\"kid\":\"" + KEY_ID + "\",\"alg\":\"RS256\","
+            + "\"n\":\"" + encoder.encodeToString(publicKey.getModulus().toByteArray()) + "\","
+            + "\"e\":\"" + encoder.encodeToString(publicKey.getPublicExponent().toByteArray()) + "\"}]}";
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.benchmarks;
+
+import com.example.backend.dto.TrainingFilter;
+import com.example.backend.dto.TrainingPlanSummary;
+import com.example.backend.dto.TrainingSummary;
+import com.example.backend.entity.Training;
+import com.example.backend.entity.TrainingPlan;
+import com.example.backend.repository.TrainingPlanRepository;
+import com.example.backend.repository.TrainingRepository;
+import com.example.backend.repository.TrainingSpecifications;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 組み込み H2 に投入したデータに対するリポジトリのファインダー。
+ * 一覧（必要な列だけのタプル取得）、条件付き一覧、ID 取得（2次キャッシュ）、プラン一覧（クエリキャッシュ）を計測する。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class RepositoryBenchmark {
+
+    private static final String USER_ID = "benchmark-user";
+    private static final String[] TYPES = {"cardio", "strength", "flexibility", "balance"};
+    private static final String[] DIFFICULTIES = {"easy", "medium", "hard"};
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id"));
+
+    // ベンチマーク対象ユーザーのトレーニング件数（他ユーザー分も同数投入する）
+    @Param({"1000", "10000"})
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+    private TrainingRepository trainingRepository;
+    private TrainingPlanRepository trainingPlanRepository;
+    private TrainingFilter cardioFilter;
+    private List<Long> ids;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = Apps.runBackend("--spring.main.web-application-type=none");
+        trainingRepository = context.getBean(TrainingRepository.class);
+        trainingPlanRepository = context.getBean(TrainingPlanRepository.class);
+
+        // 毎回同じデータになるよう乱数の種を固定する
+        Random random = new Random(42);
+        for (String userId : List.of(USER_ID, "other-user")) {
+            List<Training> trainings = new ArrayList<>(rows);
+            for (int i = 0; i < rows; i++) {
+                trainings.add(new Training("Training " + i, "Description of training " + i,
+                    TYPES[random.nextInt(TYPES.length)], 10 + random.nextInt(110),
+                    DIFFICULTIES[random.nextInt(DIFFICULTIES.length)], userId));
+            }
+            trainingRepository.saveAll(trainings);
+
+            List<TrainingPlan> plans = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                plans.add(new TrainingPlan(userId, "Plan " + i, "Description of plan " + i,
+                    TYPES[random.nextInt(TYPES.length)], 1 + random.nextInt(12),
+                    DIFFICULTIES[random.nextInt(DIFFICULTIES.length)]));
+            }
+            trainingPlanRepository.saveAll(plans);
+        }
+
+        cardioFilter = new TrainingFilter();
+        cardioFilter.setType("cardio");
+        ids = trainingRepository.findSummaries(TrainingSpecifications.forUser(USER_ID, new TrainingFilter()),
+                TrainingSummary.FIELDS, NEWEST_FIRST, 200)
+            .stream().map(TrainingSummary::getId).toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<TrainingSummary> firstPage() {
+        return trainingRepository.findSummaries(TrainingSpecifications.forUser(USER_ID, new TrainingFilter()),
+            TrainingSummary.FIELDS, NEWEST_FIRST, 21);
+    }
+
+    @Benchmark
+    public List<TrainingSummary> firstPageByType() {
+        return trainingRepository.findSummaries(TrainingSpecifications.forUser(USER_ID, cardioFilter),
+            TrainingSummary.FIELDS, NEWEST_FIRST, 21);
+    }
+
+    @Benchmark
+    public Optional<Training> findById() {
+        next = (next + 1) % ids.size();
+        return trainingRepository.findById(ids.get(next));
+    }
+
+    @Benchmark
+    public List<TrainingPlanSummary> planSummaries() {
+        return trainingPlanRepository.findSummariesByUserId(USER_ID);
+    }
+}
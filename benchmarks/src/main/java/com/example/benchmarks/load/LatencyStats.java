@@ -0,0 +1,120 @@
+package com.example.benchmarks.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.http.HttpHeaders;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 操作ごとのクライアントから見たレイテンシと、Server-Timing から読み取ったホップ（bff・gateway・backend・db）ごとの処理時間。
+ * 値はマイクロ秒で HdrHistogram に記録する。
+ */
+final class LatencyStats {
+
+    // 表示するホップの順（外側から）
+    static final List<String> HOPS = List.of("bff", "gateway", "backend", "db");
+
+    private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(2);
+    private static final double[] PERCENTILES = {50, 90, 99};
+
+    private final Map<Route, RouteStats> routes = new EnumMap<>(Route.class);
+
+    LatencyStats() {
+        for (Route route : Route.values()) {
+            routes.put(route, new RouteStats());
+        }
+    }
+
+    void record(Route route, long latencyNanos, int status, HttpHeaders headers) {
+        RouteStats stats = routes.get(route);
+        stats.latency.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_MICROS));
+        if (status == 409 && route == Route.UPDATE) {
+            // 楽観ロックの競合は想定内の応答として数える
+            stats.conflicts.increment();
+        } else if (status / 100 != 2) {
+            stats.errors.increment();
+        }
+        for (String value : headers.allValues("Server-Timing")) {
+            for (String metric : value.split(",")) {
+                recordHop(stats, metric);
+            }
+        }
+    }
+
+    // 応答が得られなかった（タイムアウト・接続エラー）場合も、それまでの時間をレイテンシとして残す
+    void recordFailure(Route route, long latencyNanos) {
+        RouteStats stats = routes.get(route);
+        stats.latency.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_MICROS));
+        stats.errors.increment();
+    }
+
+    private static void recordHop(RouteStats stats, String metric) {
+        String[] parts = metric.split(";");
+        String hop = parts[0].trim();
+        for (int i = 1; i < parts.length; i++) {
+            String param = parts[i].trim();
+            if (param.startsWith("dur=")) {
+                try {
+                    long micros = Math.round(Double.parseDouble(param.substring("dur=".length())) * 1000);
+                    stats.hops.computeIfAbsent(hop, key -> new ConcurrentHistogram(HIGHEST_MICROS, 3))
+                        .recordValue(Math.max(0, Math.min(micros, HIGHEST_MICROS)));
+                } catch (NumberFormatException e) {
+                    // 不正な値の項目は無視する
+                }
+            }
+        }
+    }
+
+    /**
+     * レポート（JSON に書き出す形）。measuredSeconds は計測区間の長さで、スループットの計算に使う。
+     */
+    Map<String, Object> report(double measuredSeconds) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        routes.forEach((route, stats) -> {
+            long count = stats.latency.getTotalCount();
+            if (count == 0) {
+                return;
+            }
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("count", count);
+            entry.put("throughput", count / measuredSeconds);
+            entry.put("errors", stats.errors.sum());
+            entry.put("conflicts", stats.conflicts.sum());
+            entry.put("latencyMs", summary(stats.latency));
+            Map<String, Object> hops = new LinkedHashMap<>();
+            for (String hop : HOPS) {
+                Histogram histogram = stats.hops.get(hop);
+                if (histogram != null && histogram.getTotalCount() > 0) {
+                    hops.put(hop, summary(histogram));
+                }
+            }
+            entry.put("hopsMs", hops);
+            report.put(route.label(), entry);
+        });
+        return report;
+    }
+
+    private static Map<String, Object> summary(Histogram histogram) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        for (double percentile : PERCENTILES) {
+            summary.put("p" + (int) percentile, histogram.getValueAtPercentile(percentile) / 1000.0);
+        }
+        summary.put("max", histogram.getMaxValue() / 1000.0);
+        summary.put("mean", histogram.getMean() / 1000.0);
+        return summary;
+    }
+
+    private static final class RouteStats {
+        private final ConcurrentHistogram latency = new ConcurrentHistogram(HIGHEST_MICROS, 3);
+        private final Map<String, ConcurrentHistogram> hops = new ConcurrentHashMap<>();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder conflicts = new LongAdder();
+    }
+}
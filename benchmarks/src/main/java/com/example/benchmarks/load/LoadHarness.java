@@ -0,0 +1,229 @@
+package com.example.benchmarks.load;
+
+import com.example.benchmarks.Apps;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * BFF・API Gateway・backend と KeyCloak の代わり（{@link OidcStandIn}）を同じ JVM で起動し、
+ * ログイン済みの利用者から BFF へ一定のレートで操作を送って、操作ごと・ホップごとのレイテンシを集計する。
+ *
+ * <p>リクエストは前の応答を待たずに予定時刻どおりに投入し（オープンループ）、レイテンシは予定時刻から測る。
+ * 処理が追いつかずワーカーで待たされた時間もレイテンシに含まれるため、過負荷時に遅延が小さく見えることはない。
+ *
+ * <p>オプション（すべて --name=value）:
+ * rate（1秒あたりのリクエスト数）、duration・warmup（秒）、users（ログインする利用者数）、trainings（利用者ごとに事前に作成する件数）、
+ * concurrency（同時に処理できるリクエスト数）、seed（乱数の種）、mix（操作の比率）、report（JSON レポートの出力先）
+ */
+public final class LoadHarness {
+
+    private static final String CLIENT_ID = "training-app";
+
+    private static final Map<String, String> DEFAULTS = Map.of(
+        "rate", "50",
+        "duration", "60",
+        "warmup", "10",
+        "users", "10",
+        "trainings", "20",
+        "concurrency", "32",
+        "seed", "42",
+        "mix", "list:40,search:20,get:20,create:10,update:10",
+        "report", "target/load-report.json");
+
+    private LoadHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        double rate = Double.parseDouble(options.get("rate"));
+        int duration = Integer.parseInt(options.get("duration"));
+        int warmup = Integer.parseInt(options.get("warmup"));
+        int userCount = Integer.parseInt(options.get("users"));
+        int trainings = Integer.parseInt(options.get("trainings"));
+        int concurrency = Integer.parseInt(options.get("concurrency"));
+        long seed = Long.parseLong(options.get("seed"));
+        TrafficMix mix = TrafficMix.parse(options.get("mix"));
+        if (rate <= 0 || duration <= 0 || warmup < 0 || userCount <= 0 || trainings <= 0 || concurrency <= 0) {
+            throw new IllegalArgumentException("rate・duration・users・trainings・concurrency は正の値、warmup は 0 以上を指定してください");
+        }
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        try (OidcStandIn oidc = new OidcStandIn(CLIENT_ID)) {
+            System.out.println("サービスを起動しています（OIDC: " + oidc.issuer() + "）");
+            ConfigurableApplicationContext backend = Apps.runBackend("--server.port=0",
+                "--security.jwt.jwks-uri=" + oidc.jwksUri(),
+                "--security.jwt.issuer=" + oidc.issuer());
+            contexts.add(backend);
+            ConfigurableApplicationContext gateway = Apps.runGateway("--server.port=0",
+                "--backend.url=http://localhost:" + Apps.port(backend),
+                "--security.jwt.jwks-uri=" + oidc.jwksUri(),
+                "--security.jwt.issuer=" + oidc.issuer());
+            contexts.add(gateway);
+            ConfigurableApplicationContext bff = Apps.runBff("classpath:load/bff.yml", "--server.port=0",
+                "--api-gateway.url=http://localhost:" + Apps.port(gateway),
+                "--load.oidc.issuer=" + oidc.issuer(),
+                "--load.oidc.client-id=" + CLIENT_ID);
+            contexts.add(bff);
+            URI bffUri = URI.create("http://localhost:" + Apps.port(bff));
+
+            // ログインと事前データの作成（計測しない）
+            List<VirtualUser> users = new ArrayList<>();
+            for (int i = 1; i <= userCount; i++) {
+                users.add(new VirtualUser(String.format("load-user-%03d", i), bffUri, objectMapper));
+            }
+            Random setupRandom = new Random(seed);
+            List<Callable<Void>> setup = new ArrayList<>();
+            for (VirtualUser user : users) {
+                long userSeed = setupRandom.nextLong();
+                setup.add(() -> {
+                    user.login();
+                    Random random = new Random(userSeed);
+                    for (int i = 0; i < trainings; i++) {
+                        HttpResponse<byte[]> response = user.create(random);
+                        if (response.statusCode() != 200) {
+                            throw new IllegalStateException(user.name() + " のトレーニング作成に失敗: " + response.statusCode());
+                        }
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> result : workers.invokeAll(setup)) {
+                result.get();
+            }
+            System.out.printf("%d 人がログインし、%d 件ずつ作成しました。%.1f req/s でウォームアップ %d 秒 + 計測 %d 秒（%s）%n",
+                userCount, trainings, rate, warmup, duration, mix);
+
+            LatencyStats stats = new LatencyStats();
+            run(workers, users, mix, new Random(seed), stats, rate, warmup, duration);
+
+            Map<String, Object> routes = stats.report(duration);
+            printReport(routes);
+            writeReport(objectMapper, Path.of(options.get("report")), options, routes);
+        } finally {
+            workers.shutdownNow();
+            for (int i = contexts.size() - 1; i >= 0; i--) {
+                contexts.get(i).close();
+            }
+        }
+    }
+
+    // 予定時刻（開始 + i / rate）ごとに操作を投入する。ウォームアップ中の予定時刻のものは集計しない
+    private static void run(ExecutorService workers, List<VirtualUser> users, TrafficMix mix, Random random,
+                            LatencyStats stats, double rate, int warmup, int duration) throws InterruptedException {
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(warmup);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(duration);
+
+        for (long i = 0; ; i++) {
+            long intended = start + i * interval;
+            if (intended >= end) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            VirtualUser user = users.get(random.nextInt(users.size()));
+            Route route = mix.next(random);
+            long taskSeed = random.nextLong();
+            boolean measured = intended >= measureFrom;
+            workers.execute(() -> {
+                try {
+                    HttpResponse<byte[]> response = user.execute(route, new Random(taskSeed));
+                    if (measured) {
+                        stats.record(route, System.nanoTime() - intended, response.statusCode(), response.headers());
+                    }
+                } catch (IOException | RuntimeException e) {
+                    if (measured) {
+                        stats.recordFailure(route, System.nanoTime() - intended);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        // 計測区間の終わりまでに投入した分の応答を待つ
+        workers.shutdown();
+        if (!workers.awaitTermination(2, TimeUnit.MINUTES)) {
+            System.out.println("2分以内に終わらなかったリクエストがあります");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void printReport(Map<String, Object> routes) {
+        System.out.println();
+        System.out.printf("%-8s %7s %8s %6s %6s %9s %9s %9s %9s%n",
+            "route", "count", "req/s", "errors", "409", "p50(ms)", "p90(ms)", "p99(ms)", "max(ms)");
+        routes.forEach((route, value) -> {
+            Map<String, Object> entry = (Map<String, Object>) value;
+            Map<String, Object> latency = (Map<String, Object>) entry.get("latencyMs");
+            System.out.printf("%-8s %7d %8.1f %6d %6d %9.1f %9.1f %9.1f %9.1f%n", route, entry.get("count"), entry.get("throughput"),
+                entry.get("errors"), entry.get("conflicts"), latency.get("p50"), latency.get("p90"), latency.get("p99"), latency.get("max"));
+        });
+
+        // Server-Timing によるホップごとの処理時間（各ホップの値は内側のホップの時間を含む）
+        System.out.println();
+        System.out.printf("%-8s %-8s %9s %9s %9s %9s%n", "route", "hop", "p50(ms)", "p90(ms)", "p99(ms)", "max(ms)");
+        routes.forEach((route, value) -> {
+            Map<String, Object> hops = (Map<String, Object>) ((Map<String, Object>) value).get("hopsMs");
+            hops.forEach((hop, summary) -> {
+                Map<String, Object> latency = (Map<String, Object>) summary;
+                System.out.printf("%-8s %-8s %9.1f %9.1f %9.1f %9.1f%n", route, hop,
+                    latency.get("p50"), latency.get("p90"), latency.get("p99"), latency.get("max"));
+            });
+        });
+        System.out.println();
+    }
+
+    private static void writeReport(ObjectMapper objectMapper, Path path, Map<String, String> options,
+                                    Map<String, Object> routes) throws IOException {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("options", new TreeMap<>(options));
+        report.put("routes", routes);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        objectMapper.writer(SerializationFeature.INDENT_OUTPUT).writeValue(path.toFile(), report);
+        System.out.println("レポート: " + path.toAbsolutePath());
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("オプションは --name=value の形式で指定してください: " + arg);
+            }
+            String name = arg.substring(2, eq);
+            if (!DEFAULTS.containsKey(name)) {
+                throw new IllegalArgumentException("不明なオプション: " + name);
+            }
+            options.put(name, arg.substring(eq + 1));
+        }
+        return options;
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.benchmarks.load;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 負荷試験用の KeyCloak の代わり。BFF の OAuth2 ログイン（認可コードフロー）と backend の JWKS 取得に必要な
+ * エンドポイントだけを持つ OIDC プロバイダー。ログイン画面は無く、/authorize は login_hint のユーザーで即座にコードを発行する。
+ */
+class OidcStandIn implements AutoCloseable {
+
+    private static final String KEY_ID = "load-test-key";
+    private static final Duration TOKEN_LIFETIME = Duration.ofHours(1);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String clientId;
+    private final RSAPublicKey publicKey;
+    private final Algorithm algorithm;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final String issuer;
+
+    // 発行済みの認可コード（トークンエンドポイントで一度だけ使える）
+    private final Map<String, Authorization> codes = new ConcurrentHashMap<>();
+    // アクセストークン → ユーザー（userinfo 用）
+    private final Map<String, String> accessTokens = new ConcurrentHashMap<>();
+
+    OidcStandIn(String clientId) throws IOException, NoSuchAlgorithmException {
+        this.clientId = clientId;
+
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        this.publicKey = (RSAPublicKey) keyPair.getPublic();
+        this.algorithm = Algorithm.RSA256(publicKey, (RSAPrivateKey) keyPair.getPrivate());
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/.well-known/openid-configuration", exchange -> json(exchange, 200, discovery()));
+        server.createContext("/jwks", exchange -> json(exchange, 200, jwks()));
+        server.createContext("/authorize", this::authorize);
+        server.createContext("/token", this::token);
+        server.createContext("/userinfo", this::userinfo);
+        executor = Executors.newFixedThreadPool(4);
+        server.setExecutor(executor);
+        server.start();
+        issuer = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    String issuer() {
+        return issuer;
+    }
+
+    String jwksUri() {
+        return issuer + "/jwks";
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    private Map<String, Object> discovery() {
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("issuer", issuer);
+        metadata.put("authorization_endpoint", issuer + "/authorize");
+        metadata.put("token_endpoint", issuer + "/token");
+        metadata.put("userinfo_endpoint", issuer + "/userinfo");
+        metadata.put("jwks_uri", jwksUri());
+        metadata.put("response_types_supported", List.of("code"));
+        metadata.put("subject_types_supported", List.of("public"));
+        metadata.put("id_token_signing_alg_values_supported", List.of("RS256"));
+        metadata.put("token_endpoint_auth_methods_supported", List.of("client_secret_basic", "client_secret_post"));
+        metadata.put("scopes_supported", List.of("openid", "profile", "email"));
+        return metadata;
+    }
+
+    private Map<String, Object> jwks() {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return Map.of("keys", List.of(Map.of(
+            "kty", "RSA",
+            "use", "sig",
+            "alg", "RS256",
+            "kid", KEY_ID,
+            "n", encoder.encodeToString(unsigned(publicKey.getModulus().toByteArray())),
+            "e", encoder.encodeToString(unsigned(publicKey.getPublicExponent().toByteArray())))));
+    }
+
+    // ログイン画面の代わりに login_hint のユーザーでログインしたものとして、すぐに redirect_uri へ戻す
+    private void authorize(HttpExchange exchange) throws IOException {
+        Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+        String user = params.get("login_hint");
+        String redirectUri = params.get("redirect_uri");
+        if (user == null || redirectUri == null || !clientId.equals(params.get("client_id"))) {
+            json(exchange, 400, Map.of("error", "invalid_request"));
+            return;
+        }
+
+        String code = UUID.randomUUID().toString();
+        codes.put(code, new Authorization(user, params.get("nonce"), params.getOrDefault("scope", "openid")));
+
+        String location = redirectUri + (redirectUri.contains("?") ? "&" : "?") + "code=" + code;
+        if (params.get("state") != null) {
+            location += "&state=" + URLEncoder.encode(params.get("state"), StandardCharsets.UTF_8);
+        }
+        exchange.getResponseHeaders().set("Location", location);
+        exchange.sendResponseHeaders(302, -1);
+        exchange.close();
+    }
+
+    private void token(HttpExchange exchange) throws IOException {
+        Map<String, String> params = parseQuery(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+        Authorization authorization = params.get("code") != null ? codes.remove(params.get("code")) : null;
+        if (!"authorization_code".equals(params.get("grant_type")) || authorization == null) {
+            json(exchange, 400, Map.of("error", "invalid_grant"));
+            return;
+        }
+
+        Instant now = Instant.now();
+        Instant expiresAt = now.plus(TOKEN_LIFETIME);
+        var idToken = JWT.create()
+            .withKeyId(KEY_ID)
+            .withIssuer(issuer)
+            .withAudience(clientId)
+            .withSubject(authorization.user)
+            .withClaim("preferred_username", authorization.user)
+            .withClaim("email", authorization.user + "@example.com")
+            .withIssuedAt(now)
+            .withExpiresAt(expiresAt);
+        if (authorization.nonce != null) {
+            idToken.withClaim("nonce", authorization.nonce);
+        }
+        String accessToken = JWT.create()
+            .withKeyId(KEY_ID)
+            .withIssuer(issuer)
+            .withClaim("azp", clientId)
+            .withSubject(authorization.user)
+            .withClaim("scope", authorization.scope)
+            .withIssuedAt(now)
+            .withExpiresAt(expiresAt)
+            .sign(algorithm);
+        accessTokens.put(accessToken, authorization.user);
+
+        json(exchange, 200, Map.of(
+            "access_token", accessToken,
+            "token_type", "Bearer",
+            "expires_in", TOKEN_LIFETIME.toSeconds(),
+            "scope", authorization.scope,
+            "id_token", idToken.sign(algorithm)));
+    }
+
+    private void userinfo(HttpExchange exchange) throws IOException {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        String user = authorization != null && authorization.startsWith("Bearer ")
+            ? accessTokens.get(authorization.substring("Bearer ".length()))
+            : null;
+        if (user == null) {
+            json(exchange, 401, Map.of("error", "invalid_token"));
+            return;
+        }
+        json(exchange, 200, Map.of("sub", user, "preferred_username", user, "email", user + "@example.com"));
+    }
+
+    private void json(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    // BigInteger#toByteArray の符号用の先頭 0 は JWK では付けない
+    private static byte[] unsigned(byte[] bytes) {
+        if (bytes.length > 1 && bytes[0] == 0) {
+            byte[] trimmed = new byte[bytes.length - 1];
+            System.arraycopy(bytes, 1, trimmed, 0, trimmed.length);
+            return trimmed;
+        }
+        return bytes;
+    }
+
+    private static final class Authorization {
+        private final String user;
+        private final String nonce;
+        private final String scope;
+
+        private Authorization(String user, String nonce, String scope) {
+            this.user = user;
+            this.nonce = nonce;
+            this.scope = scope;
+        }
+    }
+}
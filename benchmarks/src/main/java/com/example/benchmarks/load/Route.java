@@ -0,0 +1,22 @@
+package com.example.benchmarks.load;
+
+import java.util.Locale;
+
+/**
+ * 負荷試験で BFF（/api/proxy/trainings）に送る操作。
+ */
+enum Route {
+    LIST,
+    SEARCH,
+    GET,
+    CREATE,
+    UPDATE;
+
+    String label() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    static Route of(String label) {
+        return valueOf(label.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.benchmarks.load;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 操作の比率（例: list:40,search:20,get:20,create:10,update:10）。重みは合計 100 でなくてもよい。
+ */
+final class TrafficMix {
+
+    private final Map<Route, Integer> weights;
+    private final Route[] routes;
+    private final int[] cumulative;
+    private final int total;
+
+    private TrafficMix(Map<Route, Integer> weights) {
+        this.weights = weights;
+        this.routes = weights.keySet().toArray(new Route[0]);
+        this.cumulative = new int[routes.length];
+        int sum = 0;
+        for (int i = 0; i < routes.length; i++) {
+            sum += weights.get(routes[i]);
+            cumulative[i] = sum;
+        }
+        this.total = sum;
+    }
+
+    static TrafficMix parse(String spec) {
+        Map<Route, Integer> weights = new EnumMap<>(Route.class);
+        for (String entry : spec.split(",")) {
+            String[] parts = entry.split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("mix の指定が不正です: " + entry);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("mix の重みは 0 以上: " + entry);
+            }
+            if (weight > 0) {
+                weights.merge(Route.of(parts[0]), weight, Integer::sum);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("mix に操作がありません: " + spec);
+        }
+        return new TrafficMix(weights);
+    }
+
+    Route next(Random random) {
+        int value = random.nextInt(total);
+        for (int i = 0; i < routes.length; i++) {
+            if (value < cumulative[i]) {
+                return routes[i];
+            }
+        }
+        return routes[routes.length - 1];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder spec = new StringBuilder();
+        weights.forEach((route, weight) -> {
+            if (spec.length() > 0) {
+                spec.append(',');
+            }
+            spec.append(route.label()).append(':').append(weight);
+        });
+        return spec.toString();
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.benchmarks.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.CookiePolicy;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * ブラウザの代わりに BFF のセッション Cookie を持って API を呼ぶ利用者。
+ * 作成したトレーニングの ID とバージョンを覚えておき、取得・更新の対象にする。
+ */
+class VirtualUser {
+
+    private static final String[] TITLES = {"Morning run", "Evening yoga", "Interval sprint", "Core circuit", "Long ride"};
+    private static final String[] SEARCH_TERMS = {"run", "yoga", "sprint", "core", "ride"};
+    private static final String[] TYPES = {"cardio", "flexibility", "cardio", "core", "cardio"};
+    private static final String[] DIFFICULTIES = {"beginner", "intermediate", "advanced"};
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final String name;
+    private final URI bff;
+    private final HttpClient client;
+    private final ObjectMapper objectMapper;
+    private final List<Long> ids = new CopyOnWriteArrayList<>();
+    private final Map<Long, Long> versions = new ConcurrentHashMap<>();
+
+    VirtualUser(String name, URI bff, ObjectMapper objectMapper) {
+        this.name = name;
+        this.bff = bff;
+        this.objectMapper = objectMapper;
+        // リダイレクトは login() で自分で辿る（KeyCloak の代わりに login_hint を付けるため）
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .cookieHandler(new CookieManager(null, CookiePolicy.ACCEPT_ALL))
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    }
+
+    String name() {
+        return name;
+    }
+
+    /**
+     * BFF の OAuth2 ログインを認可コードフローで最後まで進め、セッション Cookie を得る。
+     */
+    void login() throws IOException, InterruptedException {
+        URI next = bff.resolve("/api/auth/login");
+        for (int hop = 0; hop < 10; hop++) {
+            if (next.getPath().equals("/api/auth/success")) {
+                return;
+            }
+            if (next.getPath().equals("/api/auth/failure")) {
+                throw new IllegalStateException(name + " のログインに失敗しました");
+            }
+            if (next.getPath().endsWith("/authorize")) {
+                next = URI.create(next + "&login_hint=" + URLEncoder.encode(name, StandardCharsets.UTF_8));
+            }
+            HttpResponse<Void> response = client.send(HttpRequest.newBuilder(next).timeout(REQUEST_TIMEOUT).GET().build(),
+                HttpResponse.BodyHandlers.discarding());
+            String location = response.headers().firstValue("Location").orElse(null);
+            if (response.statusCode() / 100 != 3 || location == null) {
+                throw new IllegalStateException(name + " のログイン中に想定外の応答: " + response.statusCode() + " " + next);
+            }
+            next = next.resolve(location);
+        }
+        throw new IllegalStateException(name + " のログインでリダイレクトが多すぎます");
+    }
+
+    HttpResponse<byte[]> execute(Route route, Random random) throws IOException, InterruptedException {
+        switch (route) {
+            case LIST:
+                return send(get("/api/proxy/trainings?limit=20"));
+            case SEARCH:
+                return send(get("/api/proxy/trainings?limit=20&search=" + SEARCH_TERMS[random.nextInt(SEARCH_TERMS.length)]));
+            case GET:
+                return send(get("/api/proxy/trainings/" + pickId(random)));
+            case CREATE:
+                return create(random);
+            case UPDATE:
+                return update(random);
+            default:
+                throw new IllegalArgumentException("未対応の操作: " + route);
+        }
+    }
+
+    HttpResponse<byte[]> create(Random random) throws IOException, InterruptedException {
+        int kind = random.nextInt(TITLES.length);
+        Map<String, Object> training = new LinkedHashMap<>();
+        training.put("title", TITLES[kind] + " " + (ids.size() + 1));
+        training.put("description", "Load test training of " + name);
+        training.put("type", TYPES[kind]);
+        training.put("durationMinutes", 10 + random.nextInt(80));
+        training.put("difficulty", DIFFICULTIES[random.nextInt(DIFFICULTIES.length)]);
+
+        HttpResponse<byte[]> response = send(json("POST", "/api/proxy/trainings", training));
+        if (response.statusCode() == 200) {
+            JsonNode created = objectMapper.readTree(response.body());
+            long id = created.get("id").asLong();
+            versions.put(id, created.get("version").asLong());
+            ids.add(id);
+        }
+        return response;
+    }
+
+    // 覚えているバージョンで PATCH する。他の操作と競合した 409 の場合はボディの最新バージョンを覚え直す
+    private HttpResponse<byte[]> update(Random random) throws IOException, InterruptedException {
+        long id = pickId(random);
+        Map<String, Object> patch = new LinkedHashMap<>();
+        patch.put("durationMinutes", 10 + random.nextInt(80));
+        patch.put("version", versions.get(id));
+
+        HttpResponse<byte[]> response = send(json("PATCH", "/api/proxy/trainings/" + id, patch));
+        if (response.statusCode() == 200 || response.statusCode() == 409) {
+            versions.put(id, objectMapper.readTree(response.body()).get("version").asLong());
+        }
+        return response;
+    }
+
+    private long pickId(Random random) {
+        if (ids.isEmpty()) {
+            throw new IllegalStateException(name + " のトレーニングがありません（先に作成が必要です）");
+        }
+        return ids.get(random.nextInt(ids.size()));
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(bff.resolve(path)).timeout(REQUEST_TIMEOUT).GET().build();
+    }
+
+    private HttpRequest json(String method, String path, Object body) throws IOException {
+        return HttpRequest.newBuilder(bff.resolve(path))
+            .timeout(REQUEST_TIMEOUT)
+            .header("Content-Type", "application/json")
+            .method(method, HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+            .build();
+    }
+
+    private HttpResponse<byte[]> send(HttpRequest request) throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+    }
+}
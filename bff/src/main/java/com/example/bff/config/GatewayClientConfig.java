@@ -0,0 +1,192 @@
+package com.example.bff.config;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.DefaultHttpRequestRetryStrategy;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.NoOpResponseErrorHandler;
+import org.springframework.web.client.RestTemplate;
+
+import javax.net.ssl.SSLException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.NoRouteToHostException;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * API Gateway 呼び出し用の RestTemplate。接続プール（Apache HttpClient）の接続数・アイドル接続の破棄、
+ * 接続・応答タイムアウトと、冪等なメソッドのリトライを設定する。
+ * 応答タイムアウトは経路（/api 以下のパスから数値の ID を除き - で繋いだもの。例: trainings-export）ごとに
+ * api-gateway.client.routes.&lt;route&gt;.response-timeout で上書きできる。
+ * application.yml は各自の環境用のため、設定が無い場合の値をここに置く。
+ */
+@Configuration
+public class GatewayClientConfig {
+
+    private static final String ROUTES = "api-gateway.client.routes.";
+
+    // ストリーミングの経路の応答タイムアウト（読み込みの間隔）の既定値。SSE はハートビート（20 秒毎）より長くする
+    private static final Map<String, Duration> STREAMING_RESPONSE_TIMEOUTS = Map.of(
+        "changes", Duration.ofSeconds(60),
+        "trainings-export", Duration.ofSeconds(60));
+
+    @Autowired
+    private Environment environment;
+
+    @Value("${api-gateway.client.max-connections:200}")
+    private int maxConnections;
+
+    @Value("${api-gateway.client.max-idle-time:30s}")
+    private Duration maxIdleTime;
+
+    @Value("${api-gateway.client.max-life-time:5m}")
+    private Duration maxLifeTime;
+
+    @Value("${api-gateway.client.connect-timeout:2s}")
+    private Duration connectTimeout;
+
+    @Value("${api-gateway.client.pending-acquire-timeout:5s}")
+    private Duration pendingAcquireTimeout;
+
+    @Value("${api-gateway.client.response-timeout:15s}")
+    private Duration responseTimeout;
+
+    @Value("${api-gateway.client.retry.max-retries:2}")
+    private int maxRetries;
+
+    @Value("${api-gateway.client.retry.min-backoff:50ms}")
+    private Duration minBackoff;
+
+    @Value("${api-gateway.client.retry.max-backoff:500ms}")
+    private Duration maxBackoff;
+
+    @Value("${api-gateway.client.retry.jitter:0.5}")
+    private double jitter;
+
+    private final Map<String, RequestConfig> routeConfigs = new ConcurrentHashMap<>();
+
+    // HttpComponentsClientHttpRequestFactory は破棄時に HttpClient（接続プール）を閉じる
+    @Bean
+    public HttpComponentsClientHttpRequestFactory gatewayRequestFactory() {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+            // 接続先は API Gateway だけのため、経路ごとの上限も全体と同じにする
+            .setMaxConnTotal(maxConnections)
+            .setMaxConnPerRoute(maxConnections)
+            .setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.of(connectTimeout))
+                .setTimeToLive(TimeValue.of(maxLifeTime))
+                .build())
+            .build();
+        RequestConfig defaultConfig = RequestConfig.custom()
+            .setConnectionRequestTimeout(Timeout.of(pendingAcquireTimeout))
+            .setResponseTimeout(Timeout.of(responseTimeout))
+            .build();
+        // プロキシとして中継するため、圧縮の展開・リダイレクトの追跡・Cookie の保持はしない
+        CloseableHttpClient httpClient = HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(defaultConfig)
+            .evictIdleConnections(TimeValue.of(maxIdleTime))
+            .evictExpiredConnections()
+            .setRetryStrategy(new JitteredRetryStrategy(maxRetries, minBackoff, maxBackoff, jitter))
+            .disableContentCompression()
+            .disableRedirectHandling()
+            .disableCookieManagement()
+            .build();
+
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        requestFactory.setHttpContextFactory((method, uri) -> {
+            HttpClientContext context = HttpClientContext.create();
+            context.setRequestConfig(routeConfigs.computeIfAbsent(route(uri), route -> RequestConfig.copy(defaultConfig)
+                .setResponseTimeout(Timeout.of(environment.getProperty(ROUTES + route + ".response-timeout", Duration.class,
+                    STREAMING_RESPONSE_TIMEOUTS.getOrDefault(route, responseTimeout))))
+                .build()));
+            return context;
+        });
+        return requestFactory;
+    }
+
+    // Spring の RestTemplateBuilder を使い、API Gateway 呼び出しを http.client.requests として記録する
+    // 4xx/5xx もボディごと中継するため、ステータスで例外にしない
+    @Bean
+    public RestTemplate gatewayRestTemplate(RestTemplateBuilder restTemplateBuilder,
+                                            HttpComponentsClientHttpRequestFactory gatewayRequestFactory) {
+        return restTemplateBuilder
+            .requestFactory(() -> gatewayRequestFactory)
+            .errorHandler(new NoOpResponseErrorHandler())
+            .build();
+    }
+
+    // /api/trainings/12/... → trainings、/api/trainings/export → trainings-export
+    static String route(URI uri) {
+        String path = MetricsConfig.route(uri.getPath()).replace("/{id}", "");
+        if (path.startsWith("/api/")) {
+            path = path.substring("/api/".length());
+        }
+        return path.replace('/', '-');
+    }
+
+    /**
+     * 冪等なメソッド（GET・PUT・DELETE 等）を、接続失敗・応答前の切断と 503 で再送する。
+     * 待ち時間は回数ごとに倍にし（上限あり）、ゆらぎを付けて再送が揃わないようにする。
+     * 受信したボディをそのまま流すリクエストは送り直せないため、HttpClient が再送しない。
+     * 応答タイムアウト（InterruptedIOException）は、遅いだけのリクエストを重ねないよう再送しない。
+     */
+    static final class JitteredRetryStrategy extends DefaultHttpRequestRetryStrategy {
+
+        private final Duration minBackoff;
+        private final Duration maxBackoff;
+        private final double jitter;
+
+        JitteredRetryStrategy(int maxRetries, Duration minBackoff, Duration maxBackoff, double jitter) {
+            super(maxRetries, TimeValue.of(minBackoff),
+                List.of(InterruptedIOException.class, UnknownHostException.class, NoRouteToHostException.class, SSLException.class),
+                List.of(503));
+            this.minBackoff = minBackoff;
+            this.maxBackoff = maxBackoff;
+            this.jitter = jitter;
+        }
+
+        @Override
+        public TimeValue getRetryInterval(HttpRequest request, IOException exception, int execCount, HttpContext context) {
+            return backoff(execCount);
+        }
+
+        // Retry-After があればそれに従う
+        @Override
+        public TimeValue getRetryInterval(HttpResponse response, int execCount, HttpContext context) {
+            if (response.containsHeader(HttpHeaders.RETRY_AFTER)) {
+                return super.getRetryInterval(response, execCount, context);
+            }
+            return backoff(execCount);
+        }
+
+        private TimeValue backoff(int execCount) {
+            long base = Math.min(maxBackoff.toMillis(), minBackoff.toMillis() << Math.min(execCount - 1, 20));
+            long delay = (long) (base * (1 - jitter * ThreadLocalRandom.current().nextDouble()));
+            return TimeValue.ofMilliseconds(delay);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.bff.config;
+
+import io.micrometer.common.KeyValue;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.observation.ClientHttpObservationDocumentation;
+import org.springframework.http.client.observation.ClientRequestObservationContext;
+import org.springframework.http.client.observation.ClientRequestObservationConvention;
+import org.springframework.http.client.observation.DefaultClientRequestObservationConvention;
+import org.springframework.http.server.observation.DefaultServerRequestObservationConvention;
+import org.springframework.http.server.observation.ServerHttpObservationDocumentation;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.http.server.observation.ServerRequestObservationConvention;
+
+import java.util.regex.Pattern;
+
+/**
+ * プロキシは /api/proxy/** の1つのハンドラで受けるため、http.server.requests / http.client.requests の uri タグを
+ * 実際のパスから作る。ID 部分は {id} に置き換え、ルート単位で集計できるようにする。
+ */
+@Configuration
+public class MetricsConfig {
+
+    private static final String PROXY_PATTERN = "/api/proxy/**";
+    private static final Pattern ID_SEGMENT = Pattern.compile("/\\d+(?=/|$)");
+
+    @Bean
+    public ServerRequestObservationConvention serverRequestObservationConvention() {
+        return new DefaultServerRequestObservationConvention() {
+            @Override
+            protected KeyValue uri(ServerRequestObservationContext context) {
+                if (PROXY_PATTERN.equals(context.getPathPattern())) {
+                    return KeyValue.of(ServerHttpObservationDocumentation.LowCardinalityKeyNames.URI,
+                        route(context.getCarrier().getRequestURI()));
+                }
+                return super.uri(context);
+            }
+        };
+    }
+
+    @Bean
+    public ClientRequestObservationConvention clientRequestObservationConvention() {
+        return new DefaultClientRequestObservationConvention() {
+            @Override
+            protected KeyValue uri(ClientRequestObservationContext context) {
+                if (context.getCarrier() != null) {
+                    return KeyValue.of(ClientHttpObservationDocumentation.LowCardinalityKeyNames.URI,
+                        route(context.getCarrier().getURI().getPath()));
+                }
+                return super.uri(context);
+            }
+        };
+    }
+
+    // クエリを含まないパスの数値セグメントを {id} にする
+    static String route(String path) {
+        return ID_SEGMENT.matcher(path).replaceAll("/{id}");
+    }
+}
@@ -1,32 +1,101 @@
 package com.example.bff.controller;
 
+import com.example.bff.tracing.ServerTimingFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.core.oidc.user.OidcUser;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.List;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/api/proxy")
 public class ProxyController {
 
+    private static final List<String> FORWARDED_REQUEST_HEADERS = List.of(
+        HttpHeaders.CONTENT_TYPE, HttpHeaders.CONTENT_LENGTH, HttpHeaders.CONTENT_ENCODING, HttpHeaders.IF_NONE_MATCH);
+
+    private static final List<String> FORWARDED_RESPONSE_HEADERS = List.of(
+        HttpHeaders.CONTENT_TYPE, HttpHeaders.CONTENT_LENGTH, HttpHeaders.CONTENT_ENCODING, HttpHeaders.CONTENT_DISPOSITION,
+        HttpHeaders.ETAG, HttpHeaders.CACHE_CONTROL, HttpHeaders.VARY, HttpHeaders.LOCATION, ServerTimingFilter.SERVER_TIMING);
+
     @Value("${api-gateway.url}")
     private String apiGatewayUrl;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper;
+
+    // 接続プール・タイムアウト・リトライは GatewayClientConfig で設定する
+    public ProxyController(RestTemplate gatewayRestTemplate, ObjectMapper objectMapper) {
+        this.restTemplate = gatewayRestTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    // SSE の変更通知。受け取った分をすぐにフラッシュし、バッファせずにブラウザへ中継する
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamChanges(
+            @AuthenticationPrincipal OidcUser principal,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        // ストリーミングは別スレッドで行うため、トークンは先に取り出しておく
+        String idToken = principal.getIdToken().getTokenValue();
+
+        StreamingResponseBody stream = out -> restTemplate.execute(
+            apiGatewayUrl + "/api/changes",
+            HttpMethod.GET,
+            upstreamRequest -> {
+                upstreamRequest.getHeaders().set("Authorization", "Bearer " + idToken);
+                upstreamRequest.getHeaders().setAccept(List.of(MediaType.TEXT_EVENT_STREAM));
+                if (lastEventId != null) {
+                    upstreamRequest.getHeaders().set("Last-Event-ID", lastEventId);
+                }
+            },
+            upstreamResponse -> {
+                // エラー応答はイベントとして流さずに切断し、EventSource の再接続に任せる
+                if (upstreamResponse.getStatusCode().isError()) {
+                    return null;
+                }
+                InputStream in = upstreamResponse.getBody();
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                    out.flush();
+                }
+                return null;
+            });
+
+        return ResponseEntity.ok()
+            .contentType(MediaType.TEXT_EVENT_STREAM)
+            .cacheControl(CacheControl.noCache())
+            .header("X-Accel-Buffering", "no")
+            .body(stream);
+    }
 
     @RequestMapping("/**")
-    public ResponseEntity<?> proxyRequest(
+    public void proxyRequest(
             @AuthenticationPrincipal OidcUser principal,
             HttpServletRequest request,
-            @RequestBody(required = false) Object body) {
+            HttpServletResponse response) throws IOException {
         
         if (principal == null) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+            response.setStatus(HttpStatus.UNAUTHORIZED.value());
+            return;
         }
 
         // JWTトークンを取得
@@ -40,26 +109,50 @@ public class ProxyController {
             targetUrl += "?" + queryString;
         }
 
-        // ヘッダー設定
-        HttpHeaders headers = new HttpHeaders();
-        headers.set("Authorization", "Bearer " + idToken);
-        if (body != null) {
-            headers.setContentType(MediaType.APPLICATION_JSON);
-        }
-
-        HttpEntity<Object> entity = new HttpEntity<>(body, headers);
-
         try {
-            ResponseEntity<Object> response = restTemplate.exchange(
-                targetUrl,
+            // 受信したクエリはエンコード済みのため、テンプレートとして再エンコードさせないよう URI で渡す
+            restTemplate.execute(
+                URI.create(targetUrl),
                 HttpMethod.valueOf(request.getMethod()),
-                entity,
-                Object.class
-            );
-            return response;
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(Map.of("error", "Proxy request failed: " + e.getMessage()));
+                upstreamRequest -> {
+                    HttpHeaders headers = upstreamRequest.getHeaders();
+                    headers.set("Authorization", "Bearer " + idToken);
+                    // ボディの形式・長さ・符号化と、条件付きGETのバリデータを転送する
+                    for (String name : FORWARDED_REQUEST_HEADERS) {
+                        String value = request.getHeader(name);
+                        if (value != null) {
+                            headers.set(name, value);
+                        }
+                    }
+                    // ボディはデシリアライズせず、受信したストリームからそのまま送る
+                    if (hasBody(request) && upstreamRequest instanceof StreamingHttpOutputMessage streaming) {
+                        streaming.setBody(out -> request.getInputStream().transferTo(out));
+                    }
+                },
+                upstreamResponse -> {
+                    // 4xx/5xx（PATCH の 409 など）も含め、ステータス・ヘッダー・ボディをそのまま返す（304 はボディ無し）
+                    response.setStatus(upstreamResponse.getStatusCode().value());
+                    for (String name : FORWARDED_RESPONSE_HEADERS) {
+                        List<String> values = upstreamResponse.getHeaders().get(name);
+                        if (values != null) {
+                            values.forEach(value -> response.addHeader(name, value));
+                        }
+                    }
+                    upstreamResponse.getBody().transferTo(response.getOutputStream());
+                    return null;
+                });
+        } catch (RestClientException e) {
+            if (response.isCommitted()) {
+                throw e;
+            }
+            response.reset();
+            response.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(), Map.of("error", "Proxy request failed: " + e.getMessage()));
         }
     }
+
+    private static boolean hasBody(HttpServletRequest request) {
+        return request.getContentLengthLong() > 0 || request.getHeader(HttpHeaders.TRANSFER_ENCODING) != null;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,113 @@
+package com.example.bff.tracing;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * レスポンスに Server-Timing ヘッダーを付ける（bff: API Gateway 呼び出しを含むこのサービスでの処理時間、trace: トレースID）。
+ * API Gateway・バックエンドの Server-Timing は ProxyController がそのまま転送するため、ブラウザには各段の内訳が届く。
+ * フロントエンドから Performance API で読めるよう Timing-Allow-Origin を付ける。
+ * ヘッダーはボディの書き込み開始時（ボディが無ければ処理の終了時）に付けるため、ストリーミングでは最初のバイトまでの時間になる。
+ * トレースの開始後に計測するよう、ServerHttpObservationFilter の直後に置く。
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    public static final String SERVER_TIMING = "Server-Timing";
+
+    @Autowired
+    private Tracer tracer;
+
+    @Value("${server-timing.timing-allow-origin:http://localhost:3000}")
+    private String timingAllowOrigin;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        Span span = tracer.currentSpan();
+        String trace = span != null ? ", trace;desc=\"" + span.context().traceId() + "\"" : "";
+        response.setHeader("Timing-Allow-Origin", timingAllowOrigin);
+
+        ServerTimingResponse timed = new ServerTimingResponse(response, () -> entry("bff", System.nanoTime() - start) + trace);
+        try {
+            filterChain.doFilter(request, timed);
+        } finally {
+            if (!request.isAsyncStarted()) {
+                timed.addServerTiming();
+            }
+        }
+    }
+
+    private static String entry(String name, long nanos) {
+        return String.format(Locale.ROOT, "%s;dur=%.1f", name, nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    // ボディの書き込みが始まる直前（コミット前）に一度だけヘッダーを追加する
+    private static final class ServerTimingResponse extends HttpServletResponseWrapper {
+
+        private final Supplier<String> value;
+        private boolean added;
+
+        ServerTimingResponse(HttpServletResponse response, Supplier<String> value) {
+            super(response);
+            this.value = value;
+        }
+
+        void addServerTiming() {
+            if (!added && !isCommitted()) {
+                added = true;
+                addHeader(SERVER_TIMING, value.get());
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            addServerTiming();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            addServerTiming();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            addServerTiming();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            addServerTiming();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            addServerTiming();
+            super.sendError(sc);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.bff.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.time.Duration;
+
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.message.BasicHttpResponse;
+import org.apache.hc.core5.util.TimeValue;
+import org.junit.jupiter.api.Test;
+
+class GatewayClientConfigTests {
+
+	private final GatewayClientConfig.JitteredRetryStrategy strategy = new GatewayClientConfig.JitteredRetryStrategy(
+			2, Duration.ofMillis(50), Duration.ofMillis(500), 0.5);
+
+	@Test
+	void routesDropIdsAndTheApiPrefix() {
+		assertThat(GatewayClientConfig.route(URI.create("http://gateway/api/trainings/12"))).isEqualTo("trainings");
+		assertThat(GatewayClientConfig.route(URI.create("http://gateway/api/trainings/export?x=1"))).isEqualTo("trainings-export");
+		assertThat(GatewayClientConfig.route(URI.create("http://gateway/api/changes"))).isEqualTo("changes");
+		assertThat(GatewayClientConfig.route(URI.create("http://gateway/api/training-plans/3/bulk"))).isEqualTo("training-plans-bulk");
+	}
+
+	@Test
+	void backoffDoublesUpToTheCapWithJitter() {
+		for (int i = 0; i < 100; i++) {
+			assertThat(interval(1)).isBetween(25L, 50L);
+			assertThat(interval(2)).isBetween(50L, 100L);
+			assertThat(interval(10)).isBetween(250L, 500L);
+		}
+	}
+
+	@Test
+	void honoursRetryAfter() {
+		BasicHttpResponse response = new BasicHttpResponse(503);
+		response.addHeader(HttpHeaders.RETRY_AFTER, "2");
+
+		assertThat(strategy.getRetryInterval(response, 1, null)).isEqualTo(TimeValue.ofSeconds(2));
+	}
+
+	private long interval(int execCount) {
+		return strategy.getRetryInterval(new BasicHttpResponse(503), execCount, null).toMilliseconds();
+	}
+
+}
@@ -0,0 +1,72 @@
+package com.example.bff.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.net.URI;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.observation.ClientRequestObservationContext;
+import org.springframework.http.client.observation.ClientRequestObservationConvention;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.http.server.observation.ServerRequestObservationConvention;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+class MetricsConfigTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ServerRequestObservationConvention serverConvention;
+
+	@Autowired
+	private ClientRequestObservationConvention clientConvention;
+
+	@Test
+	void routeFoldsNumericSegmentsOnly() {
+		assertThat(MetricsConfig.route("/api/proxy/trainings/42")).isEqualTo("/api/proxy/trainings/{id}");
+		assertThat(MetricsConfig.route("/api/trainings/42/plans/7")).isEqualTo("/api/trainings/{id}/plans/{id}");
+		assertThat(MetricsConfig.route("/api/trainings/stats")).isEqualTo("/api/trainings/stats");
+		assertThat(MetricsConfig.route("/api/trainings/v2")).isEqualTo("/api/trainings/v2");
+	}
+
+	@Test
+	void proxiedRequestsAreTaggedByRoute() {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/proxy/trainings/42");
+		ServerRequestObservationContext server = new ServerRequestObservationContext(request, new MockHttpServletResponse());
+		server.setPathPattern("/api/proxy/**");
+		assertThat(serverConvention.getLowCardinalityKeyValues(server))
+			.anyMatch(keyValue -> keyValue.getKey().equals("uri") && keyValue.getValue().equals("/api/proxy/trainings/{id}"));
+
+		ClientRequestObservationContext client = new ClientRequestObservationContext(
+				new MockClientHttpRequest(HttpMethod.GET, URI.create("http://gateway/api/trainings/42?fields=title")));
+		assertThat(clientConvention.getLowCardinalityKeyValues(client))
+			.anyMatch(keyValue -> keyValue.getKey().equals("uri") && keyValue.getValue().equals("/api/trainings/{id}"));
+	}
+
+	@Test
+	void prometheusIsScrapedWithoutLogin() throws Exception {
+		this.mockMvc.perform(get("/actuator/health")).andExpect(status().isOk());
+		String scrape = this.mockMvc.perform(get("/actuator/prometheus"))
+			.andExpect(status().isOk())
+			.andReturn().getResponse().getContentAsString();
+
+		assertThat(scrape).contains("application=\"training-bff\"");
+		assertThat(scrape.lines()).anyMatch(line -> line.startsWith("http_server_requests_seconds_bucket{")
+				&& line.contains("uri=\"/actuator/health\""));
+	}
+
+}
@@ -0,0 +1,206 @@
+package com.example.bff.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.oidcLogin;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ProxyControllerTests {
+
+	// 最後に受け取ったリクエスト。/api/trainings/status-{code} は 409 なら受け取ったボディをそのまま返し、304・404・503 はボディ無しで応答する
+	// /api/trainings/flaky は最初の1回だけ 503、/api/trainings/slow は 1 秒待ってから応答する
+	private static final AtomicReference<Headers> receivedHeaders = new AtomicReference<>();
+
+	private static final AtomicInteger requests = new AtomicInteger();
+
+	private static final AtomicReference<byte[]> receivedBody = new AtomicReference<>();
+
+	private static final HttpServer gateway = startGateway();
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@DynamicPropertySource
+	static void gatewayUrl(DynamicPropertyRegistry registry) {
+		registry.add("api-gateway.url", () -> "http://localhost:" + gateway.getAddress().getPort());
+		registry.add("api-gateway.client.routes.trainings-slow.response-timeout", () -> "200ms");
+	}
+
+	@BeforeEach
+	void clear() {
+		requests.set(0);
+	}
+
+	@AfterAll
+	static void stopGateway() {
+		gateway.stop(0);
+	}
+
+	@Test
+	void passesBodiesAndErrorStatusesThroughByteForByte() throws Exception {
+		// JSON として解釈し直すと変わってしまう、空白・重複キー・UTF-8 以外のバイトを含むボディ
+		byte[] body = {'{', ' ', '"', 'a', '"', ':', '1', ',', '"', 'a', '"', ':', '2', ' ', '}', (byte) 0xff, '\n'};
+		byte[] relayed = this.mockMvc.perform(patch("/api/proxy/trainings/status-409").with(oidcLogin())
+				.contentType("application/merge-patch+json;charset=ISO-8859-1")
+				.content(body))
+			.andExpect(status().isConflict())
+			.andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/merge-patch+json;charset=ISO-8859-1"))
+			.andExpect(header().string(HttpHeaders.ETAG, "\"v1\""))
+			.andExpect(header().doesNotExist("X-Gateway-Only"))
+			.andReturn().getResponse().getContentAsByteArray();
+
+		assertThat(relayed).containsExactly(body);
+		assertThat(receivedBody.get()).containsExactly(body);
+		assertThat(receivedHeaders.get().getFirst(HttpHeaders.CONTENT_TYPE)).isEqualTo("application/merge-patch+json;charset=ISO-8859-1");
+		assertThat(receivedHeaders.get().getFirst(HttpHeaders.AUTHORIZATION)).startsWith("Bearer ");
+	}
+
+	@Test
+	void relaysBodilessResponsesAndConditionalHeaders() throws Exception {
+		this.mockMvc.perform(get("/api/proxy/trainings/status-404").with(oidcLogin()))
+			.andExpect(status().isNotFound())
+			.andExpect(header().doesNotExist(HttpHeaders.CONTENT_TYPE))
+			.andExpect(content().bytes(new byte[0]));
+
+		this.mockMvc.perform(get("/api/proxy/trainings/status-304").with(oidcLogin())
+				.header(HttpHeaders.IF_NONE_MATCH, "\"v1\""))
+			.andExpect(status().isNotModified())
+			.andExpect(header().string(HttpHeaders.ETAG, "\"v1\""))
+			.andExpect(content().bytes(new byte[0]));
+		assertThat(receivedHeaders.get().getFirst(HttpHeaders.IF_NONE_MATCH)).isEqualTo("\"v1\"");
+	}
+
+	@Test
+	void keepsTheQueryStringAsSent() throws Exception {
+		this.mockMvc.perform(get(URI.create("/api/proxy/trainings/status-404?search=a%26b%3Dc&fields=id%2Ctitle")).with(oidcLogin()))
+			.andExpect(status().isNotFound());
+
+		assertThat(receivedHeaders.get().getFirst("X-Request-Uri")).isEqualTo("/api/trainings/status-404?search=a%26b%3Dc&fields=id%2Ctitle");
+	}
+
+	@Test
+	void retriesIdempotentRequestsOnServiceUnavailable() throws Exception {
+		this.mockMvc.perform(get("/api/proxy/trainings/flaky").with(oidcLogin()))
+			.andExpect(status().isOk())
+			.andExpect(content().string("{}"));
+		assertThat(requests).hasValue(2);
+	}
+
+	@Test
+	void relaysServiceUnavailableOnceRetriesRunOut() throws Exception {
+		this.mockMvc.perform(get("/api/proxy/trainings/status-503").with(oidcLogin()))
+			.andExpect(status().isServiceUnavailable());
+		assertThat(requests).hasValue(3);
+
+		// ストリーミングで送ったボディは送り直せないため、再送しない
+		requests.set(0);
+		this.mockMvc.perform(patch("/api/proxy/trainings/status-503").with(oidcLogin())
+				.contentType("application/json")
+				.content("{\"title\":\"x\"}"))
+			.andExpect(status().isServiceUnavailable());
+		assertThat(requests).hasValue(1);
+	}
+
+	@Test
+	void appliesThePerRouteResponseTimeoutWithoutRetrying() throws Exception {
+		long start = System.nanoTime();
+		this.mockMvc.perform(get("/api/proxy/trainings/slow").with(oidcLogin()))
+			.andExpect(status().isInternalServerError());
+
+		assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(900));
+		assertThat(requests).hasValue(1);
+	}
+
+	private static HttpServer startGateway() {
+		try {
+			HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+			server.createContext("/api/trainings/", ProxyControllerTests::respond);
+			server.start();
+			return server;
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void respond(HttpExchange exchange) throws IOException {
+		byte[] body = exchange.getRequestBody().readAllBytes();
+		Headers headers = new Headers();
+		headers.putAll(exchange.getRequestHeaders());
+		headers.set("X-Request-Uri", exchange.getRequestURI().getRawPath() + "?" + exchange.getRequestURI().getRawQuery());
+		receivedHeaders.set(headers);
+		receivedBody.set(body);
+		int count = requests.incrementAndGet();
+
+		String path = exchange.getRequestURI().getPath();
+		if (path.endsWith("/slow") || (path.endsWith("/flaky") && count > 1)) {
+			if (path.endsWith("/slow")) {
+				sleep(Duration.ofSeconds(1));
+			}
+			byte[] ok = "{}".getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set(HttpHeaders.CONTENT_TYPE, "application/json");
+			exchange.sendResponseHeaders(200, ok.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(ok);
+			} catch (IOException e) {
+				// タイムアウトした BFF が切断済み
+			}
+			return;
+		}
+		if (path.endsWith("/flaky")) {
+			exchange.sendResponseHeaders(503, -1);
+			exchange.close();
+			return;
+		}
+		int code = Integer.parseInt(path.substring(path.lastIndexOf('-') + 1));
+		exchange.getResponseHeaders().set(HttpHeaders.ETAG, "\"v1\"");
+		if (code != 409) {
+			exchange.sendResponseHeaders(code, -1);
+			exchange.close();
+			return;
+		}
+		exchange.getResponseHeaders().set(HttpHeaders.CONTENT_TYPE, exchange.getRequestHeaders().getFirst(HttpHeaders.CONTENT_TYPE));
+		exchange.getResponseHeaders().set("X-Gateway-Only", "1");
+		exchange.sendResponseHeaders(code, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	private static void sleep(Duration duration) {
+		try {
+			Thread.sleep(duration.toMillis());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
@@ -0,0 +1,42 @@
+package com.example.bff.tracing;
+
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class ServerTimingFilterTests {
+
+	private static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Test
+	void reportsItsTimeAndTheCallersTraceId() throws Exception {
+		this.mockMvc.perform(get("/actuator/health").header("traceparent", "00-" + TRACE_ID + "-00f067aa0ba902b7-01"))
+			.andExpect(status().isOk())
+			.andExpect(header().string(ServerTimingFilter.SERVER_TIMING,
+					matchesPattern("bff;dur=\\d+\\.\\d, trace;desc=\"" + TRACE_ID + "\"")))
+			.andExpect(header().string("Timing-Allow-Origin", "http://localhost:3000"));
+	}
+
+	@Test
+	void startsANewTraceWithoutTraceparent() throws Exception {
+		this.mockMvc.perform(get("/actuator/health"))
+			.andExpect(status().isOk())
+			.andExpect(header().string(ServerTimingFilter.SERVER_TIMING,
+					matchesPattern("bff;dur=\\d+\\.\\d, trace;desc=\"(?!" + TRACE_ID + ")[0-9a-f]{32}\"")));
+	}
+
+}
@@ -0,0 +1,18 @@
+#!/usr/bin/env bash
+# AOT 処理済みの jar と CDS アーカイブ（mvn -Pfast-start package で作成）を使って起動する。
+# 使い方: scripts/fast-start.sh <backend|api-gateway|bff> [アプリケーションの引数...]
+# JVM オプションは JAVA_OPTS で渡す。プロファイルはビルド時の -Dfast-start.profiles と同じものを指定すること。
+set -euo pipefail
+
+module="${1:?使い方: $0 <backend|api-gateway|bff> [アプリケーションの引数...]}"
+shift
+
+dir="$(cd "$(dirname "$0")/.." && pwd)/${module}/target/fast-start"
+if [[ ! -f "${dir}/application.jsa" ]]; then
+  echo "${dir}/application.jsa がありません。先に mvn -f ${module}/pom.xml -Pfast-start -DskipTests package を実行してください" >&2
+  exit 1
+fi
+
+# shellcheck disable=SC2086
+exec java -XX:SharedArchiveFile="${dir}/application.jsa" -Dspring.aot.enabled=true ${JAVA_OPTS:-} \
+  -jar "${dir}/application.jar" "$@"
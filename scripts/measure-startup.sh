@@ -0,0 +1,79 @@
+#!/usr/bin/env bash
+# 通常の実行可能 jar と fast-start（AOT + CDS）で、起動時間と最初のリクエストのレイテンシを比べる。
+# 事前に mvn -f <モジュール>/pom.xml -Pfast-start -DskipTests package を実行しておくこと（両方の jar が target にできる）。
+#
+# 使い方: scripts/measure-startup.sh <backend|api-gateway|bff> [回数（既定 5）] [アプリケーションの引数...]
+#   起動時間: プロセスの起動からポートが接続を受け付けるまで
+#   最初のリクエスト: その直後の GET /actuator/health（curl の time_total）
+# JVM オプションは JAVA_OPTS で両方の起動に渡す（例: JAVA_OPTS="-Xmx512m"）。
+set -euo pipefail
+
+module="${1:?使い方: $0 <backend|api-gateway|bff> [回数] [アプリケーションの引数...]}"
+runs="${2:-5}"
+shift $(( $# >= 2 ? 2 : 1 ))
+
+root="$(cd "$(dirname "$0")/.." && pwd)"
+case "${module}" in
+  backend) port=8081 ;;
+  api-gateway) port=8082 ;;
+  bff) port=8080 ;;
+  *) echo "不明なモジュール: ${module}" >&2; exit 1 ;;
+esac
+
+jar="$(ls "${root}/${module}"/target/*-exec.jar 2>/dev/null | head -1 || true)"
+fast="${root}/${module}/target/fast-start"
+if [[ -z "${jar}" || ! -f "${fast}/application.jsa" ]]; then
+  echo "${module}/target に実行可能 jar または fast-start がありません。先に mvn -f ${module}/pom.xml -Pfast-start -DskipTests package を実行してください" >&2
+  exit 1
+fi
+
+log="$(mktemp)"
+trap 'rm -f "${log}"' EXIT
+
+now_ms() {
+  echo $(( $(date +%s%N) / 1000000 ))
+}
+
+# 1回起動して「起動時間(ms) 最初のリクエスト(ms)」を出力する
+measure() {
+  local start ready first pid
+  start=$(now_ms)
+  # shellcheck disable=SC2086
+  java ${JAVA_OPTS:-} "$@" --server.port="${port}" "${app_args[@]}" > "${log}" 2>&1 &
+  pid=$!
+  until (echo > "/dev/tcp/127.0.0.1/${port}") 2>/dev/null; do
+    if ! kill -0 "${pid}" 2>/dev/null; then
+      echo "起動に失敗しました（ログ: 以下）" >&2
+      tail -40 "${log}" >&2
+      exit 1
+    fi
+    sleep 0.01
+  done
+  ready=$(now_ms)
+  first=$(curl -s -o /dev/null -w '%{time_total}' "http://127.0.0.1:${port}/actuator/health")
+  kill "${pid}"
+  wait "${pid}" 2>/dev/null || true
+  echo "$(( ready - start )) $(awk -v t="${first}" 'BEGIN { printf "%d", t * 1000 }')"
+}
+
+# 昇順に並べた値から 中央値 最小 最大 を出力する
+summarize() {
+  sort -n | awk '{ v[NR] = $1 } END { printf "%6d %6d %6d", (NR % 2 ? v[(NR + 1) / 2] : (v[NR / 2] + v[NR / 2 + 1]) / 2), v[1], v[NR] }'
+}
+
+app_args=("$@")
+printf "%-10s %26s   %26s\n" "" "起動時間 ms (中央/最小/最大)" "最初のリクエスト ms (中央/最小/最大)"
+for mode in jar fast-start; do
+  startup=()
+  first=()
+  for ((i = 1; i <= runs; i++)); do
+    if [[ "${mode}" == jar ]]; then
+      read -r s f < <(measure -jar "${jar}")
+    else
+      read -r s f < <(measure -XX:SharedArchiveFile="${fast}/application.jsa" -Dspring.aot.enabled=true -jar "${fast}/application.jar")
+    fi
+    startup+=("${s}")
+    first+=("${f}")
+  done
+  printf "%-10s %26s   %26s\n" "${mode}" "$(printf '%s\n' "${startup[@]}" | summarize)" "$(printf '%s\n' "${first[@]}" | summarize)"
+done